@@ -0,0 +1,158 @@
+package datasciencewithairlines;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Class that is used to measure the counting of the rows of the loaded table.
+ * One operation is one row, so gc.alloc.rate.norm is the allocation per row:
+ * the boxed HashMap counters allocate a Long for most of the rows, while the
+ * counter maps and the accumulators of the aggregation engine allocate
+ * nothing once all keys of the table are known
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OperationsPerInvocation(AccumulatorBenchmark.ROWS)
+public class AccumulatorBenchmark {
+
+    static final int ROWS = 200000;
+
+    @Param({"14"})
+    private int carriers;
+
+    @Param({"300"})
+    private int airports;
+
+    @Param({"3000"})
+    private int tailNums;
+
+    private FlightTable flights;
+    private Map<String, Long> boxedCounters;
+    private ObjectLongMap<String> objectCounters;
+    private IntLongMap intCounters;
+    private CodeCounters codeCounters;
+    private AggregationEngine aggregationEngine;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        String[] lines = new FlightDataGenerator.Builder()
+                .withRows(ROWS)
+                .withCarriers(carriers)
+                .withAirports(airports)
+                .withTailNums(tailNums)
+                .build()
+                .generateLines();
+        byte[] database = (String.join("\n", lines) + "\n").getBytes(Charset.defaultCharset());
+        flights = new FlightTable();
+        try (CsvTokenizer line = new CsvTokenizer(new ByteArrayInputStream(database))) {
+            while (line.nextLine()) {
+                flights.parseRow(line);
+                flights.commitRow();
+            }
+        }
+        boxedCounters = new HashMap<>();
+        objectCounters = new ObjectLongMap<>();
+        intCounters = new IntLongMap();
+        codeCounters = new CodeCounters();
+        aggregationEngine = new AggregationEngine();
+        // the first pass adds all keys, the measured passes only count
+        countWithHashMap();
+        countWithObjectLongMap();
+        countWithIntLongMap();
+        countByCode();
+        aggregate();
+    }
+
+    /**
+     * Method sums the distances of each plane in a HashMap, as the group-bys
+     * with Collectors.summingLong did
+     *
+     * @return The counters
+     */
+    @Benchmark
+    public Map<String, Long> countWithHashMap() {
+        for (int row = 0; row < flights.size(); row++) {
+            boxedCounters.merge(flights.getTailNum(row), (long) flights.getDistance(row), Long::sum);
+        }
+        return boxedCounters;
+    }
+
+    /**
+     * Method sums the distances of each plane by its tail number
+     *
+     * @return The counters
+     */
+    @Benchmark
+    public ObjectLongMap<String> countWithObjectLongMap() {
+        for (int row = 0; row < flights.size(); row++) {
+            objectCounters.addTo(flights.getTailNum(row), flights.getDistance(row));
+        }
+        return objectCounters;
+    }
+
+    /**
+     * Method sums the distances of each plane by the code of its tail number
+     *
+     * @return The counters
+     */
+    @Benchmark
+    public IntLongMap countWithIntLongMap() {
+        for (int row = 0; row < flights.size(); row++) {
+            intCounters.addTo(flights.getTailNumCode(row), flights.getDistance(row));
+        }
+        return intCounters;
+    }
+
+    /**
+     * Method sums the distances of each plane as the accumulator of question
+     * 3 does
+     *
+     * @return The counters
+     */
+    @Benchmark
+    public CodeCounters countByCode() {
+        for (int row = 0; row < flights.size(); row++) {
+            codeCounters.add(flights.getTailNums(), flights.getTailNumCode(row), flights.getDistance(row));
+        }
+        return codeCounters;
+    }
+
+    /**
+     * Method passes all rows to the accumulators of all questions, the
+     * distributions of the delays, the routes and the days
+     *
+     * @return The engine
+     */
+    @Benchmark
+    public AggregationEngine aggregate() {
+        for (int row = 0; row < flights.size(); row++) {
+            if (flights.getCancelled(row) == 1) {
+                aggregationEngine.acceptCancelled(flights, row);
+            } else {
+                aggregationEngine.acceptCompleted(flights, row);
+            }
+        }
+        return aggregationEngine;
+    }
+}
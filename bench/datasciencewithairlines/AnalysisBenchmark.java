@@ -0,0 +1,141 @@
+package datasciencewithairlines;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Class that is used to measure the phases of the analysis separately: the
+ * loading of the database, the collection of the airports maps and the answer
+ * to each question over the loaded flights
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AnalysisBenchmark {
+
+    @Param({"500000"})
+    private int rows;
+
+    @Param({"14"})
+    private int carriers;
+
+    @Param({"300"})
+    private int airports;
+
+    @Param({"0.02"})
+    private double cancellationRate;
+
+    @Param({"0.003"})
+    private double diversionRate;
+
+    @Param({"1", "4"})
+    private int threads;
+
+    private File database;
+    private AnalysisCenter analysisCenter;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        database = File.createTempFile("flights", ".csv");
+        new FlightDataGenerator.Builder()
+                .withRows(rows)
+                .withCarriers(carriers)
+                .withAirports(airports)
+                .withCancellationRate(cancellationRate)
+                .withDiversionRate(diversionRate)
+                .build()
+                .generate(database);
+        analysisCenter = newAnalysisCenter();
+        analysisCenter.loadFile(database);
+        analysisCenter.collectAirportsMaps();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() {
+        database.delete();
+    }
+
+    private AnalysisCenter newAnalysisCenter() {
+        AnalysisCenter center = new AnalysisCenter();
+        center.setThreads(threads);
+        return center;
+    }
+
+    @Benchmark
+    public AnalysisCenter loadFile() {
+        AnalysisCenter center = newAnalysisCenter();
+        center.loadFile(database);
+        return center;
+    }
+
+    @Benchmark
+    public AnalysisCenter collectAirportsMaps() {
+        analysisCenter.collectAirportsMaps();
+        return analysisCenter;
+    }
+
+    @Benchmark
+    public AnalysisCenter answerQuestion1() {
+        analysisCenter.answerQuestion1();
+        return analysisCenter;
+    }
+
+    @Benchmark
+    public AnalysisCenter answerQuestion2() {
+        analysisCenter.answerQuestion2();
+        return analysisCenter;
+    }
+
+    @Benchmark
+    public AnalysisCenter answerQuestion3() {
+        analysisCenter.answerQuestion3();
+        return analysisCenter;
+    }
+
+    @Benchmark
+    public AnalysisCenter answerQuestion4() {
+        analysisCenter.answerQuestion4();
+        return analysisCenter;
+    }
+
+    @Benchmark
+    public AnalysisCenter answerQuestion5and6() {
+        analysisCenter.answerQuestion5and6();
+        return analysisCenter;
+    }
+
+    @Benchmark
+    public AnalysisCenter answerQuestion7() {
+        analysisCenter.answerQuestion7();
+        return analysisCenter;
+    }
+
+    @Benchmark
+    public AnalysisCenter answerQuestion8() {
+        analysisCenter.answerQuestion8();
+        return analysisCenter;
+    }
+
+    @Benchmark
+    public AnalysisCenter answerQuestion9() {
+        analysisCenter.answerQuestion9();
+        return analysisCenter;
+    }
+}
@@ -0,0 +1,29 @@
+package datasciencewithairlines;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Class that is used to run the benchmarks with the gc profiler, so the
+ * allocation rate is reported next to the throughput of each benchmark
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Method runs the benchmarks
+     *
+     * @param args Optional regular expression selecting the benchmarks, for
+     * example "AnalysisBenchmark.answerQuestion3"
+     * @throws RunnerException If the benchmarks cannot be run
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "datasciencewithairlines\\..*Benchmark")
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
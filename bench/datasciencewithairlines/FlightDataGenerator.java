@@ -0,0 +1,220 @@
+package datasciencewithairlines;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Class that is used to generate synthetic databases in the layout of the
+ * BTS on-time performance files. The data is random, but it is reproducible
+ * for the same seed, so the benchmarks always analyze the same rows
+ */
+public class FlightDataGenerator {
+
+    static final String HEADER = "DAY_OF_MONTH,DAY_OF_WEEK,FL_DATE,OP_UNIQUE_CARRIER,TAIL_NUM,"
+            + "ORIGIN_AIRPORT_ID,ORIGIN,ORIGIN_STATE_NM,DEST_AIRPORT_ID,DEST,DEST_STATE_NM,"
+            + "DEP_TIME,DEP_DELAY,WHEELS_OFF,WHEELS_ON,ARR_TIME,ARR_DELAY,CANCELLED,"
+            + "CANCELLATION_CODE,DIVERTED,AIR_TIME,DISTANCE";
+
+    private static final String[] STATES = {"Alabama", "Alaska", "Arizona", "California",
+        "Colorado", "Florida", "Georgia", "Hawaii", "Illinois", "Massachusetts", "Michigan",
+        "Minnesota", "Nevada", "New York", "North Carolina", "Ohio", "Oregon", "Pennsylvania",
+        "Tennessee", "Texas", "Utah", "Virginia", "Washington", "Wisconsin"};
+    private static final String CANCELLATION_CODES = "ABCD";
+
+    private int rows = 100000;
+    private int carriers = 14;
+    private int airports = 300;
+    private int tailNums = 5000;
+    private double cancellationRate = 0.02;
+    private double diversionRate = 0.003;
+    private long seed = 42;
+
+    /**
+     * Method writes the database with the header line into the file
+     *
+     * @param fileName The file to be created or overwritten
+     * @throws IOException If the file cannot be written
+     */
+    public void generate(File fileName) throws IOException {
+        try (Writer writer = new BufferedWriter(new FileWriter(fileName), 1 << 16)) {
+            writer.write(HEADER);
+            writer.write('\n');
+            Random random = new Random(seed);
+            StringBuilder line = new StringBuilder(160);
+            for (int i = 0; i < rows; i++) {
+                line.setLength(0);
+                appendFlight(line, random);
+                line.append('\n');
+                writer.append(line);
+            }
+        }
+    }
+
+    /**
+     * Method generates the lines of the database without the header
+     *
+     * @return The lines of the database
+     */
+    public String[] generateLines() {
+        Random random = new Random(seed);
+        String[] lines = new String[rows];
+        StringBuilder line = new StringBuilder(160);
+        for (int i = 0; i < rows; i++) {
+            line.setLength(0);
+            appendFlight(line, random);
+            lines[i] = line.toString();
+        }
+        return lines;
+    }
+
+    /**
+     * Method appends one random flight to the line. Cancelled flights have no
+     * times and delays, as in the real files
+     *
+     * @param line The line of the database
+     * @param random The source of the random values
+     */
+    private void appendFlight(StringBuilder line, Random random) {
+        int dayofMonth = 1 + random.nextInt(31);
+        int carrier = random.nextInt(carriers);
+        int origin = random.nextInt(airports);
+        int dest = (origin + 1 + random.nextInt(Math.max(1, airports - 1))) % airports;
+        boolean cancelled = random.nextDouble() < cancellationRate;
+        boolean diverted = !cancelled && random.nextDouble() < diversionRate;
+
+        line.append(dayofMonth).append(',');
+        line.append(1 + (dayofMonth + 1) % 7).append(',');
+        line.append("01-");
+        appendTwoDigits(line, dayofMonth);
+        line.append("-20,");
+        appendCarrier(line, carrier);
+        line.append(",N").append(100 + random.nextInt(tailNums));
+        appendCarrier(line, carrier);
+        line.append(',').append(10000 + origin).append(',');
+        appendAirport(line, origin);
+        line.append(',').append(STATES[origin % STATES.length]);
+        line.append(',').append(10000 + dest).append(',');
+        appendAirport(line, dest);
+        line.append(',').append(STATES[dest % STATES.length]).append(',');
+        if (cancelled) {
+            line.append(",,,,,,1,").append(CANCELLATION_CODES.charAt(random.nextInt(4)));
+            line.append(",0,,").append(100 + random.nextInt(2500));
+            return;
+        }
+        int depDelay = random.nextInt(10) < 7 ? -random.nextInt(15) : random.nextInt(180);
+        int depTime = 500 + random.nextInt(1080);
+        int airTime = 30 + random.nextInt(300);
+        int arrDelay = depDelay + random.nextInt(31) - 15;
+        line.append(clock(depTime)).append(',');
+        line.append(depDelay).append(',');
+        line.append(clock(depTime + 10)).append(',');
+        if (diverted) {
+            line.append(",,,0,,1,,");
+        } else {
+            line.append(clock(depTime + 10 + airTime)).append(',');
+            line.append(clock(depTime + 20 + airTime)).append(',');
+            line.append(arrDelay).append(",0,,0,");
+            line.append(airTime).append(',');
+        }
+        line.append(airTime * 8);
+    }
+
+    private static void appendTwoDigits(StringBuilder line, int value) {
+        line.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private static void appendCarrier(StringBuilder line, int carrier) {
+        line.append((char) ('A' + carrier / 26 % 26)).append((char) ('A' + carrier % 26));
+    }
+
+    private static void appendAirport(StringBuilder line, int airport) {
+        line.append((char) ('A' + airport / 676 % 26)).append((char) ('A' + airport / 26 % 26))
+                .append((char) ('A' + airport % 26));
+    }
+
+    // the minutes of the day in the hhmm layout of the time fields
+    private static int clock(int minutes) {
+        return minutes / 60 % 24 * 100 + minutes % 60;
+    }
+
+    /**
+     * Method generates a database from the command line
+     *
+     * @param args The file, the number of rows and optionally the number of
+     * carriers, airports, the cancellation rate and the diversion rate
+     * @throws IOException If the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: FlightDataGenerator <file> <rows> "
+                    + "[carriers] [airports] [cancellation rate] [diversion rate]");
+            return;
+        }
+        Builder builder = new Builder().withRows(Integer.parseInt(args[1]));
+        if (args.length > 2) {
+            builder.withCarriers(Integer.parseInt(args[2]));
+        }
+        if (args.length > 3) {
+            builder.withAirports(Integer.parseInt(args[3]));
+        }
+        if (args.length > 4) {
+            builder.withCancellationRate(Double.parseDouble(args[4]));
+        }
+        if (args.length > 5) {
+            builder.withDiversionRate(Double.parseDouble(args[5]));
+        }
+        builder.build().generate(new File(args[0]));
+    }
+
+    public static class Builder {
+
+        private FlightDataGenerator newGenerator;
+
+        public Builder() {
+            newGenerator = new FlightDataGenerator();
+        }
+
+        public Builder withRows(int rows) {
+            newGenerator.rows = rows;
+            return this;
+        }
+
+        public Builder withCarriers(int carriers) {
+            newGenerator.carriers = carriers;
+            return this;
+        }
+
+        public Builder withAirports(int airports) {
+            newGenerator.airports = airports;
+            return this;
+        }
+
+        public Builder withTailNums(int tailNums) {
+            newGenerator.tailNums = tailNums;
+            return this;
+        }
+
+        public Builder withCancellationRate(double cancellationRate) {
+            newGenerator.cancellationRate = cancellationRate;
+            return this;
+        }
+
+        public Builder withDiversionRate(double diversionRate) {
+            newGenerator.diversionRate = diversionRate;
+            return this;
+        }
+
+        public Builder withSeed(long seed) {
+            newGenerator.seed = seed;
+            return this;
+        }
+
+        public FlightDataGenerator build() {
+            return newGenerator;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package datasciencewithairlines;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Class that is used to measure the parsing of the lines of the database with
+ * the Verifier checks, both for the lines split into string arrays and for the
+ * lines read by the tokenizer. One operation parses all generated lines
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class VerifierBenchmark {
+
+    @Param({"100000"})
+    private int rows;
+
+    @Param({"14"})
+    private int carriers;
+
+    @Param({"300"})
+    private int airports;
+
+    private String[] lines;
+    private byte[] database;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        lines = new FlightDataGenerator.Builder()
+                .withRows(rows)
+                .withCarriers(carriers)
+                .withAirports(airports)
+                .build()
+                .generateLines();
+        database = (String.join("\n", lines) + "\n").getBytes(Charset.defaultCharset());
+    }
+
+    /**
+     * Method parses the lines split by String.split(",") into flights
+     *
+     * @return The last parsed flight
+     */
+    @Benchmark
+    public Flight splitLines() {
+        Flight flight = null;
+        for (String str : lines) {
+            String[] line = str.split(",");
+            flight = new Flight.Builder()
+                    .withDayofMonth(Verifier.checkDayOfMonth(Verifier.checkForInt(0, line, "others")))
+                    .withDayOfWeek(Verifier.checkDayOfWeek(Verifier.checkForInt(1, line, "others")))
+                    .withFlightDate(Verifier.checkForDate(2, line))
+                    .withUniqueCarrier(Verifier.checkForString(3, line))
+                    .withTailNum(Verifier.checkForString(4, line))
+                    .withOriginAirportID(Verifier.checkForString(5, line))
+                    .withOrigin(Verifier.checkForString(6, line))
+                    .withOriginStateName(Verifier.checkForString(7, line))
+                    .withDestAirportID(Verifier.checkForString(8, line))
+                    .withDest(Verifier.checkForString(9, line))
+                    .withDestStateName(Verifier.checkForString(10, line))
+                    .withDepTime(Verifier.checkTime(Verifier.checkForInt(11, line, "others")))
+                    .withDepDelay(Verifier.checkForInt(12, line, "delay"))
+                    .withWheelsOff(Verifier.checkTime(Verifier.checkForInt(13, line, "others")))
+                    .withWheelsOn(Verifier.checkTime(Verifier.checkForInt(14, line, "others")))
+                    .withArrTime(Verifier.checkTime(Verifier.checkForInt(15, line, "others")))
+                    .withArrDelay(Verifier.checkForInt(16, line, "delay"))
+                    .withCancelled(Verifier.checkCancelled(Verifier.checkForInt(17, line, "others")))
+                    .withCancellationCode(Verifier.checkForString(18, line))
+                    .withDiverted(Verifier.checkCancelled(Verifier.checkForInt(19, line, "others")))
+                    .withAirTime(Verifier.checkForInt(20, line, "others"))
+                    .withDistance(Verifier.checkForInt(21, line, "others"))
+                    .build();
+        }
+        return flight;
+    }
+
+    /**
+     * Method parses the lines read by the tokenizer into the columnar table
+     *
+     * @return The table with all parsed flights
+     * @throws IOException Never, the lines are read from memory
+     */
+    @Benchmark
+    public FlightTable tokenizeLines() throws IOException {
+        FlightTable flights = new FlightTable();
+        try (CsvTokenizer line = new CsvTokenizer(new ByteArrayInputStream(database))) {
+            while (line.nextLine()) {
+                flights.parseRow(line);
+                flights.commitRow();
+            }
+        }
+        return flights;
+    }
+}
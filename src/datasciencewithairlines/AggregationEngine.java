@@ -0,0 +1,687 @@
+package datasciencewithairlines;
+
+import java.io.Serializable;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+
+/**
+ * Class that is used to answer all questions in a single pass over the
+ * database. Every question is registered as an accumulator, and each flight is
+ * passed to all accumulators as soon as it is loaded. Engines which have read
+ * different parts of the database can be merged in the order of the parts
+ */
+public class AggregationEngine implements FlightAccumulator {
+
+    private static final long serialVersionUID = 1L;
+
+    private List<FlightAccumulator> accumulators = new ArrayList<>();
+    private List<String> phases = new ArrayList<>();
+    private SketchSettings settings;
+    private DelayDistributions delays = new DelayDistributions();
+    private RouteAccumulator routes = new RouteAccumulator();
+    private DailyRollups dailyRollups = new DailyRollups();
+
+    /**
+     * Constructor of the engine with the accumulators of all nine questions
+     */
+    public AggregationEngine() {
+        register("answerQuestion1", new Question1Accumulator());
+        register("answerQuestion2", new Question2Accumulator());
+        register("answerQuestion3", new Question3Accumulator());
+        register("answerQuestion4to6", new AirportsAccumulator());
+        register("answerQuestion7", new Question7Accumulator());
+        register("answerQuestion8", new Question8Accumulator());
+        register("answerQuestion9", new Question9Accumulator());
+        register("delayDistributions", delays);
+        register("routes", routes);
+        register("dailyRollups", dailyRollups);
+    }
+
+    /**
+     * Constructor of the engine of the approximate analysis. Questions 3 and
+     * 4 are answered by the sketches of SketchAccumulator, which also
+     * estimates the distinct planes and routes and the quantiles of the
+     * delays; the other questions are answered exactly
+     *
+     * @param settings The error bounds of the sketches
+     */
+    public AggregationEngine(SketchSettings settings) {
+        this.settings = settings;
+        register("answerQuestion1", new Question1Accumulator());
+        register("answerQuestion2", new Question2Accumulator());
+        register("answerQuestion3and4", new SketchAccumulator(settings));
+        register("answerQuestion5and6", new AirportsAccumulator(false));
+        register("answerQuestion7", new Question7Accumulator());
+        register("answerQuestion8", new Question8Accumulator());
+        register("answerQuestion9", new Question9Accumulator());
+        register("delayDistributions", delays);
+        register("routes", routes);
+        register("dailyRollups", dailyRollups);
+    }
+
+    /**
+     * Method returns the distributions of the delays of each carrier, origin
+     * airport and day of the week
+     *
+     * @return The accumulator of the delays
+     */
+    public DelayDistributions getDelays() {
+        return delays;
+    }
+
+    /**
+     * Method returns the routes of the flights, which are turned into the
+     * graph of the routes by toGraph
+     *
+     * @return The accumulator of the routes
+     */
+    public RouteAccumulator getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Method returns the rollups of the flights of each day
+     *
+     * @return The accumulator of the days
+     */
+    public DailyRollups getDailyRollups() {
+        return dailyRollups;
+    }
+
+    /**
+     * Method returns the error bounds of the approximate analysis
+     *
+     * @return The settings of the sketches or null if the engine is exact
+     */
+    public SketchSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Method adds an accumulator to the engine
+     *
+     * @param accumulator The accumulator of a question
+     */
+    public void register(FlightAccumulator accumulator) {
+        register(accumulator.getClass().getSimpleName(), accumulator);
+    }
+
+    /**
+     * Method adds an accumulator to the engine
+     *
+     * @param phase The name under which the time of the answer is reported
+     * @param accumulator The accumulator of a question
+     */
+    public void register(String phase, FlightAccumulator accumulator) {
+        phases.add(phase);
+        accumulators.add(accumulator);
+    }
+
+    /**
+     * Method passes the completed flight to all accumulators
+     *
+     * @param flights The table with the flight
+     * @param row The row of the completed (or diverted) flight
+     */
+    @Override
+    public void acceptCompleted(FlightTable flights, int row) {
+        for (int i = 0; i < accumulators.size(); i++) {
+            accumulators.get(i).acceptCompleted(flights, row);
+        }
+    }
+
+    /**
+     * Method passes the cancelled flight to all accumulators
+     *
+     * @param flights The table with the flight
+     * @param row The row of the cancelled flight
+     */
+    @Override
+    public void acceptCancelled(FlightTable flights, int row) {
+        for (int i = 0; i < accumulators.size(); i++) {
+            accumulators.get(i).acceptCancelled(flights, row);
+        }
+    }
+
+    /**
+     * Method adds the data collected by the other engine, which has read the
+     * next part of the database
+     *
+     * @param other The engine with the same accumulators
+     */
+    @Override
+    public void merge(FlightAccumulator other) {
+        AggregationEngine next = (AggregationEngine) other;
+        if (!Objects.equals(settings, next.settings)) {
+            throw new IllegalArgumentException("The exact and approximate results cannot be merged");
+        }
+        for (int i = 0; i < accumulators.size(); i++) {
+            accumulators.get(i).merge(next.accumulators.get(i));
+        }
+    }
+
+    /**
+     * Method writes the answers of all accumulators
+     *
+     * @param formattedOutput The answers of the current analysis
+     */
+    @Override
+    public void answer(FormattedOutput formattedOutput) {
+        accumulators.forEach(accumulator -> accumulator.answer(formattedOutput));
+    }
+
+    /**
+     * Method writes the answers of all accumulators and adds the time of each
+     * answer and the metrics of the accumulators to the metrics of the
+     * analysis
+     *
+     * @param formattedOutput The answers of the current analysis
+     * @param metrics The metrics of the current analysis
+     */
+    public void answer(FormattedOutput formattedOutput, RunMetrics metrics) {
+        for (int i = 0; i < accumulators.size(); i++) {
+            FlightAccumulator accumulator = accumulators.get(i);
+            metrics.time(phases.get(i), () -> accumulator.answer(formattedOutput));
+        }
+        report(metrics);
+    }
+
+    @Override
+    public void report(RunMetrics metrics) {
+        accumulators.forEach(accumulator -> accumulator.report(metrics));
+    }
+
+    /**
+     * Method adds the top-K lists of all accumulators to the rankings
+     *
+     * @param rankings The rankings of the current analysis
+     */
+    @Override
+    public void rank(Rankings rankings) {
+        accumulators.forEach(accumulator -> accumulator.rank(rankings));
+    }
+
+    /**
+     * Method copies the counters into a HashMap one by one in the order of the
+     * first encounter of the keys with computeIfAbsent, as
+     * Collectors.groupingBy does. This gives the same iteration order (and so
+     * the same choice between equal values) as the groupingBy maps
+     *
+     * @param counters The counters of the accumulator
+     * @return The HashMap with the same counters
+     */
+    static Map<String, Long> toHashMap(Map<String, Long> counters) {
+        Map<String, Long> map = new HashMap<>();
+        counters.forEach((key, value) -> map.computeIfAbsent(key, k -> value));
+        return map;
+    }
+
+    /**
+     * Accumulator of the share of cancelled flights for each carrier
+     */
+    static class Question1Accumulator implements FlightAccumulator {
+
+        private static final long serialVersionUID = 1L;
+
+        private long cancelledCount;
+        private CodeCounters ucCompletedFlights = new CodeCounters();
+        private CodeCounters ucCancelledFlights = new CodeCounters();
+
+        @Override
+        public void acceptCompleted(FlightTable flights, int row) {
+            if (flights.getDiverted(row) != 1
+                    && flights.getUniqueCarrierCode(row) != StringDictionary.NOT_FILLED) {
+                ucCompletedFlights.add(flights.getCarriers(), flights.getUniqueCarrierCode(row), 1);
+            }
+        }
+
+        @Override
+        public void acceptCancelled(FlightTable flights, int row) {
+            cancelledCount++;
+            if (flights.getUniqueCarrierCode(row) != StringDictionary.NOT_FILLED) {
+                ucCancelledFlights.add(flights.getCarriers(), flights.getUniqueCarrierCode(row), 1);
+            }
+        }
+
+        @Override
+        public void merge(FlightAccumulator other) {
+            Question1Accumulator next = (Question1Accumulator) other;
+            cancelledCount += next.cancelledCount;
+            ucCompletedFlights.merge(next.ucCompletedFlights);
+            ucCancelledFlights.merge(next.ucCancelledFlights);
+        }
+
+        @Override
+        public void answer(FormattedOutput formattedOutput) {
+            AnalysisCenter.reportQuestion1(formattedOutput, cancelledCount,
+                    ucCompletedFlights.toHashMap(), ucCancelledFlights.toHashMap());
+        }
+
+        @Override
+        public void rank(Rankings rankings) {
+            TopK<Entry<String, Double>> top = new TopK<>(rankings.getCarriers(), TopK.greatestFirst());
+            for (int i = 0; i < ucCancelledFlights.size(); i++) {
+                String carrier = ucCancelledFlights.getKey(i);
+                long cancelled = ucCancelledFlights.getCount(i);
+                top.offer(new SimpleEntry<>(carrier,
+                        (double) cancelled / (ucCompletedFlights.get(carrier) + cancelled) * 100));
+            }
+            for (int i = 0; i < ucCompletedFlights.size(); i++) {
+                if (!ucCancelledFlights.contains(ucCompletedFlights.getKey(i))) {
+                    top.offer(new SimpleEntry<>(ucCompletedFlights.getKey(i), 0.0));
+                }
+            }
+            rankings.addRanking("Carriers by share of cancelled flights", top.toList(), "%");
+        }
+    }
+
+    /**
+     * Accumulator of the number of cancelled flights for each cancellation code
+     */
+    static class Question2Accumulator implements FlightAccumulator {
+
+        private static final long serialVersionUID = 1L;
+
+        private long cancelledCount;
+        private CodeCounters cancellationCodes = new CodeCounters();
+
+        @Override
+        public void acceptCancelled(FlightTable flights, int row) {
+            cancelledCount++;
+            if (flights.getCancellationCodeCode(row) != StringDictionary.NOT_FILLED) {
+                cancellationCodes.add(flights.getCancellationCodes(), flights.getCancellationCodeCode(row), 1);
+            }
+        }
+
+        @Override
+        public void merge(FlightAccumulator other) {
+            Question2Accumulator next = (Question2Accumulator) other;
+            cancelledCount += next.cancelledCount;
+            cancellationCodes.merge(next.cancellationCodes);
+        }
+
+        @Override
+        public void answer(FormattedOutput formattedOutput) {
+            String reason = cancellationCodes.uniqueMax();
+            if (cancelledCount > 0 && reason != null) {
+                formattedOutput.addAnswer(2, reason);
+            } else {
+                AnalysisCenter.reportQuestion2(formattedOutput, cancelledCount, cancellationCodes.toHashMap());
+            }
+        }
+
+        @Override
+        public void rank(Rankings rankings) {
+            rankings.addRanking("Reasons of cancellation",
+                    cancellationCodes.topK(rankings.getOthers()), "");
+        }
+    }
+
+    /**
+     * Accumulator of the total distance flown by each plane
+     */
+    static class Question3Accumulator implements FlightAccumulator {
+
+        private static final long serialVersionUID = 1L;
+
+        private long completedCount;
+        private CodeCounters sumDistancesOfTail = new CodeCounters();
+
+        @Override
+        public void acceptCompleted(FlightTable flights, int row) {
+            completedCount++;
+            if (flights.getTailNumCode(row) != StringDictionary.NOT_FILLED
+                    && flights.getDistance(row) > 0) {
+                sumDistancesOfTail.add(flights.getTailNums(), flights.getTailNumCode(row), flights.getDistance(row));
+            }
+        }
+
+        @Override
+        public void merge(FlightAccumulator other) {
+            Question3Accumulator next = (Question3Accumulator) other;
+            completedCount += next.completedCount;
+            sumDistancesOfTail.merge(next.sumDistancesOfTail);
+        }
+
+        @Override
+        public void answer(FormattedOutput formattedOutput) {
+            String tailNum = sumDistancesOfTail.uniqueMax();
+            if (completedCount > 0 && tailNum != null) {
+                formattedOutput.addAnswer(3, tailNum);
+            } else {
+                AnalysisCenter.reportQuestion3(formattedOutput, completedCount, sumDistancesOfTail.toHashMap());
+            }
+        }
+
+        @Override
+        public void rank(Rankings rankings) {
+            rankings.addRanking("Planes by miles flown",
+                    sumDistancesOfTail.topK(rankings.getTailNums()), "");
+        }
+    }
+
+    /**
+     * Accumulator of the number of departing and arriving flights for each
+     * airport, which answers questions 4, 5 and 6
+     */
+    static class AirportsAccumulator implements FlightAccumulator {
+
+        private static final long serialVersionUID = 1L;
+
+        private long completedCount;
+        private boolean answersQuestion4 = true;
+        private CodeCounters arrFlightsInAirport = new CodeCounters();
+        private CodeCounters depFlightsInAirport = new CodeCounters();
+
+        AirportsAccumulator() {
+        }
+
+        /**
+         * Constructor of the accumulator
+         *
+         * @param answersQuestion4 false if question 4 is answered by another
+         * accumulator
+         */
+        AirportsAccumulator(boolean answersQuestion4) {
+            this.answersQuestion4 = answersQuestion4;
+        }
+
+        @Override
+        public void acceptCompleted(FlightTable flights, int row) {
+            completedCount++;
+            if (flights.getOriginAirportIDCode(row) != StringDictionary.NOT_FILLED) {
+                arrFlightsInAirport.add(flights.getAirportIDs(), flights.getOriginAirportIDCode(row), 1);
+            }
+            if (flights.getDestAirportIDCode(row) != StringDictionary.NOT_FILLED) {
+                depFlightsInAirport.add(flights.getAirportIDs(), flights.getDestAirportIDCode(row), 1);
+            }
+        }
+
+        @Override
+        public void merge(FlightAccumulator other) {
+            AirportsAccumulator next = (AirportsAccumulator) other;
+            completedCount += next.completedCount;
+            arrFlightsInAirport.merge(next.arrFlightsInAirport);
+            depFlightsInAirport.merge(next.depFlightsInAirport);
+        }
+
+        @Override
+        public void answer(FormattedOutput formattedOutput) {
+            if (answersQuestion4) {
+                answerQuestion4(formattedOutput);
+            }
+            answerQuestion5and6(formattedOutput);
+        }
+
+        @Override
+        public void rank(Rankings rankings) {
+            TopK<Entry<String, Long>> busiest = new TopK<>(rankings.getAirports(), TopK.greatestFirst());
+            TopK<Entry<String, Long>> sources = new TopK<>(rankings.getAirports(), TopK.greatestFirst());
+            TopK<Entry<String, Long>> sinks = new TopK<>(rankings.getAirports(), TopK.smallestFirst());
+            for (int i = 0; i < arrFlightsInAirport.size(); i++) {
+                String airport = arrFlightsInAirport.getKey(i);
+                long arr = arrFlightsInAirport.getCount(i);
+                long dep = depFlightsInAirport.get(airport);
+                busiest.offer(new SimpleEntry<>(airport, arr + dep));
+                sources.offer(new SimpleEntry<>(airport, arr - dep));
+                sinks.offer(new SimpleEntry<>(airport, arr - dep));
+            }
+            for (int i = 0; i < depFlightsInAirport.size(); i++) {
+                String airport = depFlightsInAirport.getKey(i);
+                long dep = depFlightsInAirport.getCount(i);
+                if (!arrFlightsInAirport.contains(airport)) {
+                    busiest.offer(new SimpleEntry<>(airport, dep));
+                    sources.offer(new SimpleEntry<>(airport, -dep));
+                    sinks.offer(new SimpleEntry<>(airport, -dep));
+                }
+            }
+            if (answersQuestion4) {
+                rankings.addRanking("Busiest airports", busiest.toList(), "");
+            }
+            rankings.addRanking("Largest sources of flights", sources.toList(), "");
+            rankings.addRanking("Largest sinks of flights", sinks.toList(), "");
+        }
+
+        /**
+         * Method writes the answer to question 4. An airport with more flights
+         * than any other is the answer in any order of the keys, so the
+         * HashMaps deciding between equal counters are built only for a tie
+         *
+         * @param formattedOutput The answers of the current analysis
+         */
+        void answerQuestion4(FormattedOutput formattedOutput) {
+            ObjectLongMap<String> sums = combine(1);
+            int busiest = sums.indexOfUniqueMax();
+            if (completedCount > 0 && busiest >= 0) {
+                formattedOutput.addAnswer(4, sums.keyAt(busiest));
+            } else {
+                AnalysisCenter.reportQuestion4(formattedOutput, completedCount,
+                        arrFlightsInAirport.toHashMap(), depFlightsInAirport.toHashMap());
+            }
+        }
+
+        /**
+         * Method writes the answers to questions 5 and 6
+         *
+         * @param formattedOutput The answers of the current analysis
+         */
+        void answerQuestion5and6(FormattedOutput formattedOutput) {
+            ObjectLongMap<String> differences = combine(-1);
+            int source = differences.indexOfUniqueMax();
+            int sink = differences.indexOfUniqueMin();
+            if (completedCount > 0 && source >= 0 && sink >= 0) {
+                formattedOutput.addAnswer(5, differences.keyAt(source));
+                formattedOutput.addAnswer(6, differences.keyAt(sink));
+            } else {
+                AnalysisCenter.reportQuestion5and6(formattedOutput, completedCount,
+                        arrFlightsInAirport.toHashMap(), depFlightsInAirport.toHashMap());
+            }
+        }
+
+        /**
+         * Method adds the flights from each airport and the flights to it
+         * multiplied by the sign
+         *
+         * @param sign 1 for the sums of the flights, -1 for the differences
+         * @return The counters of the airports
+         */
+        private ObjectLongMap<String> combine(int sign) {
+            ObjectLongMap<String> combined = new ObjectLongMap<>();
+            for (int i = 0; i < arrFlightsInAirport.size(); i++) {
+                combined.addTo(arrFlightsInAirport.getKey(i), arrFlightsInAirport.getCount(i));
+            }
+            for (int i = 0; i < depFlightsInAirport.size(); i++) {
+                combined.addTo(depFlightsInAirport.getKey(i), sign * depFlightsInAirport.getCount(i));
+            }
+            return combined;
+        }
+    }
+
+    /**
+     * Accumulator of the number of AA flights delayed by 60 minutes or more
+     */
+    static class Question7Accumulator implements FlightAccumulator {
+
+        private static final long serialVersionUID = 1L;
+
+        private long completedCount;
+        private int sumDelays;
+
+        @Override
+        public void acceptCompleted(FlightTable flights, int row) {
+            completedCount++;
+            if (flights.getDiverted(row) != 1 && flights.getUniqueCarrier(row).equalsIgnoreCase("AA")) {
+                int depDelay = flights.getDepDelay(row);
+                int arrDelay = flights.getArrDelay(row);
+                if (depDelay != 1000000 && depDelay >= 60) {
+                    sumDelays++;
+                } else if (arrDelay != 1000000 && depDelay < 60 && arrDelay >= 60) {
+                    sumDelays++;
+                }
+            }
+        }
+
+        @Override
+        public void merge(FlightAccumulator other) {
+            Question7Accumulator next = (Question7Accumulator) other;
+            completedCount += next.completedCount;
+            sumDelays += next.sumDelays;
+        }
+
+        @Override
+        public void answer(FormattedOutput formattedOutput) {
+            AnalysisCenter.reportQuestion7(formattedOutput, completedCount, sumDelays);
+        }
+    }
+
+    /**
+     * Accumulator of the flight with the maximum departure delay that arrived
+     * on or before the scheduled time
+     */
+    static class Question8Accumulator implements FlightAccumulator {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The number of flights in the ranking of the caught up delays
+         */
+        static final int RANKED_FLIGHTS = 10;
+
+        private long completedCount;
+        private Flight maxLiquidatedDelay;
+        private long liquidatedCount;
+        private TopK<RankedFlight> rankedFlights = new TopK<>(RANKED_FLIGHTS, new ByCaughtUpDelay());
+
+        @Override
+        public void acceptCompleted(FlightTable flights, int row) {
+            completedCount++;
+            if (AnalysisCenter.isLiquidatedDelay(flights, row)) {
+                int depDelay = flights.getDepDelay(row);
+                if (maxLiquidatedDelay == null || depDelay > maxLiquidatedDelay.getDepDelay()) {
+                    maxLiquidatedDelay = flights.getFlight(row);
+                }
+                // the flight is built only if it gets into the ranking
+                if (!rankedFlights.isFull() || depDelay > rankedFlights.worst().flight.getDepDelay()) {
+                    rankedFlights.offer(new RankedFlight(flights.getFlight(row), liquidatedCount));
+                }
+                liquidatedCount++;
+            }
+        }
+
+        @Override
+        public void merge(FlightAccumulator other) {
+            Question8Accumulator next = (Question8Accumulator) other;
+            completedCount += next.completedCount;
+            if (next.maxLiquidatedDelay != null
+                    && (maxLiquidatedDelay == null
+                    || next.maxLiquidatedDelay.getDepDelay() > maxLiquidatedDelay.getDepDelay())) {
+                maxLiquidatedDelay = next.maxLiquidatedDelay;
+            }
+            // the flights of the next part come after all flights of this part
+            for (RankedFlight ranked : next.rankedFlights.toList()) {
+                rankedFlights.offer(new RankedFlight(ranked.flight, liquidatedCount + ranked.sequence));
+            }
+            liquidatedCount += next.liquidatedCount;
+        }
+
+        @Override
+        public void answer(FormattedOutput formattedOutput) {
+            AnalysisCenter.reportQuestion8(formattedOutput, completedCount, maxLiquidatedDelay);
+        }
+
+        @Override
+        public void rank(Rankings rankings) {
+            List<String> lines = new ArrayList<>();
+            for (RankedFlight ranked : rankedFlights.toList()) {
+                if (lines.size() < rankings.getOthers()) {
+                    lines.add(ranked.flight.getDayofMonth() + "," + ranked.flight.getDepDelay() + ","
+                            + ranked.flight.getTailNum());
+                }
+            }
+            rankings.addRanking("Largest caught up delays", lines);
+        }
+    }
+
+    /**
+     * Class that is used to hold a flight of the ranking with the number of
+     * the candidates before it, which decides between the equal delays
+     */
+    static class RankedFlight implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private Flight flight;
+        private long sequence;
+
+        RankedFlight(Flight flight, long sequence) {
+            this.flight = flight;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Order of the ranked flights: the greatest delay first, and of the equal
+     * delays the earlier flight first, as in question 8
+     */
+    static class ByCaughtUpDelay implements Comparator<RankedFlight>, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int compare(RankedFlight first, RankedFlight second) {
+            int byDelay = Integer.compare(second.flight.getDepDelay(), first.flight.getDepDelay());
+            return byDelay != 0 ? byDelay : Long.compare(first.sequence, second.sequence);
+        }
+    }
+
+    /**
+     * Accumulator of the number of flights cancelled due to weather conditions
+     * in each origin state
+     */
+    static class Question9Accumulator implements FlightAccumulator {
+
+        private static final long serialVersionUID = 1L;
+
+        private long cancelledCount;
+        private CodeCounters osWeatherCancellationCode = new CodeCounters();
+
+        @Override
+        public void acceptCancelled(FlightTable flights, int row) {
+            cancelledCount++;
+            if (flights.getOriginStateNameCode(row) != StringDictionary.NOT_FILLED
+                    && flights.getCancellationCode(row).equalsIgnoreCase("B")) {
+                osWeatherCancellationCode.add(flights.getStates(), flights.getOriginStateNameCode(row), 1);
+            }
+        }
+
+        @Override
+        public void merge(FlightAccumulator other) {
+            Question9Accumulator next = (Question9Accumulator) other;
+            cancelledCount += next.cancelledCount;
+            osWeatherCancellationCode.merge(next.osWeatherCancellationCode);
+        }
+
+        @Override
+        public void answer(FormattedOutput formattedOutput) {
+            String state = osWeatherCancellationCode.uniqueMax();
+            if (cancelledCount > 0 && state != null) {
+                formattedOutput.addAnswer(9, state);
+            } else {
+                AnalysisCenter.reportQuestion9(formattedOutput, cancelledCount,
+                        osWeatherCancellationCode.toHashMap());
+            }
+        }
+
+        @Override
+        public void rank(Rankings rankings) {
+            rankings.addRanking("States by cancellations due to weather",
+                    osWeatherCancellationCode.topK(rankings.getOthers()), "");
+        }
+    }
+}
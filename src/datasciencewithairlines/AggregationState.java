@@ -0,0 +1,130 @@
+package datasciencewithairlines;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Class that is used to save the state of the aggregation engine together
+ * with the number of bytes of the database it has consumed. A later analysis
+ * of the same growing file continues from this offset, so only the appended
+ * rows are read. The checksum of the bytes just before the offset shows
+ * whether the file has only been appended to since the state was saved. The
+ * actions of the rules of the validation are saved too, as the engine has
+ * read only the rows which they have accepted
+ */
+public class AggregationState {
+
+    private static final int MAGIC = 0x44535753;
+    private static final int VERSION = 10;
+    private static final long TAIL_SIZE = 1 << 16;
+
+    private long offset;
+    private long tailChecksum;
+    private AggregationEngine aggregationEngine;
+    private int validation;
+
+    /**
+     * Constructor of the state
+     *
+     * @param offset The number of bytes of the database consumed by the engine
+     * @param tailChecksum The checksum of the bytes before the offset
+     * @param aggregationEngine The engine which has read these bytes
+     * @param validation The actions of the rules of the validation, see
+     * ValidationSettings.getRulesKey
+     */
+    public AggregationState(long offset, long tailChecksum, AggregationEngine aggregationEngine,
+            int validation) {
+        this.offset = offset;
+        this.tailChecksum = tailChecksum;
+        this.aggregationEngine = aggregationEngine;
+        this.validation = validation;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public AggregationEngine getAggregationEngine() {
+        return aggregationEngine;
+    }
+
+    public int getValidation() {
+        return validation;
+    }
+
+    /**
+     * Method returns the state file which belongs to the database file
+     *
+     * @param source The file of the database
+     * @return The state file in the same folder
+     */
+    public static File stateOf(File source) {
+        return new File(source.getPath() + ".state");
+    }
+
+    /**
+     * Method calculates the checksum of the last bytes before the offset
+     *
+     * @param source The file of the database
+     * @param offset The number of consumed bytes
+     * @return The CRC32 value of up to 64 KB before the offset
+     * @throws IOException If the file cannot be read
+     */
+    public static long tailChecksum(File source, long offset) throws IOException {
+        return FlightSnapshot.checksum(source, Math.max(0, offset - TAIL_SIZE), offset);
+    }
+
+    /**
+     * Method writes the state to the state file
+     *
+     * @param state The file to be created or overwritten
+     * @throws IOException If the state cannot be written
+     */
+    public void write(File state) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(state)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(offset);
+            out.writeLong(tailChecksum);
+            out.writeInt(validation);
+            out.writeObject(aggregationEngine);
+        }
+    }
+
+    /**
+     * Method reads the state of the database from the state file
+     *
+     * @param source The file of the database
+     * @param state The state file
+     * @return The state or null if there is no state or the file has been
+     * changed other than by appending rows
+     * @throws IOException If the state cannot be read
+     */
+    public static AggregationState read(File source, File state) throws IOException {
+        if (!state.isFile()) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(state)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            long offset = in.readLong();
+            long tailChecksum = in.readLong();
+            int validation = in.readInt();
+            if (offset > source.length() || tailChecksum(source, offset) != tailChecksum) {
+                return null;
+            }
+            return new AggregationState(offset, tailChecksum, (AggregationEngine) in.readObject(), validation);
+        } catch (ClassNotFoundException | ClassCastException ex) {
+            throw new IOException("The state file is damaged", ex);
+        }
+    }
+}
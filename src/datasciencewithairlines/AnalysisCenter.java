@@ -1,7 +1,6 @@
 package datasciencewithairlines;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -10,113 +9,716 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Scanner;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Class that is used to load and parse the database
  */
 public class AnalysisCenter {
 
-    private List<Flight> completedFlights;
-    private List<Flight> cancelledFlights;
-    private Map<String, Long> arrFlightsInAirport;
-    private Map<String, Long> depFlightsInAirport;
+    private static final int PROGRESS_ROWS = 4096;
+
+    private FlightTable flights;
+    private AggregationEngine.AirportsAccumulator airportsMaps;
+    private AggregationEngine aggregationEngine;
     private FormattedOutput formattedOutput = new FormattedOutput();
+    private Rankings rankings = new Rankings();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long chunkSize = 1 << 20;
+    private boolean memoryMapped;
+    private boolean snapshots;
+    private boolean incremental;
+    private boolean indexed;
+    private SketchSettings approximate;
+    private ValidationSettings validation = ValidationSettings.defaults();
+    private FlightIndex index;
+    private RunMetrics metrics = new RunMetrics();
+    private AtomicLong bytesRead = new AtomicLong();
+    private AtomicLong rowsRead = new AtomicLong();
+    private volatile boolean cancelled;
+
+    /**
+     * Method sets the number of threads which read the database
+     *
+     * @param threads The number of threads (1 for the sequential reading)
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Method selects how the database file is read: with a buffered stream or
+     * by parsing the bytes in place in the memory-mapped file
+     *
+     * @param memoryMapped true if the file is memory-mapped
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * Method enables the binary snapshots of the parsed data. The first
+     * analysis of a file saves the snapshot next to it, and the next analyses
+     * load the snapshot instead of parsing the file while the file is not
+     * changed
+     *
+     * @param snapshots true if the snapshots are used
+     */
+    public void setSnapshots(boolean snapshots) {
+        this.snapshots = snapshots;
+    }
+
+    /**
+     * Method enables the incremental analysis of a growing file. The state of
+     * the aggregation is saved next to the file together with the number of
+     * bytes read, and the next analysis reads only the rows appended since
+     * then. If the file has been changed other than by appending rows, it is
+     * analyzed from the beginning
+     *
+     * @param incremental true if the state of the analysis is kept
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * Method enables the approximate analysis: the miles of the planes and the
+     * flights of the airports are counted by fixed-size sketches instead of
+     * maps of all keys, so questions 3 and 4 are answered within the error
+     * bounds. The estimates of the distinct planes and routes and of the
+     * quantiles of the delays, the error bounds and the memory of each sketch
+     * are written to report.json
+     *
+     * @param approximate The error bounds of the sketches or null for the
+     * exact analysis
+     */
+    public void setApproximate(SketchSettings approximate) {
+        this.approximate = approximate;
+    }
+
+    /**
+     * Method sets the rules of the validation of the parsed rows and the file
+     * of the rejected rows
+     *
+     * @param validation The actions of the rules
+     */
+    public void setValidation(ValidationSettings validation) {
+        this.validation = Objects.requireNonNull(validation);
+    }
+
+    /**
+     * Method enables the indexes of the strings for the queries: the rows of
+     * each carrier, plane, airport, origin state and cancellation code are
+     * listed after loading, so selective queries read only the listed rows
+     *
+     * @param indexed true if loadFlights() builds the indexes
+     */
+    public void setIndexed(boolean indexed) {
+        this.indexed = indexed;
+    }
+
+    /**
+     * Method sets the sizes of the top-K lists written to rankings.txt
+     *
+     * @param rankings The empty rankings with the sizes of the lists
+     */
+    public void setRankings(Rankings rankings) {
+        this.rankings = rankings;
+    }
+
+    public Rankings getRankings() {
+        return rankings;
+    }
+
+    /**
+     * Method returns the metrics of the last analysis: the time of each phase,
+     * the numbers of read and rejected rows, the throughput and the peak heap
+     *
+     * @return The metrics of the analysis
+     */
+    public RunMetrics getMetrics() {
+        return metrics;
+    }
 
     /**
-     * Method controls the process of analyzing the database
+     * Method returns the number of bytes of the database read so far by the
+     * current analysis. It may be called from any thread to show the progress
+     *
+     * @return The number of bytes read
+     */
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    /**
+     * Method returns the number of rows of the database read so far by the
+     * current analysis. It may be called from any thread to show the progress
+     *
+     * @return The number of rows read
+     */
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    /**
+     * Method asks the current analysis to stop. It may be called from any
+     * thread; the reading threads stop after a few thousand rows, and
+     * analyzeFile throws CancellationException
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Method checks whether the analysis has been cancelled
+     *
+     * @return true if cancel() has been called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Method sets the minimum size of the part of the file read by one thread
+     *
+     * @param chunkSize The size of the part in bytes
+     */
+    void setChunkSize(long chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Method controls the process of analyzing the database. The file is
+     * analyzed in the streaming mode, so the flights are not kept in memory,
+     * unless the snapshots are enabled. The top-K lists of the ranking
+     * questions are written to rankings.txt, the percentiles of the delays to
+     * delays.csv, the rollups of the days to days.csv and the metrics of the
+     * analysis to report.json next to the answers
      *
      * @param dirName The absolute path to the folder into which the final file
      * with the analysis results is written
      * @param fileName The absolute name of the file received for analysis
+     * @throws IOException If the file cannot be read; no answers are written
+     * @throws CancellationException If the analysis has been cancelled; the
+     * partially loaded data is released
      */
-    public void analyzeFile(String dirName, File fileName) {
-        loadFile(fileName);
-        collectAirportsMaps();
-        answerQuestion1();
-        answerQuestion2();
-        answerQuestion3();
-        answerQuestion4();
-        answerQuestion5and6();
-        answerQuestion7();
-        answerQuestion8();
-        answerQuestion9();
+    public void analyzeFile(String dirName, File fileName) throws IOException {
+        metrics = new RunMetrics();
+        metrics.start(fileName);
+        try {
+            if (incremental) {
+                appendFile(fileName);
+            } else if (snapshots) {
+                loadWithSnapshot(fileName);
+            } else {
+                streamFile(fileName);
+            }
+        } catch (CancellationException | IOException ex) {
+            flights = null;
+            aggregationEngine = null;
+            throw ex;
+        }
+        reportDictionaries();
+        aggregationEngine.answer(formattedOutput, metrics);
+        metrics.time("rankings", () -> aggregationEngine.rank(rankings));
+        metrics.time("writeAnswers", () -> {
+            formattedOutput.writeAnswers(dirName);
+            rankings.writeRankings(dirName);
+            aggregationEngine.getDelays().writeDelays(dirName);
+            aggregationEngine.getDailyRollups().writeDays(dirName);
+        });
+        metrics.finish();
+        metrics.writeReport(dirName);
+    }
+
+    /**
+     * Method reads one shard of the dataset: the file is split into the given
+     * number of parts which begin at the beginning of a line, and only the
+     * part of the shard is read. The partial results of all shards can be
+     * merged by PartialAggregate.mergeAll and answered by answerPartials
+     *
+     * @param fileName The absolute name of the file of the dataset
+     * @param index The index of the file in the dataset
+     * @param shard The number of the shard from 0
+     * @param shards The number of shards into which the file is split
+     * @return The partial results of the shard or null if the file cannot be
+     * read
+     */
+    public PartialAggregate aggregateShard(File fileName, int index, int shard, int shards) {
+        if (shard < 0 || shard >= shards) {
+            throw new IllegalArgumentException("The shard must be from 0 to " + (shards - 1));
+        }
+        metrics = new RunMetrics();
+        metrics.start(fileName);
+        List<FileChunk> chunks;
+        try {
+            chunks = FileChunk.split(fileName, shards);
+        } catch (IOException ex) {
+            System.out.println("File upload failed.");
+            return null;
+        }
+        // a small file may have fewer lines than shards, the rest are empty
+        long from = shard < chunks.size() ? chunks.get(shard).getStart() : fileName.length();
+        long to = shard < chunks.size() ? chunks.get(shard).getEnd() : fileName.length();
+        if (!readFile(fileName, from, to, false)) {
+            return null;
+        }
+        metrics.finish();
+        return new PartialAggregate(index, from, to, aggregationEngine);
+    }
+
+    /**
+     * Method writes the answers of the merged partial results of the shards
+     *
+     * @param dirName The absolute path to the folder into which the final file
+     * with the analysis results is written
+     * @param partial The merged partial results of all shards of the dataset
+     */
+    public void answerPartials(String dirName, PartialAggregate partial) {
+        aggregationEngine = partial.getAggregationEngine();
+        aggregationEngine.answer(formattedOutput);
+        aggregationEngine.rank(rankings);
         formattedOutput.writeAnswers(dirName);
+        rankings.writeRankings(dirName);
+        aggregationEngine.getDelays().writeDelays(dirName);
+        aggregationEngine.getDailyRollups().writeDays(dirName);
+    }
+
+    /**
+     * Method loads the flights of the database into memory for queries. The
+     * snapshot of the file is used if the snapshots are enabled
+     *
+     * @param fileName The absolute name of the file received for analysis
+     * @throws IOException If the file cannot be read
+     * @throws CancellationException If the loading has been cancelled
+     */
+    public void loadFlights(File fileName) throws IOException {
+        metrics = new RunMetrics();
+        metrics.start(fileName);
+        try {
+            if (snapshots) {
+                loadWithSnapshot(fileName);
+            } else {
+                loadFile(fileName);
+            }
+        } catch (CancellationException | IOException ex) {
+            flights = null;
+            aggregationEngine = null;
+            throw ex;
+        }
+        reportDictionaries();
+        index = null;
+        if (indexed) {
+            metrics.time("buildIndex", () -> index = FlightIndex.build(flights));
+        }
+    }
+
+    /**
+     * Method evaluates the query over the loaded flights
+     *
+     * @param query The query
+     * @return The result of the query
+     * @throws IllegalStateException If the flights are not loaded
+     */
+    public QueryResult query(FlightQuery query) {
+        return query.execute(loadedFlights(), index);
+    }
+
+    /**
+     * Method answers the questions with the built-in queries over the loaded
+     * flights instead of the aggregation engine and writes the answers
+     *
+     * @param dirName The absolute path to the folder into which the final file
+     * with the analysis results is written
+     * @throws IllegalStateException If the flights are not loaded
+     */
+    public void answerQueries(String dirName) {
+        BuiltInQueries.answer(loadedFlights(), index, formattedOutput, metrics);
+        metrics.time("writeAnswers", () -> formattedOutput.writeAnswers(dirName));
+        metrics.finish();
+        metrics.writeReport(dirName);
+    }
+
+    /**
+     * Method follows each plane of the loaded flights through its legs and
+     * writes the utilization of the planes to tails.csv
+     *
+     * @param dirName The absolute path to the folder into which the file is
+     * written
+     * @return The utilization of the planes
+     * @throws IllegalStateException If the flights are not loaded
+     */
+    public TailUtilization analyzeTails(String dirName) {
+        FlightTable loaded = loadedFlights();
+        long start = System.nanoTime();
+        TailUtilization utilization = TailUtilization.build(loaded);
+        metrics.addPhase("tailUtilization", System.nanoTime() - start);
+        utilization.writeTails(dirName);
+        return utilization;
+    }
+
+    /**
+     * Method returns the rollups of each day of the analyzed or loaded file,
+     * which answer the questions about a range of dates without reading the
+     * flights again
+     *
+     * @return The rollups of the days
+     * @throws IllegalStateException If no file has been analyzed
+     */
+    public DailyRollups getDailyRollups() {
+        if (aggregationEngine == null) {
+            throw new IllegalStateException("The file is not analyzed");
+        }
+        return aggregationEngine.getDailyRollups();
+    }
+
+    private void reportDictionaries() {
+        metrics.addDictionary("carriers", flights.getCarriers());
+        metrics.addDictionary("tailNums", flights.getTailNums());
+        metrics.addDictionary("airportIDs", flights.getAirportIDs());
+        metrics.addDictionary("airports", flights.getAirports());
+        metrics.addDictionary("states", flights.getStates());
+        metrics.addDictionary("cancellationCodes", flights.getCancellationCodes());
+    }
+
+    private FlightTable loadedFlights() {
+        if (flights == null) {
+            throw new IllegalStateException("The flights are not loaded");
+        }
+        return flights;
+    }
+
+    /**
+     * Method loads the flights from the snapshot of the file if it is valid,
+     * otherwise loads the file and saves its snapshot
+     *
+     * @param fileName The absolute name of the file received for analysis
+     * @throws IOException If the file cannot be read
+     */
+    void loadWithSnapshot(File fileName) throws IOException {
+        File snapshot = FlightSnapshot.snapshotOf(fileName);
+        FlightTable restored = null;
+        long start = System.nanoTime();
+        try {
+            restored = FlightSnapshot.read(fileName, validation, snapshot);
+        } catch (IOException ex) {
+            System.out.println("Could not read the snapshot, the file is parsed again.");
+        }
+        metrics.addPhase(RunMetrics.READ_SNAPSHOT, System.nanoTime() - start);
+        if (restored != null) {
+            flights = restored;
+            metrics.addRows(flights.getCompletedCount(), flights.getCancelledCount(),
+                    flights.getRejectedCounts());
+            metrics.addViolations(flights.getViolationCounts());
+            aggregationEngine = newEngine();
+            metrics.time(RunMetrics.AGGREGATE, () -> scanFlights(aggregationEngine));
+            metrics.addBytes(fileName.length());
+            bytesRead.set(fileName.length());
+            rowsRead.set(flights.size());
+        } else {
+            loadFile(fileName);
+            start = System.nanoTime();
+            try {
+                FlightSnapshot.write(flights, validation, fileName, snapshot);
+            } catch (IOException ex) {
+                System.out.println("Could not write the snapshot.");
+            }
+            metrics.addPhase("writeSnapshot", System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Method reads the rows appended to the database since the saved state
+     * and saves the new state. Only complete lines are read, so a line which
+     * is still being written is read by the next analysis
+     *
+     * @param fileName The absolute name of the file received for analysis
+     * @throws IOException If the file cannot be read; the saved state is kept
+     */
+    void appendFile(File fileName) throws IOException {
+        File stateFile = AggregationState.stateOf(fileName);
+        AggregationState state = null;
+        long start = System.nanoTime();
+        try {
+            state = AggregationState.read(fileName, stateFile);
+        } catch (IOException ex) {
+            System.out.println("Could not read the saved state, the file is analyzed from the beginning.");
+        }
+        metrics.addPhase("readState", System.nanoTime() - start);
+        if (state != null && !Objects.equals(state.getAggregationEngine().getSettings(), approximate)) {
+            System.out.println("The saved state belongs to another mode of analysis, "
+                    + "the file is analyzed from the beginning.");
+            state = null;
+        }
+        if (state != null && state.getValidation() != validation.getRulesKey()) {
+            System.out.println("The saved state was made with other rules of the validation, "
+                    + "the file is analyzed from the beginning.");
+            state = null;
+        }
+        long offset = state != null ? state.getOffset() : 0;
+        long end = FileChunk.lastLineEnd(fileName, offset);
+        if (!readFile(fileName, offset, end, false)) {
+            throw new IOException("File upload failed: " + fileName);
+        }
+        if (state != null) {
+            state.getAggregationEngine().merge(aggregationEngine);
+            aggregationEngine = state.getAggregationEngine();
+        }
+        start = System.nanoTime();
+        try {
+            new AggregationState(end, AggregationState.tailChecksum(fileName, end), aggregationEngine,
+                    validation.getRulesKey()).write(stateFile);
+        } catch (IOException ex) {
+            System.out.println("Could not write the state of the analysis.");
+        }
+        metrics.addPhase("writeState", System.nanoTime() - start);
+    }
+
+    /**
+     * Method loads the database into the columnar table of flights. While
+     * loading, every flight is also passed to the aggregation engine, so that
+     * the answers to all questions are collected in the same pass
+     *
+     * @param fileName The absolute name of the file received for analysis
+     * @throws IOException If the file cannot be read
+     */
+    void loadFile(File fileName) throws IOException {
+        if (!readFile(fileName, 0, fileName.length(), true)) {
+            throw new IOException("File upload failed: " + fileName);
+        }
+    }
+
+    /**
+     * Method reads the database in the streaming mode: every flight is passed
+     * to the aggregation engine and dropped, so the memory used depends only on
+     * the number of distinct carriers, planes, airports and states (which are
+     * kept in the dictionaries of the table)
+     *
+     * @param fileName The absolute name of the file received for analysis
+     * @throws IOException If the file cannot be read
+     */
+    void streamFile(File fileName) throws IOException {
+        if (!readFile(fileName, 0, fileName.length(), false)) {
+            throw new IOException("File upload failed: " + fileName);
+        }
+    }
+
+    private AggregationEngine newEngine() {
+        return approximate != null ? new AggregationEngine(approximate) : new AggregationEngine();
     }
 
     /**
-     * Method loads the database and builds objects consisting of flight data
+     * Method reads the database with the pool of threads. The file is split
+     * into parts which begin at the beginning of a line, each part is read by
+     * its own thread, and the results of the parts are merged in the order of
+     * the parts, so the answers do not depend on the number of threads
      *
      * @param fileName The absolute name of the file received for analysis
+     * @param from The offset of the first line to be read
+     * @param to The offset after the last line to be read
+     * @param keepFlights true if the flights are stored in the table
+     * @return true if the whole range has been read
+     */
+    private boolean readFile(File fileName, long from, long to, boolean keepFlights) {
+        long start = System.nanoTime();
+        bytesRead.set(from);
+        rowsRead.set(0);
+        flights = new FlightTable();
+        aggregationEngine = newEngine();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        boolean mapped = memoryMapped;
+        RejectWriter rejects = openRejects();
+        try {
+            List<Future<ChunkResult>> results = new ArrayList<>();
+            for (FileChunk chunk : FileChunk.split(fileName, from, to, chunkCount(to - from))) {
+                results.add(pool.submit(() -> readChunk(chunk, mapped, keepFlights, rejects)));
+            }
+            for (Future<ChunkResult> future : results) {
+                ChunkResult result = future.get();
+                flights.append(result.flights);
+                aggregationEngine.merge(result.aggregationEngine);
+                metrics.addRows(result.completedRows, result.cancelledRows, result.flights.getRejectedCounts());
+                metrics.addViolations(result.flights.getViolationCounts());
+            }
+            metrics.addBytes(to - from);
+            return true;
+        } catch (IOException ex) {
+            System.out.println("File upload failed.");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            System.out.println("File upload failed.");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            System.out.println("File upload failed.");
+        } finally {
+            pool.shutdownNow();
+            awaitReaders(pool);
+            closeRejects(rejects);
+            metrics.addPhase(RunMetrics.LOAD_FILE, System.nanoTime() - start);
+        }
+        return false;
+    }
+
+    // the parts which are still read after a failure or the cancellation may
+    // add rejected rows, so the file of the rejected rows is closed after them
+    private static void awaitReaders(ExecutorService pool) {
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private RejectWriter openRejects() {
+        if (validation.getRejectFile() == null) {
+            return null;
+        }
+        try {
+            return new RejectWriter(validation.getRejectFile());
+        } catch (IOException ex) {
+            System.out.println("Could not write the rejected rows.");
+            return null;
+        }
+    }
+
+    private static void closeRejects(RejectWriter rejects) {
+        if (rejects == null) {
+            return;
+        }
+        try {
+            rejects.close();
+        } catch (IOException ex) {
+            System.out.println("Could not write the rejected rows.");
+        }
+    }
+
+    /**
+     * Method calculates the number of parts into which the file is split: a
+     * few parts for each thread, but not smaller than the chunk size
+     *
+     * @param length The number of bytes to be read
+     * @return The number of parts
+     */
+    private int chunkCount(long length) {
+        if (threads == 1) {
+            return 1;
+        }
+        long count = Math.min(threads * 4L, length / chunkSize);
+        return (int) Math.max(1, count);
+    }
+
+    /**
+     * Method reads the part of the database line by line with the tokenizer
+     * and passes each flight to the aggregation engine of the part. Each row
+     * is checked by the rules of the validation, the broken rules are counted
+     * and the rows broken by a rejecting rule are skipped and copied to the
+     * file of the rejected rows. The progress is published and the cancellation is checked every few
+     * thousand rows
+     *
+     * @param chunk The part of the file
+     * @param mapped true if the part is parsed in the memory-mapped file
+     * @param keepFlights true if the flights are stored in the table of the
+     * part, otherwise each row of the table is overwritten by the next one
+     * @param rejects The writer of the rejected rows or null
+     * @return The flights and the aggregation engine of the part
+     * @throws IOException If the file cannot be read
+     * @throws CancellationException If the analysis has been cancelled
      */
-    void loadFile(File fileName) {
-        completedFlights = new ArrayList<>();
-        cancelledFlights = new ArrayList<>();
-        try (FileReader fr = new FileReader(fileName)) {
-            Scanner scan = new Scanner(fr);
-            boolean firstLine = true;
-            while (scan.hasNextLine()) {
+    private ChunkResult readChunk(FileChunk chunk, boolean mapped, boolean keepFlights,
+            RejectWriter rejects) throws IOException {
+        ChunkResult result = new ChunkResult();
+        result.aggregationEngine = newEngine();
+        RejectWriter.Buffer rejected = rejects != null ? rejects.newBuffer() : null;
+        try (CsvTokenizer line = mapped ? chunk.openMapped() : chunk.open()) {
+            boolean firstLine = chunk.isFirst();
+            long reportedBytes = 0;
+            int rows = 0;
+            while (line.nextLine()) {
+                if (++rows == PROGRESS_ROWS) {
+                    if (cancelled) {
+                        throw new CancellationException("The analysis is cancelled");
+                    }
+                    bytesRead.addAndGet(line.getOffset() - reportedBytes);
+                    rowsRead.addAndGet(rows);
+                    reportedBytes = line.getOffset();
+                    rows = 0;
+                }
                 if (firstLine) {
-                    scan.nextLine();
                     firstLine = false;
+                    rows--;
                 } else {
-                    String[] line = scan.nextLine().split(",");
-                    Flight flight = new Flight.Builder()
-                            .withDayofMonth(Verifier.checkDayOfMonth(Verifier.checkForInt(0, line, "others")))
-                            .withDayOfWeek(Verifier.checkDayOfWeek(Verifier.checkForInt(1, line, "others")))
-                            .withFlightDate(Verifier.checkForDate(2, line))
-                            .withUniqueCarrier(Verifier.checkForString(3, line))
-                            .withTailNum(Verifier.checkForString(4, line))
-                            .withOriginAirportID(Verifier.checkForString(5, line))
-                            .withOrigin(Verifier.checkForString(6, line))
-                            .withOriginStateName(Verifier.checkForString(7, line))
-                            .withDestAirportID(Verifier.checkForString(8, line))
-                            .withDest(Verifier.checkForString(9, line))
-                            .withDestStateName(Verifier.checkForString(10, line))
-                            .withDepTime(Verifier.checkTime(Verifier.checkForInt(11, line, "others")))
-                            .withDepDelay(Verifier.checkForInt(12, line, "delay"))
-                            .withWheelsOff(Verifier.checkTime(Verifier.checkForInt(13, line, "others")))
-                            .withWheelsOn(Verifier.checkTime(Verifier.checkForInt(14, line, "others")))
-                            .withArrTime(Verifier.checkTime(Verifier.checkForInt(15, line, "others")))
-                            .withArrDelay(Verifier.checkForInt(16, line, "delay"))
-                            .withCancelled(Verifier.checkCancelled(Verifier.checkForInt(17, line, "others")))
-                            .withCancellationCode(Verifier.checkForString(18, line))
-                            .withDiverted(Verifier.checkCancelled(Verifier.checkForInt(19, line, "others")))
-                            .withAirTime(Verifier.checkForInt(20, line, "others"))
-                            .withDistance(Verifier.checkForInt(21, line, "others"))
-                            .build();
-                    if (flight.getCancelled() == 1) {
-                        cancelledFlights.add(flight);
-                    } else if (flight.getDiverted() != 1
-                            && (flight.getDepTime() == 0 || flight.getArrTime() == 0)) {
+                    int row = result.flights.parseRow(line);
+                    ValidationRule rejectedBy = validation.validate(result.flights, row,
+                            result.flights.getInvalidFields(), result.violations);
+                    if (rejectedBy != null) {
+                        result.reject(rejectedBy.getReason());
+                        if (rejected != null) {
+                            rejected.add(rejectedBy, line);
+                        }
+                        continue;
+                    }
+                    if (result.flights.getCancelled(row) == 1) {
+                        result.aggregationEngine.acceptCancelled(result.flights, row);
+                        result.cancelledRows++;
                     } else {
-                        completedFlights.add(flight);
+                        result.aggregationEngine.acceptCompleted(result.flights, row);
+                        result.completedRows++;
+                    }
+                    if (keepFlights) {
+                        result.flights.commitRow();
                     }
                 }
             }
-            fr.close();
-        } catch (IOException ex) {
-            System.out.println("File upload failed.");;
+            bytesRead.addAndGet(line.getOffset() - reportedBytes);
+            rowsRead.addAndGet(rows);
+        }
+        if (rejected != null) {
+            rejected.flush();
+        }
+        for (ValidationRule rule : ValidationRule.rules()) {
+            if (result.violations[rule.ordinal()] > 0) {
+                result.flights.countViolations(rule.getReason(), result.violations[rule.ordinal()]);
+            }
         }
+        return result;
     }
 
     /**
      * Method generates maps with the values of the number of departing and
-     * arriving flights for each airport
+     * arriving flights for each airport (separate pass over the loaded flights)
      */
     void collectAirportsMaps() {
-        arrFlightsInAirport = new HashMap<>();
-        depFlightsInAirport = new HashMap<>();
-        if (completedFlights.size() > 0) {
-            arrFlightsInAirport = completedFlights
-                    .stream()
-                    .filter(f -> !f.getOriginAirportID().equals("Not filled"))
-                    .collect(Collectors.groupingBy(Flight::getOriginAirportID, Collectors.counting()));
-            depFlightsInAirport = completedFlights
-                    .stream()
-                    .filter(f -> !f.getDestAirportID().equals("Not filled"))
-                    .collect(Collectors.groupingBy(Flight::getDestAirportID, Collectors.counting()));
+        airportsMaps = new AggregationEngine.AirportsAccumulator();
+        metrics.time("collectAirportsMaps", () -> scanFlights(airportsMaps));
+    }
+
+    /**
+     * Method passes all loaded flights to the accumulator of a question
+     *
+     * @param accumulator The accumulator of a question
+     */
+    private void scanFlights(FlightAccumulator accumulator) {
+        for (int row = 0; row < flights.size(); row++) {
+            if (flights.getCancelled(row) == 1) {
+                accumulator.acceptCancelled(flights, row);
+            } else {
+                accumulator.acceptCompleted(flights, row);
+            }
         }
     }
 
@@ -126,7 +728,7 @@ public class AnalysisCenter {
      * @param map The map with dataset <K, V>
      * @return The entry with dataset <K, V> with maximum value
      */
-    <K, V> Entry<K, V> maxValueOfEntries(Map<K, V> map, Comparator<V> comp) {
+    static <K, V> Entry<K, V> maxValueOfEntries(Map<K, V> map, Comparator<V> comp) {
         Entry<K, V> entry = Collections
                 .max(map.<K, V>entrySet(), Map.Entry.<K, V>comparingByValue(comp));
         return entry;
@@ -138,7 +740,7 @@ public class AnalysisCenter {
      * @param map The map with dataset <K, V>
      * @return The entry with dataset <K, V> with minimum value
      */
-    <K, V> Entry<K, V> minValueOfEntries(Map<K, V> map, Comparator<V> comp) {
+    static <K, V> Entry<K, V> minValueOfEntries(Map<K, V> map, Comparator<V> comp) {
         Entry<K, V> entry = Collections
                 .min(map.<K, V>entrySet(), Map.Entry.<K, V>comparingByValue(comp));
         return entry;
@@ -146,22 +748,112 @@ public class AnalysisCenter {
 
     /**
      * Method finds the airline carrier with the highest percentage of canceled
-     * flights
+     * flights (separate pass over the loaded flights)
      */
     void answerQuestion1() {
-        if (cancelledFlights.size() > 0) {
-            Map<String, Long> ucCompletedFlights = completedFlights
-                    .stream()
-                    .filter(f -> f.getDiverted() != 1)
-                    .filter(f -> !f.getUniqueCarrier().equals("Not filled"))
-                    .collect(Collectors.groupingBy(Flight::getUniqueCarrier, Collectors.counting()));
-
-            Map<String, Long> ucCancelledFlights = new HashMap<>();
-            ucCancelledFlights = cancelledFlights
-                    .stream()
-                    .filter(f -> !f.getUniqueCarrier().equals("Not filled"))
-                    .collect(Collectors.groupingBy(Flight::getUniqueCarrier, Collectors.counting()));
+        answerQuestion("answerQuestion1", new AggregationEngine.Question1Accumulator());
+    }
+
+    /**
+     * Method for finding the most common reason for canceled flights
+     * (separate pass over the loaded flights)
+     */
+    void answerQuestion2() {
+        answerQuestion("answerQuestion2", new AggregationEngine.Question2Accumulator());
+    }
 
+    /**
+     * Method calculates which plane has flown the most miles (separate pass
+     * over the loaded flights)
+     */
+    void answerQuestion3() {
+        answerQuestion("answerQuestion3", new AggregationEngine.Question3Accumulator());
+    }
+
+    /**
+     * Method calculates which airport is the busiest based on the number of
+     * departing and arriving flights (uses the maps of collectAirportsMaps)
+     */
+    void answerQuestion4() {
+        metrics.time("answerQuestion4", () -> airportsMaps.answerQuestion4(formattedOutput));
+    }
+
+    /**
+     * Method calculates which of the airports are the largest sources and sinks
+     * of flights (uses the maps of collectAirportsMaps)
+     */
+    void answerQuestion5and6() {
+        metrics.time("answerQuestion5and6", () -> airportsMaps.answerQuestion5and6(formattedOutput));
+    }
+
+    /**
+     * Method calculates the number of flights of a particular airline that were
+     * delayed by 60 minutes or more, either at departure or at arrival
+     * (separate pass over the loaded flights)
+     */
+    void answerQuestion7() {
+        answerQuestion("answerQuestion7", new AggregationEngine.Question7Accumulator());
+    }
+
+    /**
+     * Method for finding a flight with a maximum departure delay that has been
+     * able to catch up to that delay and arrive on or before the scheduled time
+     * (separate pass over the loaded flights)
+     */
+    void answerQuestion8() {
+        answerQuestion("answerQuestion8", new AggregationEngine.Question8Accumulator());
+    }
+
+    /**
+     * Method calculates which of the states most often canceled flights due to
+     * weather conditions (separate pass over the loaded flights)
+     */
+    void answerQuestion9() {
+        answerQuestion("answerQuestion9", new AggregationEngine.Question9Accumulator());
+    }
+
+    /**
+     * Method answers a question with a separate pass over the loaded flights
+     *
+     * @param phase The name under which the time of the answer is reported
+     * @param accumulator The accumulator of the question
+     */
+    private void answerQuestion(String phase, FlightAccumulator accumulator) {
+        metrics.time(phase, () -> {
+            scanFlights(accumulator);
+            accumulator.answer(formattedOutput);
+        });
+    }
+
+    /**
+     * Method checks whether the flight is a candidate for question 8: the tail
+     * number and day are known, the flight was not diverted and it arrived on
+     * or before the scheduled time
+     *
+     * @param flights The table with the flight
+     * @param row The row of the flight
+     * @return true if the flight takes part in question 8
+     */
+    static boolean isLiquidatedDelay(FlightTable flights, int row) {
+        return flights.getTailNumCode(row) != StringDictionary.NOT_FILLED
+                && flights.getDayofMonth(row) != 0
+                && flights.getDiverted(row) != 1
+                && flights.getDepDelay(row) != 1000000
+                && flights.getArrDelay(row) <= 0;
+    }
+
+    /**
+     * Method writes the answer to question 1
+     *
+     * @param formattedOutput The answers of the current analysis
+     * @param cancelledCount The number of cancelled flights in the database
+     * @param ucCompletedFlights The number of completed not diverted flights
+     * of each carrier
+     * @param ucCancelledFlights The number of cancelled flights of each carrier
+     */
+    static void reportQuestion1(FormattedOutput formattedOutput, long cancelledCount,
+            Map<String, Long> ucCompletedFlights, Map<String, Long> ucCancelledFlights) {
+        if (cancelledCount > 0) {
             Map<String, Double> ucShareOfCancelledFlights = new HashMap<>();
 
             ucCancelledFlights.entrySet().forEach(entry -> {
@@ -193,15 +885,15 @@ public class AnalysisCenter {
     }
 
     /**
-     * Method for finding the most common reason for canceled flights
+     * Method writes the answer to question 2
+     *
+     * @param formattedOutput The answers of the current analysis
+     * @param cancelledCount The number of cancelled flights in the database
+     * @param cancellationCodes The number of cancelled flights for each code
      */
-    void answerQuestion2() {
-        if (cancelledFlights.size() > 0) {
-            Map<String, Long> cancellationCodes = cancelledFlights
-                    .stream()
-                    .filter(f -> !f.getCancellationCode().equals("Not filled"))
-                    .collect(Collectors.groupingBy(Flight::getCancellationCode, Collectors.counting()));
-
+    static void reportQuestion2(FormattedOutput formattedOutput, long cancelledCount,
+            Map<String, Long> cancellationCodes) {
+        if (cancelledCount > 0) {
             if (cancellationCodes.size() > 0) {
                 formattedOutput.addAnswer(2, maxValueOfEntries(cancellationCodes, Long::compare).getKey());
             } else {
@@ -215,16 +907,15 @@ public class AnalysisCenter {
     }
 
     /**
-     * Method calculates which plane has flown the most miles
+     * Method writes the answer to question 3
+     *
+     * @param formattedOutput The answers of the current analysis
+     * @param completedCount The number of completed flights in the database
+     * @param sumDistancesOfTail The total distance flown by each plane
      */
-    void answerQuestion3() {
-        if (completedFlights.size() > 0) {
-            Map<String, Long> sumDistancesOfTail = completedFlights
-                    .stream()
-                    .filter(f -> !f.getTailNum().equals("Not filled"))
-                    .filter(f -> f.getDistance() > 0)
-                    .collect(Collectors.groupingBy(Flight::getTailNum, Collectors.summingLong(Flight::getDistance)));
-
+    static void reportQuestion3(FormattedOutput formattedOutput, long completedCount,
+            Map<String, Long> sumDistancesOfTail) {
+        if (completedCount > 0) {
             if (sumDistancesOfTail.size() > 0) {
                 formattedOutput.addAnswer(3, maxValueOfEntries(sumDistancesOfTail, Long::compare).getKey());
             } else {
@@ -238,11 +929,16 @@ public class AnalysisCenter {
     }
 
     /**
-     * Method calculates which airport is the busiest based on the number of
-     * departing and arriving flights
+     * Method writes the answer to question 4
+     *
+     * @param formattedOutput The answers of the current analysis
+     * @param completedCount The number of completed flights in the database
+     * @param arrFlightsInAirport The number of flights by origin airport
+     * @param depFlightsInAirport The number of flights by destination airport
      */
-    void answerQuestion4() {
-        if (completedFlights.size() > 0
+    static void reportQuestion4(FormattedOutput formattedOutput, long completedCount,
+            Map<String, Long> arrFlightsInAirport, Map<String, Long> depFlightsInAirport) {
+        if (completedCount > 0
                 && (arrFlightsInAirport.size() > 0 || depFlightsInAirport.size() > 0)) {
             Map<String, Long> sumFlightsInAirport = new HashMap<>();
             arrFlightsInAirport.entrySet().forEach(entry -> {
@@ -269,11 +965,16 @@ public class AnalysisCenter {
     }
 
     /**
-     * Method calculates which of the airports are the largest sources and sinks
-     * of flights
+     * Method writes the answers to questions 5 and 6
+     *
+     * @param formattedOutput The answers of the current analysis
+     * @param completedCount The number of completed flights in the database
+     * @param arrFlightsInAirport The number of flights by origin airport
+     * @param depFlightsInAirport The number of flights by destination airport
      */
-    void answerQuestion5and6() {
-        if (completedFlights.size() > 0
+    static void reportQuestion5and6(FormattedOutput formattedOutput, long completedCount,
+            Map<String, Long> arrFlightsInAirport, Map<String, Long> depFlightsInAirport) {
+        if (completedCount > 0
                 && (arrFlightsInAirport.size() > 0 || depFlightsInAirport.size() > 0)) {
             Map<String, Long> diffArrAndDepFlights = new HashMap<>();
             arrFlightsInAirport.entrySet().forEach(entry -> {
@@ -303,29 +1004,15 @@ public class AnalysisCenter {
     }
 
     /**
-     * Method calculates the number of flights of a particular airline that were
-     * delayed by 60 minutes or more, either at departure or at arrival
+     * Method writes the answer to question 7
+     *
+     * @param formattedOutput The answers of the current analysis
+     * @param completedCount The number of completed flights in the database
+     * @param sumDelays The number of delayed flights of the airline
      */
-    void answerQuestion7() {
-        if (completedFlights.size() > 0) {
-            int sumDepDelay = (int) completedFlights
-                    .stream()
-                    .filter(f -> f.getDiverted() != 1)
-                    .filter(f -> f.getDepDelay() != 1000000)
-                    .filter(f -> f.getUniqueCarrier().equalsIgnoreCase("AA"))
-                    .filter(f -> f.getDepDelay() >= 60)
-                    .count();
-
-            int sumArrDelay = (int) completedFlights
-                    .stream()
-                    .filter(f -> f.getDiverted() != 1)
-                    .filter(f -> f.getArrDelay() != 1000000)
-                    .filter(f -> f.getUniqueCarrier().equalsIgnoreCase("AA"))
-                    .filter(f -> f.getDepDelay() < 60)
-                    .filter(f -> f.getArrDelay() >= 60)
-                    .count();
-
-            formattedOutput.addAnswer(7, sumDepDelay + sumArrDelay);
+    static void reportQuestion7(FormattedOutput formattedOutput, long completedCount, int sumDelays) {
+        if (completedCount > 0) {
+            formattedOutput.addAnswer(7, sumDelays);
         } else {
             formattedOutput.addAnswer(7, "There is no information on completed "
                     + "flights in the database (or incomplete data are given for them)");
@@ -333,26 +1020,21 @@ public class AnalysisCenter {
     }
 
     /**
-     * Method for finding a flight with a maximum departure delay that has been
-     * able to catch up to that delay and arrive on or before the scheduled time
+     * Method writes the answer to question 8
+     *
+     * @param formattedOutput The answers of the current analysis
+     * @param completedCount The number of completed flights in the database
+     * @param maxLiquidatedDelay The flight with the maximum caught up delay or
+     * null if there is no such flight
      */
-    void answerQuestion8() {
-        if (completedFlights.size() > 0) {
-            try {
-                Flight maxLiquidatedDelay = completedFlights
-                        .stream()
-                        .filter(f -> !f.getTailNum().equals("Not filled"))
-                        .filter(f -> f.getDayofMonth() != 0)
-                        .filter(f -> f.getDiverted() != 1)
-                        .filter(f -> f.getDepDelay() != 1000000)
-                        .filter(f -> f.getArrDelay() <= 0)
-                        .max((f1, f2) -> Integer.compare(f1.getDepDelay(), f2.getDepDelay()))
-                        .get();
-
+    static void reportQuestion8(FormattedOutput formattedOutput, long completedCount,
+            Flight maxLiquidatedDelay) {
+        if (completedCount > 0) {
+            if (maxLiquidatedDelay != null) {
                 formattedOutput.addAnswer(8, maxLiquidatedDelay.getDayofMonth() + ","
                         + maxLiquidatedDelay.getDepDelay() + ","
                         + maxLiquidatedDelay.getTailNum());
-            } catch (Exception ex) {
+            } else {
                 formattedOutput.addAnswer(8, "The database does not contain flights "
                         + "with complete information necessary to answer this question");
             }
@@ -363,18 +1045,16 @@ public class AnalysisCenter {
     }
 
     /**
-     * Method calculates which of the states most often canceled flights due to
-     * weather conditions
+     * Method writes the answer to question 9
+     *
+     * @param formattedOutput The answers of the current analysis
+     * @param cancelledCount The number of cancelled flights in the database
+     * @param osWeatherCancellationCode The number of flights cancelled due to
+     * weather conditions in each origin state
      */
-    void answerQuestion9() {
-        if (cancelledFlights.size() > 0) {
-            Map<String, Long> osWeatherCancellationCode = cancelledFlights
-                    .stream()
-                    .filter(f -> !f.getOriginStateName().equals("Not filled"))
-                    .filter(f -> !f.getCancellationCode().equals("Not filled"))
-                    .filter(f -> f.getCancellationCode().equalsIgnoreCase("B"))
-                    .collect(Collectors.groupingBy(Flight::getOriginStateName, Collectors.counting()));
-
+    static void reportQuestion9(FormattedOutput formattedOutput, long cancelledCount,
+            Map<String, Long> osWeatherCancellationCode) {
+        if (cancelledCount > 0) {
             if (osWeatherCancellationCode.size() > 0) {
                 formattedOutput.addAnswer(9, maxValueOfEntries(osWeatherCancellationCode, Long::compare).getKey());
             } else {
@@ -387,4 +1067,21 @@ public class AnalysisCenter {
                     + "about cancelled flights (or incomplete data are given on them)");
         }
     }
+
+    /**
+     * Class that is used to hold the results of reading a part of the database
+     */
+    private static class ChunkResult {
+
+        private FlightTable flights = new FlightTable();
+        private AggregationEngine aggregationEngine;
+        private long completedRows;
+        private long cancelledRows;
+        private long[] violations = new long[ValidationRule.rules().length];
+
+        private void reject(String reason) {
+            flights.reject(reason, 1);
+        }
+
+    }
 }
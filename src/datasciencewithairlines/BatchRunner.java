@@ -0,0 +1,342 @@
+package datasciencewithairlines;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Class that is used to analyze databases from the command line without the
+ * main program frame. The files are given as names, glob patterns or folders
+ * (all CSV files of the folder), and they are analyzed concurrently by a
+ * bounded pool of workers. The answers and the run report of each file are
+ * written to a separate folder
+ */
+public class BatchRunner {
+
+    private static final String USAGE = "Usage: BatchRunner [--out <folder>] [--workers <n>] "
+            + "[--threads <n>] [--mmap] [--snapshots] [--incremental] [--approximate [<error>]] "
+            + "[--rule <rule>=<off|count|reject>] [--strict] [--rejects] <file | glob | folder>...";
+
+    private File outDir = new File("answers");
+    private int workers;
+    private int threads;
+    private boolean memoryMapped;
+    private boolean snapshots;
+    private boolean incremental;
+    private SketchSettings approximate;
+    private Map<ValidationRule, ValidationSettings.Action> rules = new EnumMap<>(ValidationRule.class);
+    private boolean rejects;
+    private List<String> inputs = new ArrayList<>();
+
+    /**
+     * Method reads the options and the inputs of the command line
+     *
+     * @param args The arguments of the command line
+     */
+    void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out":
+                    outDir = new File(value(args, ++i));
+                    break;
+                case "--workers":
+                    workers = positive(value(args, ++i));
+                    break;
+                case "--threads":
+                    threads = positive(value(args, ++i));
+                    break;
+                case "--mmap":
+                    memoryMapped = true;
+                    break;
+                case "--snapshots":
+                    snapshots = true;
+                    break;
+                case "--incremental":
+                    incremental = true;
+                    break;
+                case "--approximate":
+                    SketchSettings.Builder settings = new SketchSettings.Builder();
+                    if (i + 1 < args.length && isNumber(args[i + 1])) {
+                        settings.withRelativeError(Double.parseDouble(args[++i]));
+                    }
+                    approximate = settings.build();
+                    break;
+                case "--rule":
+                    parseRule(value(args, ++i));
+                    break;
+                case "--strict":
+                    for (ValidationRule rule : ValidationRule.values()) {
+                        rules.put(rule, ValidationSettings.Action.REJECT);
+                    }
+                    break;
+                case "--rejects":
+                    rejects = true;
+                    break;
+                default:
+                    if (args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                    }
+                    inputs.add(args[i]);
+            }
+        }
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("No files are given");
+        }
+    }
+
+    /**
+     * Method reads the action of a rule of the validation, for example
+     * "day-of-week-mismatch=reject"
+     *
+     * @param str The name of the rule and the action
+     */
+    private void parseRule(String str) {
+        int equals = str.indexOf('=');
+        if (equals < 0) {
+            throw new IllegalArgumentException("The rule needs an action: " + str);
+        }
+        String rule = str.substring(0, equals).toUpperCase(Locale.ROOT).replace('-', '_');
+        String action = str.substring(equals + 1).toUpperCase(Locale.ROOT);
+        try {
+            rules.put(ValidationRule.valueOf(rule), ValidationSettings.Action.valueOf(action));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Unknown rule or action " + str);
+        }
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("The option " + args[index - 1] + " needs a value");
+        }
+        return args[index];
+    }
+
+    private static boolean isNumber(String str) {
+        try {
+            Double.parseDouble(str);
+            return true;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    private static int positive(String str) {
+        int number = Verifier.verifyInt(str);
+        if (number < 1) {
+            throw new IllegalArgumentException("The number must be positive: " + str);
+        }
+        return number;
+    }
+
+    /**
+     * Method finds the files of all inputs. Each file is analyzed once even if
+     * it matches several inputs
+     *
+     * @return The files in the order of the inputs
+     * @throws IOException If a folder cannot be listed
+     */
+    List<File> findFiles() throws IOException {
+        Set<File> files = new LinkedHashSet<>();
+        for (String input : inputs) {
+            File file = new File(input);
+            if (file.isDirectory()) {
+                files.addAll(list(file.toPath(), "glob:*.{csv,CSV}", 1));
+            } else if (file.isFile()) {
+                files.add(file.getAbsoluteFile());
+            } else if (isGlob(input)) {
+                List<File> matched = matchGlob(input);
+                if (matched.isEmpty()) {
+                    System.out.println("No files match " + input);
+                }
+                files.addAll(matched);
+            } else {
+                System.out.println("File " + input + " is not found");
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    private static boolean isGlob(String input) {
+        return input.indexOf('*') >= 0 || input.indexOf('?') >= 0
+                || input.indexOf('[') >= 0 || input.indexOf('{') >= 0;
+    }
+
+    /**
+     * Method finds the files matching the glob pattern. The search starts in
+     * the deepest folder of the pattern without the special characters
+     *
+     * @param pattern The glob pattern, for example "data/2019-*.csv"
+     * @return The matching files sorted by name
+     * @throws IOException If a folder cannot be listed
+     */
+    private static List<File> matchGlob(String pattern) throws IOException {
+        String normalized = pattern.replace(File.separatorChar, '/');
+        int special = normalized.length();
+        for (char c : new char[]{'*', '?', '[', '{'}) {
+            int index = normalized.indexOf(c);
+            if (index >= 0) {
+                special = Math.min(special, index);
+            }
+        }
+        int slash = normalized.lastIndexOf('/', special);
+        Path base = Paths.get(slash < 0 ? "." : slash == 0 ? "/" : normalized.substring(0, slash));
+        String relative = normalized.substring(slash + 1);
+        int depth = relative.contains("**") ? Integer.MAX_VALUE : relative.split("/").length;
+        return list(base, "glob:" + relative, depth);
+    }
+
+    private static List<File> list(Path base, String syntaxAndPattern, int depth) throws IOException {
+        if (!Files.isDirectory(base)) {
+            return new ArrayList<>();
+        }
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher(syntaxAndPattern);
+        try (Stream<Path> paths = Files.walk(base, depth)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(base.relativize(path)))
+                    .map(path -> path.toAbsolutePath().normalize().toFile())
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Method analyzes all files with the pool of workers. By default there is
+     * a worker for each core, and the cores are shared among the threads which
+     * read each file, so that the pool does not run more threads than there
+     * are cores
+     *
+     * @param files The files received for analysis
+     * @return The number of files which could not be analyzed
+     * @throws InterruptedException If the waiting is interrupted
+     */
+    int analyzeFiles(List<File> files) throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int poolSize = Math.max(1, Math.min(files.size(), workers > 0 ? workers : cores));
+        int readers = threads > 0 ? threads : Math.max(1, cores / poolSize);
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize);
+        int failures = 0;
+        try {
+            List<Future<RunMetrics>> results = new ArrayList<>();
+            Set<String> folders = new HashSet<>();
+            for (File file : files) {
+                File dir = new File(outDir, folderName(file, folders));
+                results.add(pool.submit(() -> analyze(file, dir, readers)));
+            }
+            for (int i = 0; i < files.size(); i++) {
+                try {
+                    RunMetrics metrics = results.get(i).get();
+                    System.out.println(String.format(Locale.ROOT, "%s: %d rows in %.1f s (%.0f rows/s)",
+                            files.get(i).getPath(), metrics.getRows(), metrics.getTotalTime() / 1e9,
+                            metrics.getRowsPerSecond()));
+                } catch (ExecutionException ex) {
+                    failures++;
+                    System.out.println("Analysis of " + files.get(i).getPath() + " failed: " + ex.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return failures;
+    }
+
+    /**
+     * Method names the output folder after the file. The folders of the files
+     * with equal names get numbers
+     *
+     * @param file The file received for analysis
+     * @param folders The names of the folders given to the previous files
+     * @return The name of the folder
+     */
+    private static String folderName(File file, Set<String> folders) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        String folder = name;
+        for (int i = 2; !folders.add(folder); i++) {
+            folder = name + "-" + i;
+        }
+        return folder;
+    }
+
+    private RunMetrics analyze(File file, File dir, int readers) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create the folder " + dir);
+        }
+        AnalysisCenter ac = new AnalysisCenter();
+        ac.setThreads(readers);
+        ac.setMemoryMapped(memoryMapped);
+        ac.setSnapshots(snapshots);
+        ac.setIncremental(incremental);
+        ac.setApproximate(approximate);
+        ac.setValidation(validation(dir));
+        ac.analyzeFile(dir.getAbsolutePath(), file);
+        return ac.getMetrics();
+    }
+
+    /**
+     * Method builds the settings of the validation of a file. The rejected
+     * rows are written to rejected.csv in the output folder of the file
+     *
+     * @param dir The output folder of the file
+     * @return The settings
+     */
+    private ValidationSettings validation(File dir) {
+        ValidationSettings.Builder settings = new ValidationSettings.Builder();
+        for (Map.Entry<ValidationRule, ValidationSettings.Action> rule : rules.entrySet()) {
+            settings.withAction(rule.getKey(), rule.getValue());
+        }
+        if (rejects) {
+            settings.withRejectFile(new File(dir, "rejected.csv"));
+        }
+        return settings.build();
+    }
+
+    /**
+     * Method runs the analysis of the files given on the command line. The
+     * exit status is 1 if any file could not be analyzed and 2 if the command
+     * line is wrong
+     *
+     * @param args The options and the files, glob patterns or folders
+     */
+    public static void main(String[] args) {
+        BatchRunner runner = new BatchRunner();
+        try {
+            runner.parseArguments(args);
+        } catch (IllegalArgumentException ex) {
+            System.out.println(ex.getMessage());
+            System.out.println(USAGE);
+            System.exit(2);
+        }
+        try {
+            List<File> files = runner.findFiles();
+            if (files.isEmpty()) {
+                System.exit(2);
+            }
+            int failures = runner.analyzeFiles(files);
+            System.exit(failures == 0 ? 0 : 1);
+        } catch (IOException | InterruptedException ex) {
+            System.out.println("Batch analysis failed: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package datasciencewithairlines;
+
+import static datasciencewithairlines.FlightColumn.*;
+import static datasciencewithairlines.FlightFilter.*;
+
+import java.util.Map;
+
+/**
+ * Class that is used to answer the nine questions of the task with queries
+ * over the loaded flights. The queries select the same flights as the
+ * accumulators of AggregationEngine, so the answers are the same
+ */
+public class BuiltInQueries {
+
+    /**
+     * The completed not diverted flights of each carrier (question 1)
+     */
+    public static final FlightQuery COMPLETED_FLIGHTS_BY_CARRIER = new FlightQuery.Builder()
+            .where(completed().and(notEqualTo(DIVERTED, 1)).and(isFilled(UNIQUE_CARRIER)))
+            .groupBy(UNIQUE_CARRIER)
+            .count()
+            .build();
+
+    /**
+     * The cancelled flights of each carrier (question 1)
+     */
+    public static final FlightQuery CANCELLED_FLIGHTS_BY_CARRIER = new FlightQuery.Builder()
+            .where(cancelled().and(isFilled(UNIQUE_CARRIER)))
+            .groupBy(UNIQUE_CARRIER)
+            .count()
+            .build();
+
+    /**
+     * The cancelled flights for each reason (question 2)
+     */
+    public static final FlightQuery CANCELLED_FLIGHTS_BY_CODE = new FlightQuery.Builder()
+            .where(cancelled().and(isFilled(CANCELLATION_CODE)))
+            .groupBy(CANCELLATION_CODE)
+            .count()
+            .build();
+
+    /**
+     * The total distance flown by each plane (question 3)
+     */
+    public static final FlightQuery DISTANCE_BY_TAIL = new FlightQuery.Builder()
+            .where(completed().and(isFilled(TAIL_NUM)).and(atLeast(DISTANCE, 1)))
+            .groupBy(TAIL_NUM)
+            .sum(DISTANCE)
+            .build();
+
+    /**
+     * The completed flights by origin airport (questions 4, 5 and 6)
+     */
+    public static final FlightQuery FLIGHTS_BY_ORIGIN = new FlightQuery.Builder()
+            .where(completed().and(isFilled(ORIGIN_AIRPORT_ID)))
+            .groupBy(ORIGIN_AIRPORT_ID)
+            .count()
+            .build();
+
+    /**
+     * The completed flights by destination airport (questions 4, 5 and 6)
+     */
+    public static final FlightQuery FLIGHTS_BY_DEST = new FlightQuery.Builder()
+            .where(completed().and(isFilled(DEST_AIRPORT_ID)))
+            .groupBy(DEST_AIRPORT_ID)
+            .count()
+            .build();
+
+    /**
+     * The flights of American Airlines delayed by 60 minutes or more at
+     * departure, or else at arrival (question 7)
+     */
+    public static final FlightQuery DELAYED_FLIGHTS_OF_AA = new FlightQuery.Builder()
+            .where(completed().and(notEqualTo(DIVERTED, 1)).and(equalToIgnoreCase(UNIQUE_CARRIER, "AA")))
+            .where(atLeast(DEP_DELAY, 60).and(isFilled(DEP_DELAY))
+                    .or(atMost(DEP_DELAY, 59).and(atLeast(ARR_DELAY, 60)).and(isFilled(ARR_DELAY))))
+            .count()
+            .build();
+
+    /**
+     * The flight with the greatest departure delay which arrived on or before
+     * the scheduled time (question 8)
+     */
+    public static final FlightQuery MAX_LIQUIDATED_DELAY = new FlightQuery.Builder()
+            .where(completed().and(isFilled(TAIL_NUM)).and(isFilled(DAY_OF_MONTH))
+                    .and(notEqualTo(DIVERTED, 1)).and(isFilled(DEP_DELAY)).and(atMost(ARR_DELAY, 0)))
+            .topRows(DEP_DELAY, 1)
+            .build();
+
+    /**
+     * The flights cancelled due to weather conditions in each origin state
+     * (question 9)
+     */
+    public static final FlightQuery WEATHER_CANCELLATIONS_BY_STATE = new FlightQuery.Builder()
+            .where(cancelled().and(isFilled(ORIGIN_STATE_NAME)).and(equalToIgnoreCase(CANCELLATION_CODE, "B")))
+            .groupBy(ORIGIN_STATE_NAME)
+            .count()
+            .build();
+
+    /**
+     * Method answers all questions with the queries
+     *
+     * @param flights The loaded flights
+     * @param formattedOutput The answers of the current analysis
+     */
+    public static void answer(FlightTable flights, FormattedOutput formattedOutput) {
+        answer(flights, null, formattedOutput, new RunMetrics());
+    }
+
+    /**
+     * Method answers all questions with the queries and reports the time of
+     * each question. With the index the questions about one carrier or one
+     * cancellation code read only the rows of that value
+     *
+     * @param flights The loaded flights
+     * @param index The index of the flights or null
+     * @param formattedOutput The answers of the current analysis
+     * @param metrics The metrics of the current analysis
+     */
+    public static void answer(FlightTable flights, FlightIndex index, FormattedOutput formattedOutput,
+            RunMetrics metrics) {
+        long completedCount = flights.getCompletedCount();
+        long cancelledCount = flights.getCancelledCount();
+        metrics.time("queryQuestion1", () -> AnalysisCenter.reportQuestion1(formattedOutput, cancelledCount,
+                countsOf(COMPLETED_FLIGHTS_BY_CARRIER, flights, index), countsOf(CANCELLED_FLIGHTS_BY_CARRIER, flights, index)));
+        metrics.time("queryQuestion2", () -> AnalysisCenter.reportQuestion2(formattedOutput, cancelledCount,
+                countsOf(CANCELLED_FLIGHTS_BY_CODE, flights, index)));
+        metrics.time("queryQuestion3", () -> AnalysisCenter.reportQuestion3(formattedOutput, completedCount,
+                countsOf(DISTANCE_BY_TAIL, flights, index)));
+        metrics.time("queryQuestion4to6", () -> {
+            Map<String, Long> byOrigin = countsOf(FLIGHTS_BY_ORIGIN, flights, index);
+            Map<String, Long> byDest = countsOf(FLIGHTS_BY_DEST, flights, index);
+            AnalysisCenter.reportQuestion4(formattedOutput, completedCount, byOrigin, byDest);
+            AnalysisCenter.reportQuestion5and6(formattedOutput, completedCount, byOrigin, byDest);
+        });
+        metrics.time("queryQuestion7", () -> AnalysisCenter.reportQuestion7(formattedOutput, completedCount,
+                (int) DELAYED_FLIGHTS_OF_AA.execute(flights, index).getCount(0)));
+        metrics.time("queryQuestion8", () -> {
+            int[] rows = MAX_LIQUIDATED_DELAY.execute(flights, index).getRows();
+            AnalysisCenter.reportQuestion8(formattedOutput, completedCount,
+                    rows.length > 0 ? flights.getFlight(rows[0]) : null);
+        });
+        metrics.time("queryQuestion9", () -> AnalysisCenter.reportQuestion9(formattedOutput, cancelledCount,
+                countsOf(WEATHER_CANCELLATIONS_BY_STATE, flights, index)));
+    }
+
+    /**
+     * Method runs a query with one aggregate and prepares its result for the
+     * answers: the map iterates the groups in the order of the HashMap used by
+     * the original passes, so the equal values are resolved the same way
+     *
+     * @param query The query grouped by one column
+     * @param flights The loaded flights
+     * @param index The index of the flights or null
+     * @return The value of each group
+     */
+    private static Map<String, Long> countsOf(FlightQuery query, FlightTable flights, FlightIndex index) {
+        return AggregationEngine.toHashMap(query.execute(flights, index).toMap(0));
+    }
+}
@@ -0,0 +1,133 @@
+package datasciencewithairlines;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Class that is used to count the values of a string column by their codes in
+ * the dictionary of the table. The values are counted in an ObjectLongMap and
+ * the number of the entry of each code is remembered, so a row is counted
+ * without hashing or creating a string. The numbers of the codes are
+ * remembered for the last dictionary only, while the values are kept as
+ * strings, so the counters of different tables can be merged
+ */
+public class CodeCounters implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private ObjectLongMap<String> counters = new ObjectLongMap<>();
+    private transient StringDictionary dictionary;
+    private transient int[] numberOfCode;
+
+    /**
+     * Method adds the value to the counter of the code
+     *
+     * @param dictionary The dictionary of the column of the table
+     * @param code The code of the value in the dictionary
+     * @param value The value added to the counter
+     */
+    public void add(StringDictionary dictionary, int code, long value) {
+        if (this.dictionary != dictionary) {
+            this.dictionary = dictionary;
+            numberOfCode = new int[Math.max(16, dictionary.size())];
+        }
+        if (code >= numberOfCode.length) {
+            numberOfCode = Arrays.copyOf(numberOfCode, Math.max(code + 1, numberOfCode.length * 2));
+        }
+        if (numberOfCode[code] == 0) {
+            numberOfCode[code] = counters.insert(dictionary.value(code)) + 1;
+        }
+        counters.addAt(numberOfCode[code] - 1, value);
+    }
+
+    /**
+     * Method adds the value to the counter of the key
+     *
+     * @param key The string value of the field
+     * @param value The value added to the counter
+     */
+    public void add(String key, long value) {
+        counters.addTo(key, value);
+    }
+
+    /**
+     * Method adds the counters of the other counters. The keys which are new
+     * for these counters are added in the order of their first encounter
+     *
+     * @param other The counters of the next part
+     */
+    public void merge(CodeCounters other) {
+        counters.merge(other.counters);
+    }
+
+    /**
+     * Method returns the counter of the key
+     *
+     * @param key The string value of the field
+     * @return The counter or 0 if the key is not counted
+     */
+    public long get(String key) {
+        return counters.get(key);
+    }
+
+    public boolean contains(String key) {
+        return counters.containsKey(key);
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    public String getKey(int number) {
+        return counters.keyAt(number);
+    }
+
+    public long getCount(int number) {
+        return counters.valueAt(number);
+    }
+
+    /**
+     * Method returns the key with the greatest counter if no other key has
+     * the same counter
+     *
+     * @return The key or null if there are no counters or the greatest
+     * counter is shared
+     */
+    public String uniqueMax() {
+        int index = counters.indexOfUniqueMax();
+        return index < 0 ? null : counters.keyAt(index);
+    }
+
+    /**
+     * Method finds the keys with the greatest counters. Of the equal counters
+     * the smallest keys are first
+     *
+     * @param k The number of the kept keys
+     * @return The k best keys with their counters, the best first
+     */
+    public List<Entry<String, Long>> topK(int k) {
+        return counters.topK(k, TopK.greatestFirst());
+    }
+
+    /**
+     * Method copies the counters into a map
+     *
+     * @return The counters in the order of the first encounter of the keys
+     */
+    public Map<String, Long> toMap() {
+        return counters.toMap();
+    }
+
+    /**
+     * Method copies the counters into a HashMap in the order of the first
+     * encounter of the keys, see ObjectLongMap.toHashMap
+     *
+     * @return The HashMap with the same counters
+     */
+    public Map<String, Long> toHashMap() {
+        return counters.toHashMap();
+    }
+}
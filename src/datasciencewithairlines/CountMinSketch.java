@@ -0,0 +1,262 @@
+package datasciencewithairlines;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Class that is used to estimate the weights of the keys in fixed memory. The
+ * count-min sketch never underestimates a weight, and it overestimates it by
+ * at most error * total weight with the given confidence. The sketch also
+ * keeps a fixed number of candidates with the largest estimates, so the
+ * heaviest keys (heavy hitters) can be found without a map of all keys. The
+ * candidates are kept in parallel arrays of the keys, their hashes and their
+ * estimates in the order in which they have become candidates, so adding a
+ * weight allocates nothing
+ */
+public class CountMinSketch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int width;
+    private long[][] counters;
+    private long totalWeight;
+    private int capacity;
+    private String[] keys;
+    private long[] hashes;
+    private long[] estimates;
+    private int size;
+    private int lightest;
+
+    /**
+     * Constructor of the empty sketch
+     *
+     * @param settings The error bounds and the number of candidates
+     */
+    public CountMinSketch(SketchSettings settings) {
+        this.width = settings.countMinWidth();
+        this.counters = new long[settings.countMinDepth()][width];
+        this.capacity = settings.getHeavyHitters();
+        this.keys = new String[capacity];
+        this.hashes = new long[capacity];
+        this.estimates = new long[capacity];
+    }
+
+    /**
+     * Method adds the weight of the key. Only the counters below the new
+     * estimate are raised, which keeps the estimates of the other keys smaller
+     *
+     * @param key The key, for example a tail number
+     * @param weight The weight, for example the distance of a flight
+     */
+    public void add(String key, long weight) {
+        add(key, hash(key), weight);
+    }
+
+    /**
+     * Method adds the weight of the value of a string column by its code. The
+     * hash of the value is taken from the dictionary, so the row is added
+     * without hashing the string
+     *
+     * @param dictionary The dictionary of the column of the table
+     * @param code The code of the value in the dictionary
+     * @param weight The weight, for example the distance of a flight
+     */
+    public void add(StringDictionary dictionary, int code, long weight) {
+        add(dictionary.value(code), dictionary.hash(code), weight);
+    }
+
+    private void add(String key, long hash, long weight) {
+        long estimate = estimate(hash) + weight;
+        // conservative update: no counter is raised above the new estimate
+        for (int i = 0; i < counters.length; i++) {
+            int column = column(hash, i);
+            counters[i][column] = Math.max(counters[i][column], estimate);
+        }
+        totalWeight += weight;
+        offer(key, hash, estimate, weight);
+    }
+
+    /**
+     * Method estimates the weight of the key
+     *
+     * @param key The key
+     * @return The estimate, which is never less than the true weight
+     */
+    public long estimate(String key) {
+        return estimate(hash(key));
+    }
+
+    private long estimate(long hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < counters.length; i++) {
+            estimate = Math.min(estimate, counters[i][column(hash, i)]);
+        }
+        return estimate;
+    }
+
+    // the rows use the hashes h1 + i * h2 (Kirsch and Mitzenmacher)
+    private int column(long hash, int row) {
+        int combined = (int) hash + row * (int) (hash >>> 32);
+        return (combined & Integer.MAX_VALUE) % width;
+    }
+
+    private void offer(String key, long hash, long estimate, long weight) {
+        // the estimate of a candidate grows by the weight, so a key which is
+        // not above the lightest candidate is not a candidate
+        if (size == capacity && weight > 0 && estimate <= estimates[lightest]) {
+            return;
+        }
+        int index = indexOf(key, hash);
+        if (index >= 0) {
+            estimates[index] = estimate;
+            if (index == lightest) {
+                findLightest();
+            }
+        } else if (size < capacity) {
+            put(size++, key, hash, estimate);
+            findLightest();
+        } else if (estimate > estimates[lightest]) {
+            // the new candidate goes to the end, after the older ones
+            int moved = size - lightest - 1;
+            System.arraycopy(keys, lightest + 1, keys, lightest, moved);
+            System.arraycopy(hashes, lightest + 1, hashes, lightest, moved);
+            System.arraycopy(estimates, lightest + 1, estimates, lightest, moved);
+            put(size - 1, key, hash, estimate);
+            findLightest();
+        }
+    }
+
+    private int indexOf(String key, long hash) {
+        for (int i = 0; i < size; i++) {
+            if (hashes[i] == hash && keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void put(int index, String key, long hash, long estimate) {
+        keys[index] = key;
+        hashes[index] = hash;
+        estimates[index] = estimate;
+    }
+
+    // the first of the equal lightest candidates is replaced first
+    private void findLightest() {
+        lightest = 0;
+        for (int i = 1; i < size; i++) {
+            if (estimates[i] < estimates[lightest]) {
+                lightest = i;
+            }
+        }
+    }
+
+    /**
+     * Method adds the weights counted by the other sketch with the same
+     * settings. The candidates of both sketches are estimated again
+     *
+     * @param other The sketch of the next part of the database
+     */
+    public void merge(CountMinSketch other) {
+        for (int i = 0; i < counters.length; i++) {
+            for (int j = 0; j < width; j++) {
+                counters[i][j] += other.counters[i][j];
+            }
+        }
+        totalWeight += other.totalWeight;
+        Map<String, Long> all = new LinkedHashMap<>();
+        for (CountMinSketch sketch : new CountMinSketch[]{this, other}) {
+            for (int i = 0; i < sketch.size; i++) {
+                all.put(sketch.keys[i], estimate(sketch.hashes[i]));
+            }
+        }
+        size = 0;
+        for (Entry<String, Long> candidate : TopK.of(all, capacity)) {
+            put(size++, candidate.getKey(), hash(candidate.getKey()), candidate.getValue());
+        }
+        Arrays.fill(keys, size, capacity, null);
+        findLightest();
+    }
+
+    private Map<String, Long> candidates() {
+        Map<String, Long> candidates = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            candidates.put(keys[i], estimates[i]);
+        }
+        return candidates;
+    }
+
+    /**
+     * Method returns the heaviest keys among the candidates
+     *
+     * @param k The number of keys
+     * @return The keys with their estimates, the heaviest first, and of the
+     * equal estimates the smallest keys first
+     */
+    public List<Entry<String, Long>> heavyHitters(int k) {
+        return TopK.of(candidates(), k);
+    }
+
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * Method returns the bound of the overestimate
+     *
+     * @return The largest excess of an estimate over the true weight with the
+     * confidence of the settings
+     */
+    public double getErrorBound() {
+        return Math.E / width * totalWeight;
+    }
+
+    /**
+     * Method estimates the memory used by the sketch
+     *
+     * @return The size of the counters and of the candidates in bytes
+     */
+    public long getMemoryBytes() {
+        long bytes = 8L * counters.length * width;
+        bytes += 20L * capacity;
+        for (int i = 0; i < size; i++) {
+            bytes += 40 + 2L * keys[i].length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Method calculates the 64-bit hash of the string (FNV-1a with the
+     * finalizer of MurmurHash3), which is spread well enough for the
+     * sketches
+     *
+     * @param str The string
+     * @return The hash
+     */
+    static long hash(String str) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < str.length(); i++) {
+            hash ^= str.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Method spreads the bits of the hash
+     *
+     * @param hash The hash
+     * @return The mixed hash
+     */
+    static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ hash >>> 33;
+    }
+}
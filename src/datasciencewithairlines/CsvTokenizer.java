@@ -0,0 +1,424 @@
+package datasciencewithairlines;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Class that is used to read the lines of the database from a stream of bytes
+ * and to split them into fields. The fields are kept as offsets in the byte
+ * buffer, so numbers are parsed without creating intermediate strings. The
+ * bytes are either read from a stream into a buffer or parsed in place in the
+ * memory-mapped windows of the file
+ */
+public class CsvTokenizer implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_FIELDS = 32;
+    private static final int WINDOW_SIZE = 1 << 28;
+
+    private InputStream in;
+    private FileChannel channel;
+    private long windowOffset;
+    private int windowSize = WINDOW_SIZE;
+    private long remaining;
+    private byte[] bytes;
+    private ByteBuffer buffer;
+    private int position;
+    private long discarded;
+    private int limit;
+    private boolean endOfInput;
+    private int[] starts = new int[MAX_FIELDS];
+    private int[] ends = new int[MAX_FIELDS];
+    private int fieldCount;
+    private int lineStart;
+    private int lineEnd;
+    private Charset charset = Charset.defaultCharset();
+    private byte[] scratch = new byte[64];
+    private DateDecoder dateDecoder = new DateDecoder();
+
+    /**
+     * Constructor of the tokenizer
+     *
+     * @param in The stream with the contents of the database
+     */
+    public CsvTokenizer(InputStream in) {
+        this(in, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructor of the tokenizer which reads only a part of the stream
+     *
+     * @param in The stream with the contents of the database
+     * @param length The number of bytes to be read from the stream
+     */
+    public CsvTokenizer(InputStream in, long length) {
+        this.in = in;
+        remaining = length;
+        bytes = new byte[BUFFER_SIZE];
+        buffer = ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Constructor of the tokenizer which parses a part of the file in place.
+     * The part is memory-mapped by windows, so it may be larger than 2 GB
+     *
+     * @param channel The channel of the file of the database
+     * @param start The offset of the first byte of the part
+     * @param length The number of bytes of the part
+     */
+    public CsvTokenizer(FileChannel channel, long start, long length) {
+        this.channel = channel;
+        windowOffset = start;
+        remaining = length;
+        buffer = ByteBuffer.allocate(0);
+    }
+
+    /**
+     * Method reads the next line of the database and splits it into fields.
+     * Lines may end with "\n", "\r\n" or "\r"
+     *
+     * @return true if the line has been read or false at the end of the input
+     * @throws IOException If the stream cannot be read
+     */
+    public boolean nextLine() throws IOException {
+        while (true) {
+            int end = position;
+            while (end < limit) {
+                byte b = buffer.get(end);
+                if (b == '\n' || b == '\r') {
+                    break;
+                }
+                end++;
+            }
+            if (end < limit && (buffer.get(end) == '\n' || end + 1 < limit || endOfInput)) {
+                tokenize(position, end);
+                position = end + 1;
+                if (buffer.get(end) == '\r' && position < limit && buffer.get(position) == '\n') {
+                    position++;
+                }
+                return true;
+            }
+            if (endOfInput) {
+                if (position < limit) {
+                    tokenize(position, limit);
+                    position = limit;
+                    return true;
+                }
+                return false;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * Method makes the next portion of the input available in the buffer
+     *
+     * @throws IOException If the input cannot be read
+     */
+    private void fill() throws IOException {
+        if (channel != null) {
+            mapNextWindow();
+        } else {
+            readNextPortion();
+        }
+    }
+
+    /**
+     * Method maps the next window of the file. The window begins with the
+     * unread part of the line, and it is enlarged if this part takes the
+     * whole window
+     *
+     * @throws IOException If the file cannot be mapped
+     */
+    private void mapNextWindow() throws IOException {
+        long offset = windowOffset + position;
+        long available = remaining + limit - position;
+        if (available == 0) {
+            endOfInput = true;
+            return;
+        }
+        if (limit - position == windowSize) {
+            if (windowSize == Integer.MAX_VALUE) {
+                throw new IOException("The line of the database is too long");
+            }
+            windowSize = (int) Math.min(Integer.MAX_VALUE, windowSize * 2L);
+        }
+        int size = (int) Math.min(windowSize, available);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        discarded += position;
+        remaining = available - size;
+        windowOffset = offset;
+        position = 0;
+        limit = size;
+        endOfInput = remaining == 0;
+    }
+
+    /**
+     * Method moves the unread part of the line to the beginning of the buffer
+     * and reads the next portion of the stream
+     *
+     * @throws IOException If the stream cannot be read
+     */
+    private void readNextPortion() throws IOException {
+        if (position > 0) {
+            discarded += position;
+            System.arraycopy(bytes, position, bytes, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (limit == bytes.length) {
+            byte[] larger = new byte[bytes.length * 2];
+            System.arraycopy(bytes, 0, larger, 0, limit);
+            bytes = larger;
+            buffer = ByteBuffer.wrap(bytes);
+        }
+        int read = remaining > 0
+                ? in.read(bytes, limit, (int) Math.min(bytes.length - limit, remaining)) : -1;
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            limit += read;
+            remaining -= read;
+        }
+    }
+
+    /**
+     * Method finds the boundaries of the fields of the line. As in
+     * String.split(","), the empty fields at the end of the line are not
+     * counted
+     *
+     * @param from The offset of the first byte of the line
+     * @param to The offset after the last byte of the line
+     */
+    private void tokenize(int from, int to) {
+        lineStart = from;
+        lineEnd = to;
+        int count = 0;
+        int start = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || buffer.get(i) == ',') {
+                if (count == starts.length) {
+                    int[] largerStarts = new int[count * 2];
+                    int[] largerEnds = new int[count * 2];
+                    System.arraycopy(starts, 0, largerStarts, 0, count);
+                    System.arraycopy(ends, 0, largerEnds, 0, count);
+                    starts = largerStarts;
+                    ends = largerEnds;
+                }
+                starts[count] = start;
+                ends[count] = i;
+                count++;
+                start = i + 1;
+            }
+        }
+        while (count > 0 && starts[count - 1] == ends[count - 1]) {
+            count--;
+        }
+        fieldCount = count;
+    }
+
+    /**
+     * Method returns the number of bytes consumed by the lines read so far,
+     * including their line endings
+     *
+     * @return The offset of the next line from the beginning of the input
+     */
+    public long getOffset() {
+        return discarded + position;
+    }
+
+    /**
+     * Method returns the number of fields of the current line
+     *
+     * @return The number of fields up to the last non-empty one
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Method checks whether the field of the current line is empty
+     *
+     * @param index The index of the field
+     * @return true if the field is empty
+     */
+    public boolean isEmpty(int index) {
+        return starts[index] == ends[index];
+    }
+
+    /**
+     * Method returns the length of the field of the current line
+     *
+     * @param index The index of the field
+     * @return The number of bytes of the field
+     */
+    public int fieldLength(int index) {
+        return ends[index] - starts[index];
+    }
+
+    /**
+     * Method returns a byte of the field of the current line
+     *
+     * @param index The index of the field
+     * @param offset The offset of the byte in the field
+     * @return The byte of the field
+     */
+    public byte byteAt(int index, int offset) {
+        return buffer.get(starts[index] + offset);
+    }
+
+    /**
+     * Method returns the length of the current line
+     *
+     * @return The number of bytes of the line without its line ending
+     */
+    public int lineLength() {
+        return lineEnd - lineStart;
+    }
+
+    /**
+     * Method copies the bytes of the current line
+     *
+     * @param bytes The array into which the line is copied
+     * @param offset The position of the line in the array
+     */
+    public void copyLine(byte[] bytes, int offset) {
+        for (int i = lineStart; i < lineEnd; i++) {
+            bytes[offset++] = buffer.get(i);
+        }
+    }
+
+    /**
+     * Method computes the FNV-1a hash of the bytes of the field of the current
+     * line without copying them
+     *
+     * @param index The index of the field
+     * @return The hash of the field
+     */
+    public int hashField(int index) {
+        int hash = 0x811C9DC5;
+        for (int i = starts[index]; i < ends[index]; i++) {
+            hash = (hash ^ (buffer.get(i) & 0xFF)) * 0x01000193;
+        }
+        return hash;
+    }
+
+    /**
+     * Method compares the field of the current line with the bytes
+     *
+     * @param index The index of the field
+     * @param bytes The bytes of a value
+     * @return true if the field consists of the same bytes
+     */
+    public boolean fieldEquals(int index, byte[] bytes) {
+        if (ends[index] - starts[index] != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(starts[index] + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method copies the bytes of the field of the current line
+     *
+     * @param index The index of the field
+     * @return The bytes of the field
+     */
+    public byte[] copyField(int index) {
+        byte[] bytes = new byte[ends[index] - starts[index]];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(starts[index] + i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Method decodes the date field of the current line into the day of the
+     * epoch. The results are remembered for each distinct date of the input
+     *
+     * @param index The index of the field
+     * @return The day of the epoch or DateDecoder.NOT_GIVEN
+     */
+    public int getEpochDay(int index) {
+        return dateDecoder.decode(this, index);
+    }
+
+    /**
+     * Method parses the field of the current line as a decimal number directly
+     * from the buffer. Accepts the same values as Verifier.verifyInt
+     *
+     * @param index The index of the field
+     * @return Value or 0 on error
+     */
+    public int getInt(int index) {
+        int i = starts[index];
+        int end = ends[index];
+        if (i == end) {
+            return 0;
+        }
+        boolean negative = false;
+        byte first = buffer.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+            if (i == end) {
+                return 0;
+            }
+        }
+        int limitValue = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int result = 0;
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                // non-ASCII digits are left to Integer.parseInt
+                return buffer.get(i) < 0 ? Verifier.verifyInt(getString(index)) : 0;
+            }
+            if (result < limitValue / 10) {
+                return 0;
+            }
+            result *= 10;
+            if (result < limitValue + digit) {
+                return 0;
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Method returns the field of the current line as a string
+     *
+     * @param index The index of the field
+     * @return The contents of the field
+     */
+    public String getString(int index) {
+        int length = ends[index] - starts[index];
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), starts[index], length, charset);
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = buffer.get(starts[index] + i);
+        }
+        return new String(scratch, 0, length, charset);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        } else {
+            in.close();
+        }
+    }
+}
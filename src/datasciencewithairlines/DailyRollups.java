@@ -0,0 +1,347 @@
+package datasciencewithairlines;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Accumulator of the flights of each day: the flights, the cancelled flights
+ * and the sums and numbers of the departure and arrival delays of all flights,
+ * of each carrier and of each origin airport. The questions about a range of
+ * dates are answered from these rollups without reading the flights again
+ */
+public class DailyRollups implements FlightAccumulator {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int FLIGHTS = 0;
+    static final int CANCELLED = 1;
+    static final int DEP_DELAY = 2;
+    static final int DEP_DELAYS = 3;
+    static final int ARR_DELAY = 4;
+    static final int ARR_DELAYS = 5;
+    static final int COUNTERS = 6;
+
+    // the carriers and the airports are numbered as the entries of the maps
+    private ObjectLongMap<String> carriers = new ObjectLongMap<>();
+    private ObjectLongMap<String> airports = new ObjectLongMap<>();
+    private TreeMap<Integer, Day> days = new TreeMap<>();
+    private transient Day lastDay;
+    // the days found so far, numbered as the entries of dayNumbers, so the
+    // day of a row is found without boxing its number
+    private transient IntLongMap dayNumbers;
+    private transient Day[] dayOfNumber;
+
+    @Override
+    public void acceptCompleted(FlightTable flights, int row) {
+        accept(flights, row, false);
+    }
+
+    @Override
+    public void acceptCancelled(FlightTable flights, int row) {
+        accept(flights, row, true);
+    }
+
+    private void accept(FlightTable flights, int row, boolean cancelled) {
+        int flightDay = flights.getFlightDay(row);
+        if (flightDay == DateDecoder.NOT_GIVEN) {
+            return;
+        }
+        // the flights of a day usually follow each other
+        Day day = lastDay != null && lastDay.epochDay == flightDay ? lastDay : dayOf(flightDay);
+        lastDay = day;
+        int depDelay = flights.getDepDelay(row);
+        int arrDelay = flights.getArrDelay(row);
+        day.total = add(day.total, 0, cancelled, depDelay, arrDelay);
+        if (flights.getUniqueCarrierCode(row) != StringDictionary.NOT_FILLED) {
+            int carrier = carriers.insert(flights.getUniqueCarrier(row));
+            day.carriers = add(day.carriers, carrier, cancelled, depDelay, arrDelay);
+        }
+        if (flights.getOriginAirportIDCode(row) != StringDictionary.NOT_FILLED) {
+            int airport = airports.insert(flights.getOriginAirportID(row));
+            day.airports = add(day.airports, airport, cancelled, depDelay, arrDelay);
+        }
+    }
+
+    private Day dayOf(int epochDay) {
+        if (dayNumbers == null) {
+            dayNumbers = new IntLongMap();
+            dayOfNumber = new Day[16];
+        }
+        int number = dayNumbers.insert(epochDay);
+        if (number == dayOfNumber.length) {
+            dayOfNumber = Arrays.copyOf(dayOfNumber, number * 2);
+        }
+        if (dayOfNumber[number] == null) {
+            dayOfNumber[number] = days.computeIfAbsent(epochDay, Day::new);
+        }
+        return dayOfNumber[number];
+    }
+
+    private static long[] add(long[] counters, int number, boolean cancelled, int depDelay, int arrDelay) {
+        counters = ensureCapacity(counters, number);
+        int base = number * COUNTERS;
+        counters[base + FLIGHTS]++;
+        if (cancelled) {
+            counters[base + CANCELLED]++;
+        }
+        if (depDelay != 1000000) {
+            counters[base + DEP_DELAY] += depDelay;
+            counters[base + DEP_DELAYS]++;
+        }
+        if (arrDelay != 1000000) {
+            counters[base + ARR_DELAY] += arrDelay;
+            counters[base + ARR_DELAYS]++;
+        }
+        return counters;
+    }
+
+    private static long[] ensureCapacity(long[] counters, int number) {
+        if ((number + 1) * COUNTERS > counters.length) {
+            return Arrays.copyOf(counters, Math.max((number + 1) * COUNTERS, counters.length * 2));
+        }
+        return counters;
+    }
+
+    @Override
+    public void merge(FlightAccumulator other) {
+        DailyRollups next = (DailyRollups) other;
+        int[] carrierOf = new int[next.carriers.size()];
+        for (int i = 0; i < carrierOf.length; i++) {
+            carrierOf[i] = carriers.insert(next.carriers.keyAt(i));
+        }
+        int[] airportOf = new int[next.airports.size()];
+        for (int i = 0; i < airportOf.length; i++) {
+            airportOf[i] = airports.insert(next.airports.keyAt(i));
+        }
+        next.days.forEach((epochDay, nextDay) -> {
+            Day day = days.computeIfAbsent(epochDay, Day::new);
+            day.total = merge(day.total, nextDay.total, new int[]{0});
+            day.carriers = merge(day.carriers, nextDay.carriers, carrierOf);
+            day.airports = merge(day.airports, nextDay.airports, airportOf);
+        });
+    }
+
+    private static long[] merge(long[] counters, long[] other, int[] numberOf) {
+        // the arrays may be longer than the numbers of the keys
+        for (int i = 0; i < Math.min(other.length / COUNTERS, numberOf.length); i++) {
+            counters = ensureCapacity(counters, numberOf[i]);
+            for (int j = 0; j < COUNTERS; j++) {
+                counters[numberOf[i] * COUNTERS + j] += other[i * COUNTERS + j];
+            }
+        }
+        return counters;
+    }
+
+    /**
+     * The rollups are written by writeDays, not to the answers
+     *
+     * @param formattedOutput The answers of the current analysis
+     */
+    @Override
+    public void answer(FormattedOutput formattedOutput) {
+    }
+
+    /**
+     * Method returns the first date of the flights
+     *
+     * @return The date or null if no flight has a date
+     */
+    public LocalDate getFirstDate() {
+        return days.isEmpty() ? null : LocalDate.ofEpochDay(days.firstKey());
+    }
+
+    /**
+     * Method returns the last date of the flights
+     *
+     * @return The date or null if no flight has a date
+     */
+    public LocalDate getLastDate() {
+        return days.isEmpty() ? null : LocalDate.ofEpochDay(days.lastKey());
+    }
+
+    /**
+     * Method sums the flights between the dates
+     *
+     * @param from The first date
+     * @param to The last date
+     * @return The summary of all flights of these days
+     */
+    public Summary summarize(LocalDate from, LocalDate to) {
+        Summary summary = new Summary();
+        range(from, to).values().forEach(day -> summary.add(day.total, 0));
+        return summary;
+    }
+
+    /**
+     * Method sums the flights of each carrier between the dates
+     *
+     * @param from The first date
+     * @param to The last date
+     * @return The summaries of the carriers in the order of their names
+     */
+    public Map<String, Summary> summarizeByCarrier(LocalDate from, LocalDate to) {
+        Map<String, Summary> summaries = new TreeMap<>();
+        range(from, to).values().forEach(day -> addAll(summaries, day.carriers, carriers));
+        return summaries;
+    }
+
+    /**
+     * Method sums the flights from each origin airport between the dates
+     *
+     * @param from The first date
+     * @param to The last date
+     * @return The summaries of the airports in the order of their IDs
+     */
+    public Map<String, Summary> summarizeByAirport(LocalDate from, LocalDate to) {
+        Map<String, Summary> summaries = new TreeMap<>();
+        range(from, to).values().forEach(day -> addAll(summaries, day.airports, airports));
+        return summaries;
+    }
+
+    /**
+     * Method returns the summary of each day between the dates
+     *
+     * @param from The first date
+     * @param to The last date
+     * @return The summaries of the days with flights in the order of the dates
+     */
+    public Map<LocalDate, Summary> daily(LocalDate from, LocalDate to) {
+        Map<LocalDate, Summary> summaries = new LinkedHashMap<>();
+        range(from, to).forEach((epochDay, day) -> {
+            Summary summary = new Summary();
+            summary.add(day.total, 0);
+            summaries.put(LocalDate.ofEpochDay(epochDay), summary);
+        });
+        return summaries;
+    }
+
+    private Map<Integer, Day> range(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return new TreeMap<>();
+        }
+        return days.subMap((int) from.toEpochDay(), true, (int) to.toEpochDay(), true);
+    }
+
+    private static void addAll(Map<String, Summary> summaries, long[] counters, ObjectLongMap<String> keys) {
+        for (int i = 0; i < counters.length / COUNTERS; i++) {
+            if (counters[i * COUNTERS + FLIGHTS] > 0) {
+                summaries.computeIfAbsent(keys.keyAt(i), key -> new Summary()).add(counters, i);
+            }
+        }
+    }
+
+    /**
+     * Method writes the summary of each day to days.csv: the date, the
+     * flights, the cancelled flights and the numbers and averages of the
+     * departure and arrival delays
+     *
+     * @param dirName The absolute path to the folder of the answers
+     */
+    public void writeDays(String dirName) {
+        File out = new File(dirName, "days.csv");
+
+        try (PrintWriter pw = new PrintWriter(out)) {
+            pw.println("date,flights,cancelled,depDelays,avgDepDelay,arrDelays,avgArrDelay");
+            days.forEach((epochDay, day) -> {
+                Summary summary = new Summary();
+                summary.add(day.total, 0);
+                pw.println(LocalDate.ofEpochDay(epochDay) + "," + summary);
+            });
+        } catch (IOException e) {
+            System.out.println("Could not write the days.");
+        }
+    }
+
+    /**
+     * The counters of one day: all flights, and the flights of each carrier
+     * and each origin airport by their numbers
+     */
+    private static class Day implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private int epochDay;
+        private long[] total = new long[COUNTERS];
+        private long[] carriers = new long[0];
+        private long[] airports = new long[0];
+
+        Day(int epochDay) {
+            this.epochDay = epochDay;
+        }
+    }
+
+    /**
+     * The sums of the flights of a group over a range of days
+     */
+    public static class Summary {
+
+        private long[] counters = new long[COUNTERS];
+
+        void add(long[] other, int number) {
+            for (int i = 0; i < COUNTERS; i++) {
+                counters[i] += other[number * COUNTERS + i];
+            }
+        }
+
+        public long getFlights() {
+            return counters[FLIGHTS];
+        }
+
+        public long getCancelled() {
+            return counters[CANCELLED];
+        }
+
+        /**
+         * Method returns the share of cancelled flights
+         *
+         * @return The share in percent or NaN if there are no flights
+         */
+        public double getCancelledShare() {
+            return (double) counters[CANCELLED] / counters[FLIGHTS] * 100;
+        }
+
+        public long getDepDelays() {
+            return counters[DEP_DELAYS];
+        }
+
+        /**
+         * Method returns the average departure delay
+         *
+         * @return The delay in minutes or NaN if no delay is known
+         */
+        public double getAverageDepDelay() {
+            return (double) counters[DEP_DELAY] / counters[DEP_DELAYS];
+        }
+
+        public long getArrDelays() {
+            return counters[ARR_DELAYS];
+        }
+
+        /**
+         * Method returns the average arrival delay
+         *
+         * @return The delay in minutes or NaN if no delay is known
+         */
+        public double getAverageArrDelay() {
+            return (double) counters[ARR_DELAY] / counters[ARR_DELAYS];
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d,%d,%d,%s,%d,%s", getFlights(), getCancelled(),
+                    getDepDelays(), format(getAverageDepDelay()), getArrDelays(), format(getAverageArrDelay()));
+        }
+
+        private static String format(double value) {
+            return Double.isNaN(value) ? "" : String.format(Locale.ROOT, "%.2f", value);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package datasciencewithairlines;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Class that is used to decode the values of the FlightDate field into days of
+ * the epoch. The "MM-dd-yy" and "MM/dd/yy" layouts are decoded by digit
+ * arithmetic, and the results are remembered for each distinct value, because
+ * a file usually contains only a few dozen different dates
+ */
+public class DateDecoder {
+
+    /**
+     * The day of the epoch of the date "01-01-3999", which is used when the
+     * date is not given
+     */
+    public static final int NOT_GIVEN = (int) LocalDate.of(3999, 1, 1).toEpochDay();
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int CACHE_SIZE = 64;
+    private static final DateTimeFormatter DASH_FORMATTER = DateTimeFormatter.ofPattern("MM-dd-yy");
+    private static final DateTimeFormatter SLASH_FORMATTER = DateTimeFormatter.ofPattern("MM/dd/yy");
+
+    private long[] cachedValues = new long[CACHE_SIZE];
+    private int[] cachedDays = new int[CACHE_SIZE];
+
+    /**
+     * Method decodes the date field of the current line of the tokenizer. The
+     * result for each distinct value of the field is remembered
+     *
+     * @param line The tokenizer positioned on the flights data
+     * @param index The index of the date field
+     * @return The day of the epoch or NOT_GIVEN if the date is not given
+     */
+    public int decode(CsvTokenizer line, int index) {
+        if (line.fieldLength(index) < 8) {
+            return NOT_GIVEN;
+        } else if (line.fieldLength(index) > 8) {
+            return decode(line.getString(index));
+        }
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = value << 8 | (line.byteAt(index, i) & 0xFF);
+        }
+        int slot = (int) (value ^ value >>> 29) & (CACHE_SIZE - 1);
+        if (value != 0 && cachedValues[slot] == value) {
+            return cachedDays[slot];
+        }
+        int day = decodePacked(value);
+        if (day == NO_DATE) {
+            day = decode(line.getString(index));
+        }
+        cachedValues[slot] = value;
+        cachedDays[slot] = day;
+        return day;
+    }
+
+    /**
+     * Method decodes the value of the date field in the same way as the
+     * "MM-dd-yy" and "MM/dd/yy" formatters do
+     *
+     * @param str The value of the field or "Not filled" if it is absent
+     * @return The day of the epoch or NOT_GIVEN if the date is not given
+     */
+    public static int decode(String str) {
+        if (str.length() != 8) {
+            return NOT_GIVEN;
+        }
+        long value = 0;
+        boolean ascii = true;
+        for (int i = 0; i < 8; i++) {
+            char c = str.charAt(i);
+            ascii &= c < 128;
+            value = value << 8 | (c & 0xFF);
+        }
+        int day = ascii ? decodePacked(value) : NO_DATE;
+        if (day != NO_DATE) {
+            return day;
+        }
+        if (str.contains("-")) {
+            return (int) LocalDate.parse(str, DASH_FORMATTER).toEpochDay();
+        } else if (str.contains("/")) {
+            return (int) LocalDate.parse(str, SLASH_FORMATTER).toEpochDay();
+        } else {
+            return NOT_GIVEN;
+        }
+    }
+
+    /**
+     * Method decodes eight ASCII characters packed into a number by digit
+     * arithmetic. As with the formatters, a day which is too large for the
+     * month is moved to the last day of the month
+     *
+     * @param value The characters of the field, the first one in the highest
+     * byte
+     * @return The day of the epoch or NO_DATE if the value is left to the
+     * formatters
+     */
+    private static int decodePacked(long value) {
+        int separator = (int) (value >>> 40 & 0xFF);
+        if ((separator != '-' && separator != '/') || (value >>> 16 & 0xFF) != separator) {
+            return NO_DATE;
+        }
+        int month = twoDigits(value >>> 48);
+        int day = twoDigits(value >>> 24);
+        int year = twoDigits(value);
+        if (month < 1 || month > 12 || day < 1 || day > 31 || year < 0) {
+            return NO_DATE;
+        }
+        year += 2000;
+        return (int) epochDay(year, month, Math.min(day, monthLength(year, month)));
+    }
+
+    private static int twoDigits(long value) {
+        int high = (int) (value >>> 8 & 0xFF) - '0';
+        int low = (int) (value & 0xFF) - '0';
+        if (high < 0 || high > 9 || low < 0 || low > 9) {
+            return -1;
+        }
+        return high * 10 + low;
+    }
+
+    private static int monthLength(int year, int month) {
+        switch (month) {
+            case 2:
+                return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // the same calculation as LocalDate.toEpochDay for a year of the common era
+    private static long epochDay(int year, int month, int day) {
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (monthLength(year, 2) == 28) {
+                total--;
+            }
+        }
+        return total - 719528;
+    }
+}
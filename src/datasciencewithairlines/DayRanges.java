@@ -0,0 +1,205 @@
+package datasciencewithairlines;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Class that is used to find the rows of the table by the date of the flight
+ * without reading the other rows. The consecutive rows of the same day form a
+ * run, and the runs of each day are listed in the order of the rows. The
+ * runs of day days[i] are the runs offsets[i] to offsets[i + 1] - 1, so a
+ * database sorted by the date has one run for each day
+ */
+public class DayRanges {
+
+    static final int MIN_RUN = 16;
+
+    private int rows;
+    private int[] days;
+    private int[] offsets;
+    private int[] runStarts;
+    private int[] runEnds;
+
+    /**
+     * Constructor of the ranges read from a snapshot
+     *
+     * @param rows The number of the rows of the table
+     * @param days The days of the epoch in ascending order
+     * @param offsets The first run of each day and the number of the runs
+     * @param runStarts The first row of each run
+     * @param runEnds The row after the last row of each run
+     */
+    DayRanges(int rows, int[] days, int[] offsets, int[] runStarts, int[] runEnds) {
+        this.rows = rows;
+        this.days = days;
+        this.offsets = offsets;
+        this.runStarts = runStarts;
+        this.runEnds = runEnds;
+    }
+
+    /**
+     * Method finds the runs of the days of the table in one pass over the
+     * column of the dates
+     *
+     * @param flights The table of the flights
+     * @return The ranges of the rows of each day
+     */
+    public static DayRanges build(FlightTable flights) {
+        int[] dates = flights.intColumn(FlightColumn.FLIGHT_DATE);
+        int rows = flights.size();
+        int runs = 0;
+        for (int row = 0; row < rows; row++) {
+            if (row == 0 || dates[row] != dates[row - 1]) {
+                runs++;
+            }
+        }
+        int[] dayOfRun = new int[runs];
+        int[] startOfRun = new int[runs];
+        for (int row = 0, run = 0; row < rows; row++) {
+            if (row == 0 || dates[row] != dates[row - 1]) {
+                dayOfRun[run] = dates[row];
+                startOfRun[run++] = row;
+            }
+        }
+        int[] days = distinct(dayOfRun);
+        // counting sort of the runs by the day keeps the order of the rows
+        int[] offsets = new int[days.length + 1];
+        int[] indexOfRun = new int[runs];
+        for (int run = 0; run < runs; run++) {
+            indexOfRun[run] = Arrays.binarySearch(days, dayOfRun[run]);
+            offsets[indexOfRun[run] + 1]++;
+        }
+        for (int i = 0; i < days.length; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] next = Arrays.copyOf(offsets, days.length);
+        int[] runStarts = new int[runs];
+        int[] runEnds = new int[runs];
+        for (int run = 0; run < runs; run++) {
+            int position = next[indexOfRun[run]]++;
+            runStarts[position] = startOfRun[run];
+            runEnds[position] = run + 1 < runs ? startOfRun[run + 1] : rows;
+        }
+        return new DayRanges(rows, days, offsets, runStarts, runEnds);
+    }
+
+    private static int[] distinct(int[] values) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    /**
+     * Method checks that the ranges describe all rows of the table
+     *
+     * @param flights The table of the flights
+     * @return true if the ranges were built for the same number of rows
+     */
+    public boolean covers(FlightTable flights) {
+        return rows == flights.size();
+    }
+
+    /**
+     * Method finds the rows of the flights between the dates
+     *
+     * @param from The first date
+     * @param to The last date
+     * @return The rows in ascending order
+     */
+    public int[] rows(LocalDate from, LocalDate to) {
+        return rows((int) from.toEpochDay(), (int) to.toEpochDay());
+    }
+
+    /**
+     * Method finds the rows of the flights between the days of the epoch
+     *
+     * @param fromDay The first day
+     * @param toDay The last day
+     * @return The rows in ascending order
+     */
+    public int[] rows(int fromDay, int toDay) {
+        int first = lowerBound(fromDay);
+        int last = toDay == Integer.MAX_VALUE ? days.length : lowerBound(toDay + 1);
+        int fromRun = offsets[first];
+        int toRun = offsets[Math.max(first, last)];
+        long[] runs = new long[toRun - fromRun];
+        int count = 0;
+        for (int run = fromRun; run < toRun; run++) {
+            runs[run - fromRun] = (long) runStarts[run] << 32 | runEnds[run];
+            count += runEnds[run] - runStarts[run];
+        }
+        // the runs of several days are put back in the order of the rows
+        if (last - first > 1) {
+            Arrays.sort(runs);
+        }
+        int[] found = new int[count];
+        int position = 0;
+        for (long run : runs) {
+            for (int row = (int) (run >>> 32); row < (int) run; row++) {
+                found[position++] = row;
+            }
+        }
+        return found;
+    }
+
+    private int lowerBound(int day) {
+        int index = Arrays.binarySearch(days, day);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Method returns the latest date of the flights
+     *
+     * @return The day of the epoch or DateDecoder.NOT_GIVEN if no flight has
+     * a date
+     */
+    public int getLastDay() {
+        for (int i = days.length - 1; i >= 0; i--) {
+            if (days[i] != DateDecoder.NOT_GIVEN) {
+                return days[i];
+            }
+        }
+        return DateDecoder.NOT_GIVEN;
+    }
+
+    /**
+     * Method checks whether the days are mixed in the table, so the average
+     * run is shorter than MIN_RUN rows. Reading all rows of such a table is
+     * faster than collecting its runs
+     *
+     * @return true if the runs are short
+     */
+    public boolean isFragmented() {
+        return (long) runStarts.length * MIN_RUN > rows;
+    }
+
+    public int getDayCount() {
+        return days.length;
+    }
+
+    public int getRunCount() {
+        return runStarts.length;
+    }
+
+    int[] getDays() {
+        return days;
+    }
+
+    int[] getOffsets() {
+        return offsets;
+    }
+
+    int[] getRunStarts() {
+        return runStarts;
+    }
+
+    int[] getRunEnds() {
+        return runEnds;
+    }
+}
@@ -0,0 +1,213 @@
+package datasciencewithairlines;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Accumulator of the distributions of the departure and arrival delays of
+ * the completed flights for each carrier, each origin airport and each day of
+ * the week. The delays are counted in histograms as the flights are loaded.
+ * The delays which are missing at the end of a short row (1000000) are
+ * skipped, while an empty delay field inside the row is read as 0 and
+ * counted, as in the answers. The histograms of a carrier or an airport are
+ * found by the code of the row, so a row is counted without a string lookup
+ */
+public class DelayDistributions implements FlightAccumulator {
+
+    private static final long serialVersionUID = 1L;
+
+    static final double[] PERCENTILES = {50, 90, 99};
+
+    private Groups carriers = new Groups();
+    private Groups origins = new Groups();
+    private Delays[] daysOfWeek = new Delays[8];
+
+    @Override
+    public void acceptCompleted(FlightTable flights, int row) {
+        int depDelay = flights.getDepDelay(row);
+        int arrDelay = flights.getArrDelay(row);
+        if (depDelay == 1000000 && arrDelay == 1000000) {
+            return;
+        }
+        int carrier = flights.getUniqueCarrierCode(row);
+        if (carrier != StringDictionary.NOT_FILLED) {
+            carriers.of(flights.getCarriers(), carrier).add(depDelay, arrDelay);
+        }
+        int origin = flights.getOriginCode(row);
+        if (origin != StringDictionary.NOT_FILLED) {
+            origins.of(flights.getAirports(), origin).add(depDelay, arrDelay);
+        }
+        int dayOfWeek = flights.getDayOfWeek(row);
+        if (dayOfWeek >= 1 && dayOfWeek <= 7) {
+            if (daysOfWeek[dayOfWeek] == null) {
+                daysOfWeek[dayOfWeek] = new Delays();
+            }
+            daysOfWeek[dayOfWeek].add(depDelay, arrDelay);
+        }
+    }
+
+    @Override
+    public void merge(FlightAccumulator other) {
+        DelayDistributions next = (DelayDistributions) other;
+        carriers.merge(next.carriers);
+        origins.merge(next.origins);
+        for (int day = 1; day <= 7; day++) {
+            if (next.daysOfWeek[day] == null) {
+                continue;
+            }
+            if (daysOfWeek[day] == null) {
+                daysOfWeek[day] = new Delays();
+            }
+            daysOfWeek[day].merge(next.daysOfWeek[day]);
+        }
+    }
+
+    /**
+     * The distributions are written by writeDelays, not to the answers
+     *
+     * @param formattedOutput The answers of the current analysis
+     */
+    @Override
+    public void answer(FormattedOutput formattedOutput) {
+    }
+
+    /**
+     * Method writes the 50th, 90th and 99th percentiles of the delays to
+     * delays.csv: one line for each carrier, origin airport and day of the
+     * week with the number of the delays and their percentiles. The
+     * percentiles of a group without delays are empty
+     *
+     * @param dirName The absolute path to the folder of the answers
+     */
+    public void writeDelays(String dirName) {
+        File out = new File(dirName, "delays.csv");
+
+        try (PrintWriter pw = new PrintWriter(out)) {
+            pw.println("group,key,depDelays,depP50,depP90,depP99,arrDelays,arrP50,arrP90,arrP99");
+            new TreeMap<>(carriers.delays).forEach((carrier, delays) -> pw.println("carrier," + carrier + delays));
+            new TreeMap<>(origins.delays).forEach((origin, delays) -> pw.println("origin," + origin + delays));
+            for (int day = 1; day <= 7; day++) {
+                if (daysOfWeek[day] != null) {
+                    pw.println("dayOfWeek," + day + daysOfWeek[day]);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Could not write the delays.");
+        }
+    }
+
+    public Map<String, Delays> getCarriers() {
+        return carriers.delays;
+    }
+
+    public Map<String, Delays> getOrigins() {
+        return origins.delays;
+    }
+
+    /**
+     * Method returns the delays of the day of the week
+     *
+     * @param dayOfWeek The day of the week from 1 (Monday) to 7
+     * @return The delays or null if no flight of the day has a delay
+     */
+    public Delays getDayOfWeek(int dayOfWeek) {
+        return daysOfWeek[dayOfWeek];
+    }
+
+    /**
+     * The delays of the values of a string column. The delays are kept by the
+     * values, so the groups of different tables can be merged, and the delays
+     * of each code are remembered for the last dictionary only, so each value
+     * is looked up by its string once for each table
+     */
+    private static class Groups implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private Map<String, Delays> delays = new LinkedHashMap<>();
+        private transient StringDictionary dictionary;
+        private transient Delays[] delaysOfCode;
+
+        /**
+         * Method finds the delays of the code and adds the group if the value
+         * is new
+         *
+         * @param dictionary The dictionary of the column of the table
+         * @param code The code of the value in the dictionary
+         * @return The delays of the value
+         */
+        Delays of(StringDictionary dictionary, int code) {
+            if (this.dictionary != dictionary) {
+                this.dictionary = dictionary;
+                delaysOfCode = new Delays[Math.max(16, dictionary.size())];
+            }
+            if (code >= delaysOfCode.length) {
+                delaysOfCode = Arrays.copyOf(delaysOfCode, Math.max(code + 1, delaysOfCode.length * 2));
+            }
+            if (delaysOfCode[code] == null) {
+                delaysOfCode[code] = delays.computeIfAbsent(dictionary.value(code), key -> new Delays());
+            }
+            return delaysOfCode[code];
+        }
+
+        void merge(Groups other) {
+            other.delays.forEach((key, value) -> delays.computeIfAbsent(key, k -> new Delays()).merge(value));
+        }
+    }
+
+    /**
+     * The histograms of the departure and arrival delays of one group of
+     * flights
+     */
+    public static class Delays implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private DelayHistogram depDelays = new DelayHistogram();
+        private DelayHistogram arrDelays = new DelayHistogram();
+
+        void add(int depDelay, int arrDelay) {
+            if (depDelay != 1000000) {
+                depDelays.add(depDelay);
+            }
+            if (arrDelay != 1000000) {
+                arrDelays.add(arrDelay);
+            }
+        }
+
+        void merge(Delays other) {
+            depDelays.merge(other.depDelays);
+            arrDelays.merge(other.arrDelays);
+        }
+
+        public DelayHistogram getDepDelays() {
+            return depDelays;
+        }
+
+        public DelayHistogram getArrDelays() {
+            return arrDelays;
+        }
+
+        @Override
+        public String toString() {
+            return format(depDelays) + format(arrDelays);
+        }
+
+        private static String format(DelayHistogram histogram) {
+            StringBuilder line = new StringBuilder().append(',').append(histogram.getCount());
+            for (double percent : PERCENTILES) {
+                line.append(',');
+                if (histogram.getCount() > 0) {
+                    line.append(histogram.percentile(percent));
+                }
+            }
+            return line.toString();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package datasciencewithairlines;
+
+import java.io.Serializable;
+
+/**
+ * Class that is used to count the delays in buckets of fixed bounds, so the
+ * percentiles are found without keeping or sorting the delays. The buckets
+ * are one minute wide from -120 to 359 minutes, five minutes wide up to 1079
+ * and fifteen minutes wide up to 2159 minutes; the earlier and the later
+ * delays are counted in two more buckets
+ */
+public class DelayHistogram implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int MIN_DELAY = -120;
+    static final int FIVE_MINUTES = 360;
+    static final int FIFTEEN_MINUTES = 1080;
+    static final int MAX_DELAY = 2160;
+    static final int BUCKETS = 2 + (FIVE_MINUTES - MIN_DELAY)
+            + (FIFTEEN_MINUTES - FIVE_MINUTES) / 5 + (MAX_DELAY - FIFTEEN_MINUTES) / 15;
+
+    private long[] counts = new long[BUCKETS];
+    private long count;
+    private int min = Integer.MAX_VALUE;
+    private int max = Integer.MIN_VALUE;
+
+    /**
+     * Method counts the delay
+     *
+     * @param delay The delay in minutes
+     */
+    public void add(int delay) {
+        counts[bucketOf(delay)]++;
+        count++;
+        if (delay < min) {
+            min = delay;
+        }
+        if (delay > max) {
+            max = delay;
+        }
+    }
+
+    /**
+     * Method adds the counts of the other histogram
+     *
+     * @param other The histogram of the next part of the database
+     */
+    public void merge(DelayHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Method finds the bucket of the delay
+     *
+     * @param delay The delay in minutes
+     * @return The index of the bucket
+     */
+    static int bucketOf(int delay) {
+        if (delay < MIN_DELAY) {
+            return 0;
+        } else if (delay < FIVE_MINUTES) {
+            return 1 + delay - MIN_DELAY;
+        } else if (delay < FIFTEEN_MINUTES) {
+            return 1 + (FIVE_MINUTES - MIN_DELAY) + (delay - FIVE_MINUTES) / 5;
+        } else if (delay < MAX_DELAY) {
+            return 1 + (FIVE_MINUTES - MIN_DELAY) + (FIFTEEN_MINUTES - FIVE_MINUTES) / 5
+                    + (delay - FIFTEEN_MINUTES) / 15;
+        }
+        return BUCKETS - 1;
+    }
+
+    /**
+     * Method finds the smallest delay of the bucket
+     *
+     * @param bucket The index of the bucket after the first
+     * @return The delay in minutes
+     */
+    static int lowerBound(int bucket) {
+        int minutes = bucket - 1;
+        if (minutes < FIVE_MINUTES - MIN_DELAY) {
+            return MIN_DELAY + minutes;
+        }
+        minutes -= FIVE_MINUTES - MIN_DELAY;
+        if (minutes < (FIFTEEN_MINUTES - FIVE_MINUTES) / 5) {
+            return FIVE_MINUTES + 5 * minutes;
+        }
+        minutes -= (FIFTEEN_MINUTES - FIVE_MINUTES) / 5;
+        return FIFTEEN_MINUTES + 15 * minutes;
+    }
+
+    /**
+     * Method finds the percentile of the delays by the nearest rank. The
+     * percentiles in the one-minute buckets are exact, in the wider buckets
+     * they are interpolated between the bounds of the bucket, and in the
+     * outer buckets they are the smallest or the largest delay counted
+     *
+     * @param percent The percentile, for example 99
+     * @return The delay in minutes or Integer.MIN_VALUE if no delay is counted
+     */
+    public int percentile(double percent) {
+        if (count == 0) {
+            return Integer.MIN_VALUE;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percent / 100 * count));
+        long before = 0;
+        int bucket = 0;
+        while (before + counts[bucket] < rank) {
+            before += counts[bucket++];
+        }
+        if (bucket == 0) {
+            return min;
+        } else if (bucket == BUCKETS - 1 || rank == count) {
+            return max;
+        }
+        int width = lowerBound(bucket + 1) - lowerBound(bucket);
+        // the delays are taken as spread evenly over a wider bucket
+        int delay = lowerBound(bucket) + (int) ((rank - before - 1) * width / counts[bucket]);
+        return Math.max(min, Math.min(max, delay));
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public int getMin() {
+        return min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,186 @@
+package datasciencewithairlines;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class that is used to describe a part of the database file. The parts begin
+ * at the beginning of a line, so they can be read independently of each other
+ */
+public class FileChunk {
+
+    private File file;
+    private long start;
+    private long end;
+
+    /**
+     * Constructor of the part of the file
+     *
+     * @param file The file of the database
+     * @param start The offset of the first byte of the part
+     * @param end The offset after the last byte of the part
+     */
+    public FileChunk(File file, long start, long end) {
+        this.file = file;
+        this.start = start;
+        this.end = end;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * Method checks whether the part begins with the header of the database
+     *
+     * @return true for the first part of the file
+     */
+    public boolean isFirst() {
+        return start == 0;
+    }
+
+    /**
+     * Method opens the tokenizer which reads only the lines of this part
+     *
+     * @return The tokenizer positioned before the first line of the part
+     * @throws IOException If the file cannot be read
+     */
+    public CsvTokenizer open() throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            in.getChannel().position(start);
+        } catch (IOException ex) {
+            in.close();
+            throw ex;
+        }
+        return new CsvTokenizer(in, end - start);
+    }
+
+    /**
+     * Method opens the tokenizer which parses the lines of this part in place
+     * in the memory-mapped file
+     *
+     * @return The tokenizer positioned before the first line of the part
+     * @throws IOException If the file cannot be read
+     */
+    public CsvTokenizer openMapped() throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        return new CsvTokenizer(channel, start, end - start);
+    }
+
+    /**
+     * Method splits the file into parts of about the same size. The border of
+     * the parts is moved to the beginning of the next line
+     *
+     * @param file The file of the database
+     * @param count The desired number of parts
+     * @return The parts of the file in the order of their position
+     * @throws IOException If the file cannot be read
+     */
+    public static List<FileChunk> split(File file, int count) throws IOException {
+        return split(file, 0, file.length(), count);
+    }
+
+    /**
+     * Method splits a range of the file into parts of about the same size.
+     * The range must begin at the beginning of a line
+     *
+     * @param file The file of the database
+     * @param from The offset of the first byte of the range
+     * @param to The offset after the last byte of the range
+     * @param count The desired number of parts
+     * @return The parts of the range in the order of their position
+     * @throws IOException If the file cannot be read
+     */
+    public static List<FileChunk> split(File file, long from, long to, int count) throws IOException {
+        long length = to - from;
+        List<FileChunk> chunks = new ArrayList<>();
+        long start = from;
+        for (int i = 1; i < count && start < to; i++) {
+            long border = nextLineStart(file, Math.max(start, from + length / count * i));
+            if (border >= to) {
+                break;
+            }
+            if (border > start) {
+                chunks.add(new FileChunk(file, start, border));
+                start = border;
+            }
+        }
+        chunks.add(new FileChunk(file, start, to));
+        return chunks;
+    }
+
+    /**
+     * Method finds the end of the last complete line of the file, so that a
+     * line which is still being written is left for the next analysis. A "\r"
+     * at the very end of the file is not taken as the end of a line, because
+     * it may be followed by "\n"
+     *
+     * @param file The file of the database
+     * @param from The offset before which the search stops
+     * @return The offset after the end of the last complete line or from if
+     * there is no complete line after it
+     * @throws IOException If the file cannot be read
+     */
+    static long lastLineEnd(File file, long from) throws IOException {
+        long length = file.length();
+        byte[] bytes = new byte[1 << 16];
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            for (long end = length; end > from; ) {
+                long start = Math.max(from, end - bytes.length);
+                in.seek(start);
+                in.readFully(bytes, 0, (int) (end - start));
+                for (int i = (int) (end - start) - 1; i >= 0; i--) {
+                    if (bytes[i] == '\n' || (bytes[i] == '\r' && start + i < length - 1)) {
+                        return start + i + 1;
+                    }
+                }
+                end = start;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Method finds the beginning of the first line which begins at the
+     * position or after it. Lines may end with "\n", "\r\n" or "\r"
+     *
+     * @param file The file of the database
+     * @param position The offset from which the search begins
+     * @return The offset of the beginning of the line or the length of the file
+     * @throws IOException If the file cannot be read
+     */
+    static long nextLineStart(File file, long position) throws IOException {
+        if (position == 0) {
+            return 0;
+        }
+        try (FileInputStream fin = new FileInputStream(file)) {
+            fin.getChannel().position(position - 1);
+            InputStream in = new BufferedInputStream(fin);
+            long offset = position - 1;
+            int previous = in.read();
+            int current = in.read();
+            while (previous >= 0) {
+                offset++;
+                if (previous == '\n' || (previous == '\r' && current != '\n')) {
+                    return offset;
+                }
+                previous = current;
+                current = in.read();
+            }
+            return offset;
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package datasciencewithairlines;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 
 /**
  * Сlass that is used to describe the flight data model
  */
-public class Flight {
+public class Flight implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private int dayofMonth;
     private int dayOfWeek;
@@ -0,0 +1,63 @@
+package datasciencewithairlines;
+
+import java.io.Serializable;
+
+/**
+ * Interface that is used to collect the data for a question flight by flight,
+ * so that all questions can be answered in a single pass over the database.
+ * The accumulators are serializable, so the collected data can be saved and
+ * merged with the data of other parts of the database later
+ */
+public interface FlightAccumulator extends Serializable {
+
+    /**
+     * Method takes into account the next completed flight of the database
+     *
+     * @param flights The table with the flight
+     * @param row The row of the completed (or diverted) flight
+     */
+    default void acceptCompleted(FlightTable flights, int row) {
+    }
+
+    /**
+     * Method takes into account the next cancelled flight of the database
+     *
+     * @param flights The table with the flight
+     * @param row The row of the cancelled flight
+     */
+    default void acceptCancelled(FlightTable flights, int row) {
+    }
+
+    /**
+     * Method adds the data collected by the accumulator of the next part of
+     * the database
+     *
+     * @param other The accumulator of the same type
+     */
+    void merge(FlightAccumulator other);
+
+    /**
+     * Method writes the answer based on the collected data
+     *
+     * @param formattedOutput The answers of the current analysis
+     */
+    void answer(FormattedOutput formattedOutput);
+
+    /**
+     * Method adds the top-K lists of the question to the rankings. The
+     * questions with a single answer add nothing
+     *
+     * @param rankings The rankings of the current analysis
+     */
+    default void rank(Rankings rankings) {
+    }
+
+    /**
+     * Method adds the metrics of the collected data to the metrics of the
+     * analysis. The exact accumulators add nothing
+     *
+     * @param metrics The metrics of the current analysis
+     */
+    default void report(RunMetrics metrics) {
+    }
+}
@@ -0,0 +1,77 @@
+package datasciencewithairlines;
+
+import java.time.LocalDate;
+
+/**
+ * Class that is used to name the columns of the flights table in queries.
+ * Each column knows the value which the table keeps when the field of the
+ * database is empty or incorrect, so a query can skip such rows
+ */
+public enum FlightColumn {
+
+    DAY_OF_MONTH(false, 0),
+    DAY_OF_WEEK(false, 0),
+    FLIGHT_DATE(false, DateDecoder.NOT_GIVEN),
+    UNIQUE_CARRIER(true, StringDictionary.NOT_FILLED),
+    TAIL_NUM(true, StringDictionary.NOT_FILLED),
+    ORIGIN_AIRPORT_ID(true, StringDictionary.NOT_FILLED),
+    ORIGIN(true, StringDictionary.NOT_FILLED),
+    ORIGIN_STATE_NAME(true, StringDictionary.NOT_FILLED),
+    DEST_AIRPORT_ID(true, StringDictionary.NOT_FILLED),
+    DEST(true, StringDictionary.NOT_FILLED),
+    DEST_STATE_NAME(true, StringDictionary.NOT_FILLED),
+    DEP_TIME(false, 0),
+    DEP_DELAY(false, 1000000),
+    WHEELS_OFF(false, 0),
+    WHEELS_ON(false, 0),
+    ARR_TIME(false, 0),
+    ARR_DELAY(false, 1000000),
+    CANCELLED(false, Integer.MIN_VALUE),
+    CANCELLATION_CODE(true, StringDictionary.NOT_FILLED),
+    DIVERTED(false, Integer.MIN_VALUE),
+    AIR_TIME(false, Integer.MIN_VALUE),
+    DISTANCE(false, Integer.MIN_VALUE);
+
+    private final boolean dictionary;
+    private final int missing;
+
+    private FlightColumn(boolean dictionary, int missing) {
+        this.dictionary = dictionary;
+        this.missing = missing;
+    }
+
+    /**
+     * Method tells whether the column keeps the codes of a dictionary instead
+     * of numbers
+     *
+     * @return true for the string columns
+     */
+    public boolean isDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Method returns the value kept for an empty or incorrect field. The
+     * columns whose every value is meaningful return Integer.MIN_VALUE
+     *
+     * @return The code of "Not filled", the default of the delays (1000000)
+     * or 0 for the days and times
+     */
+    public int getMissing() {
+        return missing;
+    }
+
+    /**
+     * Method formats the value of the column as it is shown in the answers
+     *
+     * @param flights The table of the value
+     * @param value The number or the code of the string
+     * @return The string of the dictionary, the date or the number
+     */
+    public String format(FlightTable flights, int value) {
+        if (dictionary) {
+            return flights.dictionary(this).value(value);
+        }
+        return this == FLIGHT_DATE ? LocalDate.ofEpochDay(value).toString() : Integer.toString(value);
+    }
+}
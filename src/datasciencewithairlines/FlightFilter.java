@@ -0,0 +1,473 @@
+package datasciencewithairlines;
+
+import java.time.LocalDate;
+import java.util.function.Predicate;
+
+/**
+ * Interface that is used to select the flights for a query. A filter is bound
+ * to a table once, and then it narrows blocks of row numbers in place, one
+ * column at a time, instead of testing every flight against every condition
+ */
+public interface FlightFilter {
+
+    /**
+     * Method prepares the filter for the table: the strings of the conditions
+     * are turned into the codes of its dictionaries
+     *
+     * @param flights The table of the flights
+     * @return The selection of the rows of this table
+     */
+    Selection bind(FlightTable flights);
+
+    /**
+     * Interface that is used to narrow a block of row numbers
+     */
+    interface Selection {
+
+        /**
+         * Method keeps only the rows which satisfy the filter. The rows are in
+         * ascending order, and they keep it
+         *
+         * @param rows The row numbers; the kept rows are moved to the front
+         * @param count The number of the rows
+         * @return The number of the kept rows
+         */
+        int select(int[] rows, int count);
+    }
+
+    /**
+     * Method finds the rows which may satisfy the filter with the index, so
+     * that a query does not read the other rows at all. The filter is still
+     * applied to the found rows
+     *
+     * @param flights The table of the flights
+     * @param index The index of the table or null
+     * @return The rows in ascending order or null if the index does not
+     * narrow the rows of this filter
+     */
+    default int[] candidates(FlightTable flights, FlightIndex index) {
+        return null;
+    }
+
+    /**
+     * Method creates the filter which keeps the rows of both filters
+     *
+     * @param other The second filter
+     * @return The combined filter
+     */
+    default FlightFilter and(FlightFilter other) {
+        FlightFilter first = this;
+        return new FlightFilter() {
+            @Override
+            public Selection bind(FlightTable flights) {
+                Selection firstSelection = first.bind(flights);
+                Selection secondSelection = other.bind(flights);
+                return (rows, count) -> {
+                    int kept = firstSelection.select(rows, count);
+                    return kept == 0 ? 0 : secondSelection.select(rows, kept);
+                };
+            }
+
+            @Override
+            public int[] candidates(FlightTable flights, FlightIndex index) {
+                int[] firstRows = first.candidates(flights, index);
+                int[] secondRows = other.candidates(flights, index);
+                if (firstRows == null || secondRows == null) {
+                    return firstRows == null ? secondRows : firstRows;
+                }
+                return FlightIndex.intersect(firstRows, secondRows);
+            }
+        };
+    }
+
+    /**
+     * Method creates the filter which keeps the rows of any of the filters
+     *
+     * @param other The second filter
+     * @return The combined filter
+     */
+    default FlightFilter or(FlightFilter other) {
+        FlightFilter filter = this;
+        return new FlightFilter() {
+            @Override
+            public Selection bind(FlightTable flights) {
+                return FlightFilter.selectAny(filter.bind(flights), other.bind(flights));
+            }
+
+            @Override
+            public int[] candidates(FlightTable flights, FlightIndex index) {
+                int[] firstRows = filter.candidates(flights, index);
+                int[] secondRows = other.candidates(flights, index);
+                if (firstRows == null || secondRows == null) {
+                    return null;
+                }
+                return FlightIndex.union(firstRows, secondRows);
+            }
+        };
+    }
+
+    /**
+     * Method creates the selection which keeps the rows of any of the
+     * selections
+     *
+     * @param first The first selection
+     * @param second The second selection
+     * @return The combined selection
+     */
+    static Selection selectAny(Selection first, Selection second) {
+        return new Selection() {
+            private int[] firstRows = new int[0];
+            private int[] secondRows = new int[0];
+
+            @Override
+            public int select(int[] rows, int count) {
+                if (firstRows.length < count) {
+                    firstRows = new int[count];
+                    secondRows = new int[count];
+                }
+                System.arraycopy(rows, 0, firstRows, 0, count);
+                System.arraycopy(rows, 0, secondRows, 0, count);
+                int i = 0;
+                int j = 0;
+                int firstCount = first.select(firstRows, count);
+                int secondCount = second.select(secondRows, count);
+                int kept = 0;
+                while (i < firstCount || j < secondCount) {
+                    if (j == secondCount || i < firstCount && firstRows[i] < secondRows[j]) {
+                        rows[kept++] = firstRows[i++];
+                    } else if (i == firstCount || secondRows[j] < firstRows[i]) {
+                        rows[kept++] = secondRows[j++];
+                    } else {
+                        rows[kept++] = firstRows[i++];
+                        j++;
+                    }
+                }
+                return kept;
+            }
+        };
+    }
+
+    /**
+     * Method creates the filter which keeps the rows rejected by this filter
+     *
+     * @return The negated filter
+     */
+    default FlightFilter negate() {
+        return flights -> {
+            Selection selection = bind(flights);
+            return new Selection() {
+                private int[] selected = new int[0];
+
+                @Override
+                public int select(int[] rows, int count) {
+                    if (selected.length < count) {
+                        selected = new int[count];
+                    }
+                    System.arraycopy(rows, 0, selected, 0, count);
+                    int selectedCount = selection.select(selected, count);
+                    int kept = 0;
+                    for (int i = 0, j = 0; i < count; i++) {
+                        if (j < selectedCount && selected[j] == rows[i]) {
+                            j++;
+                        } else {
+                            rows[kept++] = rows[i];
+                        }
+                    }
+                    return kept;
+                }
+            };
+        };
+    }
+
+    /**
+     * Method creates the filter which keeps all rows
+     *
+     * @return The filter
+     */
+    static FlightFilter all() {
+        return flights -> (rows, count) -> count;
+    }
+
+    /**
+     * Method creates the filter which keeps the cancelled flights
+     *
+     * @return The filter
+     */
+    static FlightFilter cancelled() {
+        return equalTo(FlightColumn.CANCELLED, 1);
+    }
+
+    /**
+     * Method creates the filter which keeps the completed (or diverted)
+     * flights, as they are counted by the questions
+     *
+     * @return The filter
+     */
+    static FlightFilter completed() {
+        return notEqualTo(FlightColumn.CANCELLED, 1);
+    }
+
+    /**
+     * Method creates the filter which keeps the rows whose value of the column
+     * lies in the range
+     *
+     * @param column The number column (or the codes of a string column)
+     * @param min The smallest kept value
+     * @param max The greatest kept value
+     * @return The filter
+     */
+    static FlightFilter between(FlightColumn column, int min, int max) {
+        return flights -> {
+            int[] ints = flights.intColumn(column);
+            if (ints != null) {
+                return (rows, count) -> {
+                    int kept = 0;
+                    for (int i = 0; i < count; i++) {
+                        int value = ints[rows[i]];
+                        if (value >= min && value <= max) {
+                            rows[kept++] = rows[i];
+                        }
+                    }
+                    return kept;
+                };
+            }
+            byte[] bytes = flights.byteColumn(column);
+            return (rows, count) -> {
+                int kept = 0;
+                for (int i = 0; i < count; i++) {
+                    int value = bytes[rows[i]];
+                    if (value >= min && value <= max) {
+                        rows[kept++] = rows[i];
+                    }
+                }
+                return kept;
+            };
+        };
+    }
+
+    /**
+     * Method creates the filter which keeps the flights between the dates. A
+     * query with this filter reads only the rows of these days, found by the
+     * DayRanges of the table, unless the days are mixed in the table
+     *
+     * @param from The first date
+     * @param to The last date
+     * @return The filter
+     */
+    static FlightFilter onDates(LocalDate from, LocalDate to) {
+        return onDays((int) from.toEpochDay(), (int) to.toEpochDay());
+    }
+
+    /**
+     * Method creates the filter which keeps the flights of the last days of
+     * the table, for example the last 7 days of the latest date in the file.
+     * If no flight has a date, no flight is kept
+     *
+     * @param days The number of the days
+     * @return The filter
+     */
+    static FlightFilter lastDays(int days) {
+        if (days < 1) {
+            throw new IllegalArgumentException("The number of the days must be positive");
+        }
+        return new FlightFilter() {
+            @Override
+            public Selection bind(FlightTable flights) {
+                return range(flights).bind(flights);
+            }
+
+            @Override
+            public int[] candidates(FlightTable flights, FlightIndex index) {
+                return range(flights).candidates(flights, index);
+            }
+
+            private FlightFilter range(FlightTable flights) {
+                int lastDay = flights.getDayRanges().getLastDay();
+                return lastDay != DateDecoder.NOT_GIVEN ? onDays(lastDay - days + 1, lastDay) : onDays(1, 0);
+            }
+        };
+    }
+
+    /**
+     * Method creates the filter which keeps the flights between the days of
+     * the epoch
+     *
+     * @param fromDay The first day
+     * @param toDay The last day
+     * @return The filter
+     */
+    static FlightFilter onDays(int fromDay, int toDay) {
+        return new FlightFilter() {
+            @Override
+            public Selection bind(FlightTable flights) {
+                return between(FlightColumn.FLIGHT_DATE, fromDay, toDay).bind(flights);
+            }
+
+            @Override
+            public int[] candidates(FlightTable flights, FlightIndex index) {
+                DayRanges ranges = flights.getDayRanges();
+                return ranges.isFragmented() ? null : ranges.rows(fromDay, toDay);
+            }
+        };
+    }
+
+    /**
+     * Method creates the filter which keeps the rows with the value of the
+     * column
+     *
+     * @param column The number column
+     * @param value The kept value
+     * @return The filter
+     */
+    static FlightFilter equalTo(FlightColumn column, int value) {
+        return between(column, value, value);
+    }
+
+    /**
+     * Method creates the filter which keeps the rows whose value of the column
+     * is at least the given one
+     *
+     * @param column The number column
+     * @param value The smallest kept value
+     * @return The filter
+     */
+    static FlightFilter atLeast(FlightColumn column, int value) {
+        return between(column, value, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Method creates the filter which keeps the rows whose value of the column
+     * is at most the given one
+     *
+     * @param column The number column
+     * @param value The greatest kept value
+     * @return The filter
+     */
+    static FlightFilter atMost(FlightColumn column, int value) {
+        return between(column, Integer.MIN_VALUE, value);
+    }
+
+    /**
+     * Method creates the filter which keeps the rows with any other value of
+     * the column
+     *
+     * @param column The number column (or the codes of a string column)
+     * @param value The rejected value
+     * @return The filter
+     */
+    static FlightFilter notEqualTo(FlightColumn column, int value) {
+        return flights -> {
+            int[] ints = flights.intColumn(column);
+            if (ints != null) {
+                return (rows, count) -> {
+                    int kept = 0;
+                    for (int i = 0; i < count; i++) {
+                        if (ints[rows[i]] != value) {
+                            rows[kept++] = rows[i];
+                        }
+                    }
+                    return kept;
+                };
+            }
+            byte[] bytes = flights.byteColumn(column);
+            return (rows, count) -> {
+                int kept = 0;
+                for (int i = 0; i < count; i++) {
+                    if (bytes[rows[i]] != value) {
+                        rows[kept++] = rows[i];
+                    }
+                }
+                return kept;
+            };
+        };
+    }
+
+    /**
+     * Method creates the filter which keeps the rows where the field of the
+     * column was given and correct
+     *
+     * @param column The column of the table
+     * @return The filter
+     */
+    static FlightFilter isFilled(FlightColumn column) {
+        return column.getMissing() == Integer.MIN_VALUE ? all() : notEqualTo(column, column.getMissing());
+    }
+
+    /**
+     * Method creates the filter which keeps the rows with the string value
+     *
+     * @param column The string column
+     * @param value The kept value
+     * @return The filter
+     */
+    static FlightFilter equalTo(FlightColumn column, String value) {
+        return new FlightFilter() {
+            @Override
+            public Selection bind(FlightTable flights) {
+                int code = flights.dictionary(column).find(value);
+                return code < 0 ? (rows, count) -> 0 : equalTo(column, code).bind(flights);
+            }
+
+            @Override
+            public int[] candidates(FlightTable flights, FlightIndex index) {
+                return index != null && index.covers(flights, column)
+                        ? index.rows(column, flights.dictionary(column).find(value)) : null;
+            }
+        };
+    }
+
+    /**
+     * Method creates the filter which keeps the rows with the string value in
+     * any case, for example "aa" for the carrier "AA"
+     *
+     * @param column The string column
+     * @param value The kept value
+     * @return The filter
+     */
+    static FlightFilter equalToIgnoreCase(FlightColumn column, String value) {
+        return matches(column, value::equalsIgnoreCase);
+    }
+
+    /**
+     * Method creates the filter which keeps the rows whose string satisfies
+     * the condition. The condition is tested once for each value of the
+     * dictionary, not for each row
+     *
+     * @param column The string column
+     * @param condition The condition of the kept strings
+     * @return The filter
+     */
+    static FlightFilter matches(FlightColumn column, Predicate<String> condition) {
+        return new FlightFilter() {
+            @Override
+            public Selection bind(FlightTable flights) {
+                boolean[] matching = matching(flights);
+                int[] codes = flights.intColumn(column);
+                return (rows, count) -> {
+                    int kept = 0;
+                    for (int i = 0; i < count; i++) {
+                        if (matching[codes[rows[i]]]) {
+                            rows[kept++] = rows[i];
+                        }
+                    }
+                    return kept;
+                };
+            }
+
+            @Override
+            public int[] candidates(FlightTable flights, FlightIndex index) {
+                return index != null && index.covers(flights, column)
+                        ? index.rows(column, matching(flights)) : null;
+            }
+
+            private boolean[] matching(FlightTable flights) {
+                StringDictionary dictionary = flights.dictionary(column);
+                boolean[] matching = new boolean[dictionary.size()];
+                for (int code = 0; code < matching.length; code++) {
+                    matching[code] = condition.test(dictionary.value(code));
+                }
+                return matching;
+            }
+        };
+    }
+}
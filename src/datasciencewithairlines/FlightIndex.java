@@ -0,0 +1,212 @@
+package datasciencewithairlines;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Class that is used to find the rows of a string value without scanning the
+ * table. For each indexed column the rows are sorted by the code of their
+ * value (counting sort), so the rows of a code are a range of one array: the
+ * posting list of the code. The index is built after loading and belongs to
+ * the table it was built for
+ */
+public class FlightIndex {
+
+    /**
+     * The columns indexed by default
+     */
+    public static final FlightColumn[] DEFAULT_COLUMNS = {FlightColumn.UNIQUE_CARRIER,
+        FlightColumn.TAIL_NUM, FlightColumn.ORIGIN_AIRPORT_ID, FlightColumn.DEST_AIRPORT_ID,
+        FlightColumn.ORIGIN_STATE_NAME, FlightColumn.CANCELLATION_CODE};
+
+    private FlightTable flights;
+    private int size;
+    private Map<FlightColumn, int[]> starts = new EnumMap<>(FlightColumn.class);
+    private Map<FlightColumn, int[]> postings = new EnumMap<>(FlightColumn.class);
+
+    private FlightIndex(FlightTable flights) {
+        this.flights = flights;
+        this.size = flights.size();
+    }
+
+    /**
+     * Method builds the index of the default columns
+     *
+     * @param flights The loaded flights
+     * @return The index of the table
+     */
+    public static FlightIndex build(FlightTable flights) {
+        return build(flights, DEFAULT_COLUMNS);
+    }
+
+    /**
+     * Method builds the index of the columns
+     *
+     * @param flights The loaded flights
+     * @param columns The string columns to be indexed
+     * @return The index of the table
+     */
+    public static FlightIndex build(FlightTable flights, FlightColumn... columns) {
+        FlightIndex index = new FlightIndex(flights);
+        for (FlightColumn column : columns) {
+            if (!column.isDictionary()) {
+                throw new IllegalArgumentException(column + " is not a string column");
+            }
+            int[] codes = flights.intColumn(column);
+            int[] start = new int[flights.dictionary(column).size() + 1];
+            for (int row = 0; row < index.size; row++) {
+                start[codes[row] + 1]++;
+            }
+            for (int code = 1; code < start.length; code++) {
+                start[code] += start[code - 1];
+            }
+            int[] next = Arrays.copyOf(start, start.length - 1);
+            int[] rows = new int[index.size];
+            for (int row = 0; row < index.size; row++) {
+                rows[next[codes[row]]++] = row;
+            }
+            index.starts.put(column, start);
+            index.postings.put(column, rows);
+        }
+        return index;
+    }
+
+    /**
+     * Method checks whether the index can be used for the column of the
+     * table: it was built for this table, the table has not grown since then
+     * and the column is indexed
+     *
+     * @param flights The table of a query
+     * @param column The column of a filter
+     * @return true if the posting lists of the column are valid
+     */
+    public boolean covers(FlightTable flights, FlightColumn column) {
+        return this.flights == flights && size == flights.size() && starts.containsKey(column);
+    }
+
+    public FlightTable getFlights() {
+        return flights;
+    }
+
+    /**
+     * Method returns the number of rows with the code
+     *
+     * @param column The indexed column
+     * @param code The code of the value
+     * @return The length of the posting list
+     */
+    public int count(FlightColumn column, int code) {
+        int[] start = starts.get(column);
+        return code < 0 || code >= start.length - 1 ? 0 : start[code + 1] - start[code];
+    }
+
+    /**
+     * Method returns the rows with the code
+     *
+     * @param column The indexed column
+     * @param code The code of the value
+     * @return The rows in ascending order
+     */
+    public int[] rows(FlightColumn column, int code) {
+        int[] start = starts.get(column);
+        if (code < 0 || code >= start.length - 1) {
+            return new int[0];
+        }
+        return Arrays.copyOfRange(postings.get(column), start[code], start[code + 1]);
+    }
+
+    /**
+     * Method returns the rows with any of the codes
+     *
+     * @param column The indexed column
+     * @param matching The flag of each code of the dictionary
+     * @return The rows in ascending order
+     */
+    public int[] rows(FlightColumn column, boolean[] matching) {
+        int[] start = starts.get(column);
+        int[] all = postings.get(column);
+        int count = 0;
+        int lists = 0;
+        for (int code = 0; code < matching.length && code < start.length - 1; code++) {
+            if (matching[code]) {
+                count += start[code + 1] - start[code];
+                lists++;
+            }
+        }
+        int[] rows = new int[count];
+        int filled = 0;
+        for (int code = 0; code < matching.length && code < start.length - 1; code++) {
+            if (matching[code]) {
+                System.arraycopy(all, start[code], rows, filled, start[code + 1] - start[code]);
+                filled += start[code + 1] - start[code];
+            }
+        }
+        if (lists > 1) {
+            Arrays.sort(rows);
+        }
+        return rows;
+    }
+
+    /**
+     * Method estimates the memory used by the posting lists
+     *
+     * @return The size of the arrays in bytes
+     */
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (FlightColumn column : starts.keySet()) {
+            bytes += 4L * (starts.get(column).length + postings.get(column).length);
+        }
+        return bytes;
+    }
+
+    /**
+     * Method finds the rows present in both sorted lists
+     *
+     * @param first The rows in ascending order
+     * @param second The rows in ascending order
+     * @return The common rows in ascending order
+     */
+    static int[] intersect(int[] first, int[] second) {
+        int[] rows = new int[Math.min(first.length, second.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < first.length && j < second.length;) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                rows[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Method finds the rows present in any of the sorted lists
+     *
+     * @param first The rows in ascending order
+     * @param second The rows in ascending order
+     * @return All rows in ascending order without repeats
+     */
+    static int[] union(int[] first, int[] second) {
+        int[] rows = new int[first.length + second.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length || j < second.length) {
+            if (j == second.length || i < first.length && first[i] < second[j]) {
+                rows[count++] = first[i++];
+            } else if (i == first.length || second[j] < first[i]) {
+                rows[count++] = second[j++];
+            } else {
+                rows[count++] = first[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+}
@@ -0,0 +1,379 @@
+package datasciencewithairlines;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class that is used to ask the loaded flights questions other than the nine
+ * of the task: which rows are taken, by which columns they are grouped and
+ * what is calculated for each group. The query is evaluated in one pass over
+ * the table, block by block: the filter narrows the rows of a block, and then
+ * every aggregate reads its column for the whole block at once
+ */
+public class FlightQuery {
+
+    static final int BLOCK_SIZE = 1024;
+
+    /**
+     * The calculations of a query
+     */
+    public enum Aggregate {
+        COUNT, SUM, MIN, MAX, AVG
+    }
+
+    private FlightFilter filter;
+    private FlightColumn[] keys = new FlightColumn[0];
+    private List<Aggregate> aggregates = new ArrayList<>();
+    private List<FlightColumn> columns = new ArrayList<>();
+    private int orderBy = -1;
+    private int limit = Integer.MAX_VALUE;
+    private FlightColumn topColumn;
+    private int topRows;
+
+    public FlightFilter getFilter() {
+        return filter != null ? filter : FlightFilter.all();
+    }
+
+    public FlightColumn[] getKeys() {
+        return keys.clone();
+    }
+
+    public List<Aggregate> getAggregates() {
+        return new ArrayList<>(aggregates);
+    }
+
+    public List<FlightColumn> getColumns() {
+        return new ArrayList<>(columns);
+    }
+
+    /**
+     * Method evaluates the query over the table. The groups are kept in the
+     * order in which they are met in the table, unless the query orders them
+     * by an aggregate
+     *
+     * @param flights The table of the flights
+     * @return The result of the query
+     */
+    public QueryResult execute(FlightTable flights) {
+        return execute(flights, null);
+    }
+
+    /**
+     * Method evaluates the query over the table. If the index or the ranges
+     * of the days narrow the rows of the filter, only the found rows are read
+     *
+     * @param flights The table of the flights
+     * @param index The index of the table or null
+     * @return The result of the query
+     */
+    public QueryResult execute(FlightTable flights, FlightIndex index) {
+        FlightFilter.Selection selection = getFilter().bind(flights);
+        int[] candidates = getFilter().candidates(flights, index);
+        int total = candidates != null ? candidates.length : flights.size();
+        Groups groups = new Groups(flights);
+        int[] rows = new int[BLOCK_SIZE];
+        int[] groupOfRow = new int[BLOCK_SIZE];
+        int[] values = new int[BLOCK_SIZE];
+        int[] bestRows = new int[topRows];
+        int[] bestValues = new int[topRows];
+        int best = 0;
+
+        for (int start = 0; start < total; start += BLOCK_SIZE) {
+            int count = Math.min(BLOCK_SIZE, total - start);
+            if (candidates != null) {
+                System.arraycopy(candidates, start, rows, 0, count);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    rows[i] = start + i;
+                }
+            }
+            count = selection.select(rows, count);
+            if (count == 0) {
+                continue;
+            }
+            groups.assign(rows, count, groupOfRow);
+            for (int i = 0; i < count; i++) {
+                groups.counts[groupOfRow[i]]++;
+            }
+            for (int a = 0; a < aggregates.size(); a++) {
+                FlightColumn column = columns.get(a);
+                if (column == null) {
+                    continue;
+                }
+                flights.gather(column, rows, count, values);
+                groups.accumulate(a, column.getMissing(), values, groupOfRow, count);
+            }
+            if (topRows > 0) {
+                flights.gather(topColumn, rows, count, values);
+                int missing = topColumn.getMissing();
+                for (int i = 0; i < count; i++) {
+                    // the earlier row keeps its place among equal values
+                    if (values[i] != missing && (best < topRows || values[i] > bestValues[best - 1])) {
+                        int place = Math.min(best, topRows - 1);
+                        while (place > 0 && bestValues[place - 1] < values[i]) {
+                            bestValues[place] = bestValues[place - 1];
+                            bestRows[place] = bestRows[place - 1];
+                            place--;
+                        }
+                        bestValues[place] = values[i];
+                        bestRows[place] = rows[i];
+                        best = Math.min(best + 1, topRows);
+                    }
+                }
+            }
+        }
+        return new QueryResult(flights, this, groups.size, groups.keyValues, groups.counts,
+                groups.sums, groups.valueCounts, groups.mins, groups.maxs,
+                Arrays.copyOf(bestRows, best), orderBy, limit);
+    }
+
+    /**
+     * Class that is used to find the group of each selected row and to keep
+     * the aggregates of the groups in primitive arrays
+     */
+    private class Groups {
+
+        private FlightTable flights;
+        private int size;
+        private int capacity = 16;
+        private int[][] keyValues;
+        private long[] counts;
+        private long[][] sums;
+        private long[][] valueCounts;
+        private long[][] mins;
+        private long[][] maxs;
+        // the group of each code, when the only key is a string column
+        private int[] groupOfCode;
+        // the groups of a single number column, numbered as the entries
+        private IntLongMap groupOfNumber;
+        private Map<Object, Integer> groupOfKey = new HashMap<>();
+        private int[][] blockKeys;
+
+        private Groups(FlightTable flights) {
+            this.flights = flights;
+            keyValues = new int[keys.length][capacity];
+            counts = new long[capacity];
+            sums = new long[aggregates.size()][capacity];
+            valueCounts = new long[aggregates.size()][capacity];
+            mins = new long[aggregates.size()][capacity];
+            maxs = new long[aggregates.size()][capacity];
+            blockKeys = new int[keys.length][BLOCK_SIZE];
+            if (keys.length == 1 && keys[0].isDictionary()) {
+                groupOfCode = new int[flights.dictionary(keys[0]).size()];
+                Arrays.fill(groupOfCode, -1);
+            } else if (keys.length == 1) {
+                groupOfNumber = new IntLongMap();
+            }
+            if (keys.length == 0) {
+                addGroup();
+            }
+        }
+
+        private void assign(int[] rows, int count, int[] groupOfRow) {
+            if (keys.length == 0) {
+                Arrays.fill(groupOfRow, 0, count, 0);
+                return;
+            }
+            for (int k = 0; k < keys.length; k++) {
+                flights.gather(keys[k], rows, count, blockKeys[k]);
+            }
+            for (int i = 0; i < count; i++) {
+                if (groupOfCode != null) {
+                    int code = blockKeys[0][i];
+                    if (groupOfCode[code] < 0) {
+                        groupOfCode[code] = addGroup(i);
+                    }
+                    groupOfRow[i] = groupOfCode[code];
+                } else if (groupOfNumber != null) {
+                    int group = groupOfNumber.insert(blockKeys[0][i]);
+                    groupOfRow[i] = group == size ? addGroup(i) : group;
+                } else {
+                    Object key = key(i);
+                    Integer group = groupOfKey.get(key);
+                    if (group == null) {
+                        group = addGroup(i);
+                        groupOfKey.put(key, group);
+                    }
+                    groupOfRow[i] = group;
+                }
+            }
+        }
+
+        private Object key(int i) {
+            if (keys.length == 1) {
+                return blockKeys[0][i];
+            } else if (keys.length == 2) {
+                return (long) blockKeys[0][i] << 32 | blockKeys[1][i] & 0xFFFFFFFFL;
+            }
+            List<Integer> key = new ArrayList<>(keys.length);
+            for (int k = 0; k < keys.length; k++) {
+                key.add(blockKeys[k][i]);
+            }
+            return key;
+        }
+
+        private int addGroup(int i) {
+            int group = addGroup();
+            for (int k = 0; k < keys.length; k++) {
+                keyValues[k][group] = blockKeys[k][i];
+            }
+            return group;
+        }
+
+        private int addGroup() {
+            if (size == capacity) {
+                capacity *= 2;
+                for (int k = 0; k < keys.length; k++) {
+                    keyValues[k] = Arrays.copyOf(keyValues[k], capacity);
+                }
+                counts = Arrays.copyOf(counts, capacity);
+                for (int a = 0; a < aggregates.size(); a++) {
+                    sums[a] = Arrays.copyOf(sums[a], capacity);
+                    valueCounts[a] = Arrays.copyOf(valueCounts[a], capacity);
+                    mins[a] = Arrays.copyOf(mins[a], capacity);
+                    maxs[a] = Arrays.copyOf(maxs[a], capacity);
+                }
+            }
+            for (int a = 0; a < aggregates.size(); a++) {
+                mins[a][size] = Long.MAX_VALUE;
+                maxs[a][size] = Long.MIN_VALUE;
+            }
+            return size++;
+        }
+
+        private void accumulate(int a, int missing, int[] values, int[] groupOfRow, int count) {
+            long[] sum = sums[a];
+            long[] valueCount = valueCounts[a];
+            long[] min = mins[a];
+            long[] max = maxs[a];
+            for (int i = 0; i < count; i++) {
+                int value = values[i];
+                if (value == missing) {
+                    continue;
+                }
+                int group = groupOfRow[i];
+                sum[group] += value;
+                valueCount[group]++;
+                if (value < min[group]) {
+                    min[group] = value;
+                }
+                if (value > max[group]) {
+                    max[group] = value;
+                }
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private FlightQuery newQuery;
+
+        public Builder() {
+            newQuery = new FlightQuery();
+        }
+
+        /**
+         * Method sets the filter of the rows. The rows of several calls must
+         * satisfy all filters
+         *
+         * @param filter The filter of the rows
+         * @return The builder
+         */
+        public Builder where(FlightFilter filter) {
+            newQuery.filter = newQuery.filter == null ? filter : newQuery.filter.and(filter);
+            return this;
+        }
+
+        public Builder groupBy(FlightColumn... keys) {
+            newQuery.keys = keys.clone();
+            return this;
+        }
+
+        /**
+         * Method adds the number of the rows of each group
+         *
+         * @return The builder
+         */
+        public Builder count() {
+            return aggregate(Aggregate.COUNT, null);
+        }
+
+        /**
+         * Method adds the sum of the column. The aggregates of a column skip
+         * the rows where its field is missing (see FlightColumn.getMissing)
+         *
+         * @param column The number column
+         * @return The builder
+         */
+        public Builder sum(FlightColumn column) {
+            return aggregate(Aggregate.SUM, column);
+        }
+
+        public Builder min(FlightColumn column) {
+            return aggregate(Aggregate.MIN, column);
+        }
+
+        public Builder max(FlightColumn column) {
+            return aggregate(Aggregate.MAX, column);
+        }
+
+        public Builder avg(FlightColumn column) {
+            return aggregate(Aggregate.AVG, column);
+        }
+
+        private Builder aggregate(Aggregate aggregate, FlightColumn column) {
+            if (column != null && column.isDictionary()) {
+                throw new IllegalArgumentException(column + " is not a number column");
+            }
+            newQuery.aggregates.add(aggregate);
+            newQuery.columns.add(column);
+            return this;
+        }
+
+        /**
+         * Method keeps only the k groups with the greatest value of an
+         * aggregate. The groups with equal values keep the order in which
+         * they are met in the table
+         *
+         * @param aggregate The index of the aggregate in the order of adding
+         * @param k The number of the kept groups
+         * @return The builder
+         */
+        public Builder top(int aggregate, int k) {
+            newQuery.orderBy = aggregate;
+            newQuery.limit = k;
+            return this;
+        }
+
+        /**
+         * Method asks for the k rows with the greatest values of the column
+         * among the filtered rows. Of the rows with equal values the earlier
+         * rows are taken
+         *
+         * @param column The number column
+         * @param k The number of the rows
+         * @return The builder
+         */
+        public Builder topRows(FlightColumn column, int k) {
+            if (column.isDictionary()) {
+                throw new IllegalArgumentException(column + " is not a number column");
+            }
+            newQuery.topColumn = column;
+            newQuery.topRows = k;
+            return this;
+        }
+
+        public FlightQuery build() {
+            if (newQuery.orderBy >= newQuery.aggregates.size()) {
+                throw new IllegalArgumentException("The query has no aggregate " + newQuery.orderBy);
+            }
+            if (newQuery.limit < 0 || newQuery.topRows < 0) {
+                throw new IllegalArgumentException("The number of the kept groups or rows must not be negative");
+            }
+            return newQuery;
+        }
+    }
+}
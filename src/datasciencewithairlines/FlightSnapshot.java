@@ -0,0 +1,416 @@
+package datasciencewithairlines;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Class that is used to save the parsed and verified flights to a binary
+ * columnar file next to the database and to load them back without parsing.
+ * Each int column is saved with the narrowest width (1, 2 or 4 bytes) which
+ * holds all its values, so the codes of the carriers, airports and states,
+ * the days and the times take one or two bytes per row.
+ * The rows of each day (DayRanges) are saved after the columns, so the date
+ * queries of a loaded snapshot do not read the column of the dates, followed
+ * by the numbers of the rejected rows and of the rows breaking each rule, so
+ * the report of a loaded snapshot counts them.
+ * The header of the snapshot describes the source file (size, time of
+ * modification and checksum) and the actions of the rules of the validation,
+ * so a snapshot of a changed file or of other rules is not used
+ */
+public class FlightSnapshot {
+
+    private static final int MAGIC = 0x44535741;
+    private static final int VERSION = 5;
+    private static final int HEADER_SIZE = 64;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Method returns the snapshot file which belongs to the database file
+     *
+     * @param source The file of the database
+     * @return The snapshot file in the same folder
+     */
+    public static File snapshotOf(File source) {
+        return new File(source.getPath() + ".snapshot");
+    }
+
+    /**
+     * Method writes the table of flights to the snapshot file
+     *
+     * @param flights The flights loaded from the database
+     * @param validation The rules with which the flights have been loaded
+     * @param source The file of the database
+     * @param snapshot The snapshot file
+     * @throws IOException If the snapshot cannot be written
+     */
+    public static void write(FlightTable flights, ValidationSettings validation, File source, File snapshot)
+            throws IOException {
+        long sourceSize = source.length();
+        long sourceModified = source.lastModified();
+        long sourceChecksum = checksum(source);
+        try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            StringDictionary[] dictionaries = flights.dictionaries();
+            byte[][][] values = new byte[dictionaries.length][][];
+            long dictionaryBytes = 0;
+            for (int i = 0; i < dictionaries.length; i++) {
+                values[i] = new byte[dictionaries[i].size()][];
+                dictionaryBytes += 4;
+                for (int code = 0; code < values[i].length; code++) {
+                    values[i][code] = dictionaries[i].value(code).getBytes(StandardCharsets.UTF_8);
+                    dictionaryBytes += 4 + values[i][code].length;
+                }
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(sourceSize);
+            buffer.putLong(sourceModified);
+            buffer.putLong(sourceChecksum);
+            buffer.putInt(validation.getRulesKey());
+            buffer.putInt(flights.size());
+            buffer.putLong(flights.getCompletedCount());
+            buffer.putLong(flights.getCancelledCount());
+            buffer.putLong(dictionaryBytes);
+            for (byte[][] dictionary : values) {
+                buffer = ensureSpace(channel, buffer, 4);
+                buffer.putInt(dictionary.length);
+                for (byte[] value : dictionary) {
+                    buffer = ensureSpace(channel, buffer, 4 + value.length);
+                    buffer.putInt(value.length);
+                    buffer.put(value);
+                }
+            }
+            int[][] intColumns = flights.intColumns();
+            int[] widths = new int[intColumns.length];
+            buffer = ensureSpace(channel, buffer, widths.length);
+            for (int i = 0; i < intColumns.length; i++) {
+                widths[i] = width(intColumns[i], flights.size());
+                buffer.put((byte) widths[i]);
+            }
+            for (int i = 0; i < intColumns.length; i++) {
+                buffer = writeColumn(channel, buffer, intColumns[i], flights.size(), widths[i]);
+            }
+            for (byte[] column : flights.byteColumns()) {
+                for (int row = 0; row < flights.size(); ) {
+                    buffer = ensureSpace(channel, buffer, 1);
+                    int count = Math.min(buffer.remaining(), flights.size() - row);
+                    buffer.put(column, row, count);
+                    row += count;
+                }
+            }
+            DayRanges ranges = flights.getDayRanges();
+            for (int[] array : new int[][]{ranges.getDays(), ranges.getOffsets(),
+                ranges.getRunStarts(), ranges.getRunEnds()}) {
+                buffer = ensureSpace(channel, buffer, 4);
+                buffer.putInt(array.length);
+                for (int value : array) {
+                    buffer = ensureSpace(channel, buffer, 4);
+                    buffer.putInt(value);
+                }
+            }
+            buffer = writeCounts(channel, buffer, flights.getRejectedCounts());
+            buffer = writeCounts(channel, buffer, flights.getViolationCounts());
+            flush(channel, buffer);
+        }
+    }
+
+    /**
+     * Method loads the table of flights from the snapshot file if the snapshot
+     * belongs to the current contents of the database file
+     *
+     * @param source The file of the database
+     * @param validation The rules with which the flights are loaded
+     * @param snapshot The snapshot file
+     * @return The flights or null if there is no valid snapshot
+     * @throws IOException If the snapshot cannot be read
+     */
+    public static FlightTable read(File source, ValidationSettings validation, File snapshot)
+            throws IOException {
+        if (!snapshot.isFile() || snapshot.length() < HEADER_SIZE) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION
+                    || header.getLong() != source.length()) {
+                return null;
+            }
+            long sourceModified = header.getLong();
+            long sourceChecksum = header.getLong();
+            if (sourceModified != source.lastModified() && sourceChecksum != checksum(source)) {
+                return null;
+            }
+            if (header.getInt() != validation.getRulesKey()) {
+                return null;
+            }
+            int rows = header.getInt();
+            long completedCount = header.getLong();
+            long cancelledCount = header.getLong();
+            long dictionaryBytes = header.getLong();
+
+            FlightTable flights = new FlightTable();
+            long position = HEADER_SIZE;
+            MappedByteBuffer dictionaries = channel.map(FileChannel.MapMode.READ_ONLY, position, dictionaryBytes);
+            dictionaries.order(ByteOrder.LITTLE_ENDIAN);
+            for (StringDictionary dictionary : flights.dictionaries()) {
+                readDictionary(dictionaries, dictionary);
+            }
+            position += dictionaryBytes;
+            flights.restore(rows, completedCount, cancelledCount);
+            int[][] intColumns = flights.intColumns();
+            ByteBuffer widths = channel.map(FileChannel.MapMode.READ_ONLY, position, intColumns.length);
+            position += intColumns.length;
+            for (int[] column : intColumns) {
+                int width = widths.get();
+                position = readColumn(channel, position, column, rows, width);
+            }
+            for (byte[] column : flights.byteColumns()) {
+                channel.map(FileChannel.MapMode.READ_ONLY, position, rows).get(column, 0, rows);
+                position += rows;
+            }
+            int[][] ranges = new int[4][];
+            for (int i = 0; i < ranges.length; i++) {
+                ByteBuffer length = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+                channel.read(length, position);
+                length.flip();
+                ranges[i] = new int[length.getInt()];
+                channel.map(FileChannel.MapMode.READ_ONLY, position + 4, ranges[i].length * 4L)
+                        .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(ranges[i]);
+                position += 4 + ranges[i].length * 4L;
+            }
+            flights.setDayRanges(new DayRanges(rows, ranges[0], ranges[1], ranges[2], ranges[3]));
+            position = readCounts(channel, position, flights::reject);
+            readCounts(channel, position, flights::countViolations);
+            return flights;
+        }
+    }
+
+    /**
+     * Method reads the values of a dictionary from the mapped section of the
+     * dictionaries. The values are added in the order of their codes, so the
+     * codes stay the same
+     *
+     * @param buffer The section of the dictionaries positioned on the
+     * dictionary
+     * @param dictionary The empty dictionary of the table
+     * @throws IOException If the snapshot is damaged
+     */
+    private static void readDictionary(ByteBuffer buffer, StringDictionary dictionary) throws IOException {
+        int size = buffer.getInt();
+        byte[] value = new byte[64];
+        for (int code = 0; code < size; code++) {
+            int length = buffer.getInt();
+            if (length > value.length) {
+                value = new byte[length];
+            }
+            buffer.get(value, 0, length);
+            if (dictionary.code(new String(value, 0, length, StandardCharsets.UTF_8)) != code) {
+                throw new IOException("The snapshot is damaged");
+            }
+        }
+    }
+
+    /**
+     * Method returns the number of bytes in which all values of the column
+     * fit
+     *
+     * @param column The int column of the table
+     * @param rows The number of rows
+     * @return 1, 2 or 4
+     */
+    private static int width(int[] column, int rows) {
+        int min = 0;
+        int max = 0;
+        for (int row = 0; row < rows; row++) {
+            min = Math.min(min, column[row]);
+            max = Math.max(max, column[row]);
+        }
+        if (min >= Byte.MIN_VALUE && max <= Byte.MAX_VALUE) {
+            return 1;
+        }
+        if (min >= Short.MIN_VALUE && max <= Short.MAX_VALUE) {
+            return 2;
+        }
+        return 4;
+    }
+
+    private static ByteBuffer writeColumn(FileChannel channel, ByteBuffer buffer, int[] column, int rows,
+            int width) throws IOException {
+        for (int row = 0; row < rows; ) {
+            buffer = ensureSpace(channel, buffer, width);
+            int count = Math.min(buffer.remaining() / width, rows - row);
+            if (width == 4) {
+                buffer.asIntBuffer().put(column, row, count);
+            } else if (width == 2) {
+                ShortBuffer values = buffer.asShortBuffer();
+                for (int i = row; i < row + count; i++) {
+                    values.put((short) column[i]);
+                }
+            } else {
+                for (int i = row; i < row + count; i++) {
+                    buffer.put(buffer.position() + i - row, (byte) column[i]);
+                }
+            }
+            buffer.position(buffer.position() + count * width);
+            row += count;
+        }
+        return buffer;
+    }
+
+    /**
+     * Method reads an int column saved with the given width
+     *
+     * @param channel The channel of the snapshot file
+     * @param position The offset of the column in the file
+     * @param column The column of the table
+     * @param rows The number of rows
+     * @param width The number of bytes of each value
+     * @return The offset after the column
+     * @throws IOException If the snapshot cannot be read
+     */
+    private static long readColumn(FileChannel channel, long position, int[] column, int rows, int width)
+            throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) rows * width);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (width == 4) {
+            buffer.asIntBuffer().get(column, 0, rows);
+        } else if (width == 2) {
+            ShortBuffer values = buffer.asShortBuffer();
+            short[] chunk = new short[Math.min(rows, BUFFER_SIZE)];
+            for (int row = 0; row < rows; row += chunk.length) {
+                int count = Math.min(chunk.length, rows - row);
+                values.get(chunk, 0, count);
+                for (int i = 0; i < count; i++) {
+                    column[row + i] = chunk[i];
+                }
+            }
+        } else if (width == 1) {
+            byte[] chunk = new byte[Math.min(rows, BUFFER_SIZE)];
+            for (int row = 0; row < rows; row += chunk.length) {
+                int count = Math.min(chunk.length, rows - row);
+                buffer.get(chunk, 0, count);
+                for (int i = 0; i < count; i++) {
+                    column[row + i] = chunk[i];
+                }
+            }
+        } else {
+            throw new IOException("The snapshot is damaged");
+        }
+        return position + (long) rows * width;
+    }
+
+    private static ByteBuffer writeCounts(FileChannel channel, ByteBuffer buffer, Map<String, Long> counts)
+            throws IOException {
+        buffer = ensureSpace(channel, buffer, 4);
+        buffer.putInt(counts.size());
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            byte[] reason = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            buffer = ensureSpace(channel, buffer, 12 + reason.length);
+            buffer.putInt(reason.length);
+            buffer.put(reason);
+            buffer.putLong(entry.getValue());
+        }
+        return buffer;
+    }
+
+    /**
+     * Method reads the numbers of the rejected rows or of the violations of
+     * the rules from the snapshot
+     *
+     * @param channel The channel of the snapshot file
+     * @param position The offset of the numbers in the file
+     * @param counter The counter of the table which gets each reason with
+     * its number
+     * @return The offset after the numbers
+     * @throws IOException If the snapshot cannot be read
+     */
+    private static long readCounts(FileChannel channel, long position, BiConsumer<String, Long> counter)
+            throws IOException {
+        ByteBuffer count = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(count, position);
+        count.flip();
+        int reasons = count.getInt();
+        position += 4;
+        ByteBuffer number = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < reasons; i++) {
+            count.clear();
+            channel.read(count, position);
+            count.flip();
+            byte[] reason = new byte[count.getInt()];
+            channel.read(ByteBuffer.wrap(reason), position + 4);
+            number.clear();
+            channel.read(number, position + 4 + reason.length);
+            number.flip();
+            counter.accept(new String(reason, StandardCharsets.UTF_8), number.getLong());
+            position += 12 + reason.length;
+        }
+        return position;
+    }
+
+    /**
+     * Method calculates the checksum of the contents of the file
+     *
+     * @param file The file of the database
+     * @return The CRC32 value of the file
+     * @throws IOException If the file cannot be read
+     */
+    static long checksum(File file) throws IOException {
+        return checksum(file, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Method calculates the checksum of a part of the file
+     *
+     * @param file The file of the database
+     * @param start The offset of the first byte of the part
+     * @param end The offset after the last byte of the part
+     * @return The CRC32 value of the part
+     * @throws IOException If the file cannot be read
+     */
+    static long checksum(File file, long start, long end) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] bytes = new byte[BUFFER_SIZE];
+        try (FileInputStream in = new FileInputStream(file)) {
+            in.getChannel().position(start);
+            long remaining = end - start;
+            int read;
+            while (remaining > 0 && (read = in.read(bytes, 0, (int) Math.min(bytes.length, remaining))) >= 0) {
+                crc.update(bytes, 0, read);
+                remaining -= read;
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static ByteBuffer ensureSpace(FileChannel channel, ByteBuffer buffer, int bytes)
+            throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+            if (buffer.capacity() < bytes) {
+                return ByteBuffer.allocateDirect(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        return buffer;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,659 @@
+package datasciencewithairlines;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Class that is used to store the flights of the database by columns. Numbers
+ * are kept in primitive arrays, and the repeating strings (carriers, planes,
+ * airports, states and cancellation codes) are kept as codes of dictionaries
+ */
+public class FlightTable {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int size;
+    private int capacity;
+    private long completedCount;
+    private long cancelledCount;
+    private ObjectLongMap<String> rejectedRows = new ObjectLongMap<>();
+    private ObjectLongMap<String> violations = new ObjectLongMap<>();
+
+    private int[] dayofMonth;
+    private byte[] dayOfWeek;
+    private int[] flightDate;
+    private int[] uniqueCarrier;
+    private int[] tailNum;
+    private int[] originAirportID;
+    private int[] origin;
+    private int[] originStateName;
+    private int[] destAirportID;
+    private int[] dest;
+    private int[] destStateName;
+    private int[] depTime;
+    private int[] depDelay;
+    private int[] wheelsOff;
+    private int[] wheelsOn;
+    private int[] arrTime;
+    private int[] arrDelay;
+    private byte[] cancelled;
+    private int[] cancellationCode;
+    private byte[] diverted;
+    private int[] airTime;
+    private int[] distance;
+
+    private StringDictionary carriers = new StringDictionary();
+    private StringDictionary tailNums = new StringDictionary();
+    private StringDictionary airportIDs = new StringDictionary();
+    private StringDictionary airports = new StringDictionary();
+    private StringDictionary states = new StringDictionary();
+    private StringDictionary cancellationCodes = new StringDictionary();
+    private DayRanges dayRanges;
+    private int invalidFields;
+
+    /**
+     * Constructor of the empty table
+     */
+    public FlightTable() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Method parses the line of the database into the row after the last
+     * committed one. The row becomes a part of the table only after
+     * commitRow(), otherwise it is overwritten by the next parsed line
+     *
+     * @param line The tokenizer positioned on the flights data
+     * @return The index of the parsed row
+     */
+    public int parseRow(CsvTokenizer line) {
+        if (size == capacity) {
+            allocate(capacity * 2);
+        }
+        int row = size;
+        invalidFields = 0;
+        int value = Verifier.checkForInt(0, line, "others");
+        dayofMonth[row] = verified(FlightColumn.DAY_OF_MONTH, value, Verifier.checkDayOfMonth(value));
+        value = Verifier.checkForInt(1, line, "others");
+        dayOfWeek[row] = (byte) verified(FlightColumn.DAY_OF_WEEK, value, Verifier.checkDayOfWeek(value));
+        flightDate[row] = Verifier.checkForEpochDay(2, line);
+        uniqueCarrier[row] = carriers.code(line, 3);
+        tailNum[row] = tailNums.code(line, 4);
+        originAirportID[row] = airportIDs.code(line, 5);
+        origin[row] = airports.code(line, 6);
+        originStateName[row] = states.code(line, 7);
+        destAirportID[row] = airportIDs.code(line, 8);
+        dest[row] = airports.code(line, 9);
+        destStateName[row] = states.code(line, 10);
+        value = Verifier.checkForInt(11, line, "others");
+        depTime[row] = verified(FlightColumn.DEP_TIME, value, Verifier.checkTime(value));
+        depDelay[row] = Verifier.checkForInt(12, line, "delay");
+        value = Verifier.checkForInt(13, line, "others");
+        wheelsOff[row] = verified(FlightColumn.WHEELS_OFF, value, Verifier.checkTime(value));
+        value = Verifier.checkForInt(14, line, "others");
+        wheelsOn[row] = verified(FlightColumn.WHEELS_ON, value, Verifier.checkTime(value));
+        value = Verifier.checkForInt(15, line, "others");
+        arrTime[row] = verified(FlightColumn.ARR_TIME, value, Verifier.checkTime(value));
+        arrDelay[row] = Verifier.checkForInt(16, line, "delay");
+        value = Verifier.checkForInt(17, line, "others");
+        cancelled[row] = (byte) verified(FlightColumn.CANCELLED, value, Verifier.checkCancelled(value));
+        cancellationCode[row] = cancellationCodes.code(line, 18);
+        value = Verifier.checkForInt(19, line, "others");
+        diverted[row] = (byte) verified(FlightColumn.DIVERTED, value, Verifier.checkCancelled(value));
+        airTime[row] = Verifier.checkForInt(20, line, "others");
+        distance[row] = Verifier.checkForInt(21, line, "others");
+        return row;
+    }
+
+    // the field is marked as invalid if the check has replaced its value
+    private int verified(FlightColumn column, int value, int checked) {
+        if (checked != value) {
+            invalidFields |= 1 << column.ordinal();
+        }
+        return checked;
+    }
+
+    /**
+     * Method returns the fields of the last parsed row whose values were out
+     * of range and replaced by the Verifier checks
+     *
+     * @return The bit 1 &lt;&lt; column.ordinal() for each replaced field
+     */
+    public int getInvalidFields() {
+        return invalidFields;
+    }
+
+    /**
+     * Method adds the last parsed row to the table
+     */
+    public void commitRow() {
+        if (cancelled[size] == 1) {
+            cancelledCount++;
+        } else {
+            completedCount++;
+        }
+        size++;
+    }
+
+    /**
+     * Method adds all rows of the other table after the rows of this table.
+     * The codes of the strings are translated into the codes of this table
+     *
+     * @param other The table with the next part of the database
+     */
+    public void append(FlightTable other) {
+        if (size + other.size > capacity) {
+            allocate(Math.max(capacity * 2, size + other.size));
+        }
+        int[] carrierCodes = carriers.translate(other.carriers);
+        int[] tailNumCodes = tailNums.translate(other.tailNums);
+        int[] airportIDCodes = airportIDs.translate(other.airportIDs);
+        int[] airportCodes = airports.translate(other.airports);
+        int[] stateCodes = states.translate(other.states);
+        int[] cancellationCodeCodes = cancellationCodes.translate(other.cancellationCodes);
+        System.arraycopy(other.dayofMonth, 0, dayofMonth, size, other.size);
+        System.arraycopy(other.dayOfWeek, 0, dayOfWeek, size, other.size);
+        System.arraycopy(other.flightDate, 0, flightDate, size, other.size);
+        System.arraycopy(other.depTime, 0, depTime, size, other.size);
+        System.arraycopy(other.depDelay, 0, depDelay, size, other.size);
+        System.arraycopy(other.wheelsOff, 0, wheelsOff, size, other.size);
+        System.arraycopy(other.wheelsOn, 0, wheelsOn, size, other.size);
+        System.arraycopy(other.arrTime, 0, arrTime, size, other.size);
+        System.arraycopy(other.arrDelay, 0, arrDelay, size, other.size);
+        System.arraycopy(other.cancelled, 0, cancelled, size, other.size);
+        System.arraycopy(other.diverted, 0, diverted, size, other.size);
+        System.arraycopy(other.airTime, 0, airTime, size, other.size);
+        System.arraycopy(other.distance, 0, distance, size, other.size);
+        for (int i = 0; i < other.size; i++) {
+            int row = size + i;
+            uniqueCarrier[row] = carrierCodes[other.uniqueCarrier[i]];
+            tailNum[row] = tailNumCodes[other.tailNum[i]];
+            originAirportID[row] = airportIDCodes[other.originAirportID[i]];
+            origin[row] = airportCodes[other.origin[i]];
+            originStateName[row] = stateCodes[other.originStateName[i]];
+            destAirportID[row] = airportIDCodes[other.destAirportID[i]];
+            dest[row] = airportCodes[other.dest[i]];
+            destStateName[row] = stateCodes[other.destStateName[i]];
+            cancellationCode[row] = cancellationCodeCodes[other.cancellationCode[i]];
+        }
+        size += other.size;
+        completedCount += other.completedCount;
+        cancelledCount += other.cancelledCount;
+        rejectedRows.merge(other.rejectedRows);
+        violations.merge(other.violations);
+    }
+
+    /**
+     * Method builds the flight object with the data of the row
+     *
+     * @param row The index of the row
+     * @return The flight with the values of the row
+     */
+    public Flight getFlight(int row) {
+        return new Flight.Builder()
+                .withDayofMonth(getDayofMonth(row))
+                .withDayOfWeek(getDayOfWeek(row))
+                .withFlightDate(getFlightDate(row))
+                .withUniqueCarrier(getUniqueCarrier(row))
+                .withTailNum(getTailNum(row))
+                .withOriginAirportID(getOriginAirportID(row))
+                .withOrigin(getOrigin(row))
+                .withOriginStateName(getOriginStateName(row))
+                .withDestAirportID(getDestAirportID(row))
+                .withDest(getDest(row))
+                .withDestStateName(getDestStateName(row))
+                .withDepTime(getDepTime(row))
+                .withDepDelay(getDepDelay(row))
+                .withWheelsOff(getWheelsOff(row))
+                .withWheelsOn(getWheelsOn(row))
+                .withArrTime(getArrTime(row))
+                .withArrDelay(getArrDelay(row))
+                .withCancelled(getCancelled(row))
+                .withCancellationCode(getCancellationCode(row))
+                .withDiverted(getDiverted(row))
+                .withAirTime(getAirTime(row))
+                .withDistance(getDistance(row))
+                .build();
+    }
+
+    /**
+     * Method returns the int columns in the fixed order used by the snapshot
+     * files. The arrays are the columns themselves, not copies
+     *
+     * @return The int columns of the table
+     */
+    int[][] intColumns() {
+        return new int[][]{dayofMonth, flightDate, uniqueCarrier, tailNum,
+            originAirportID, origin, originStateName, destAirportID, dest,
+            destStateName, depTime, depDelay, wheelsOff, wheelsOn, arrTime,
+            arrDelay, cancellationCode, airTime, distance};
+    }
+
+    /**
+     * Method returns the byte columns in the fixed order used by the snapshot
+     * files. The arrays are the columns themselves, not copies
+     *
+     * @return The byte columns of the table
+     */
+    byte[][] byteColumns() {
+        return new byte[][]{dayOfWeek, cancelled, diverted};
+    }
+
+    /**
+     * Method returns the dictionaries in the fixed order used by the snapshot
+     * files
+     *
+     * @return The dictionaries of the table
+     */
+    StringDictionary[] dictionaries() {
+        return new StringDictionary[]{carriers, tailNums, airportIDs, airports,
+            states, cancellationCodes};
+    }
+
+    /**
+     * Method returns the array of an int column
+     *
+     * @param column The column of the table
+     * @return The column itself, not a copy, or null for the byte columns
+     * (DAY_OF_WEEK, CANCELLED and DIVERTED)
+     */
+    int[] intColumn(FlightColumn column) {
+        switch (column) {
+            case DAY_OF_MONTH:
+                return dayofMonth;
+            case FLIGHT_DATE:
+                return flightDate;
+            case UNIQUE_CARRIER:
+                return uniqueCarrier;
+            case TAIL_NUM:
+                return tailNum;
+            case ORIGIN_AIRPORT_ID:
+                return originAirportID;
+            case ORIGIN:
+                return origin;
+            case ORIGIN_STATE_NAME:
+                return originStateName;
+            case DEST_AIRPORT_ID:
+                return destAirportID;
+            case DEST:
+                return dest;
+            case DEST_STATE_NAME:
+                return destStateName;
+            case DEP_TIME:
+                return depTime;
+            case DEP_DELAY:
+                return depDelay;
+            case WHEELS_OFF:
+                return wheelsOff;
+            case WHEELS_ON:
+                return wheelsOn;
+            case ARR_TIME:
+                return arrTime;
+            case ARR_DELAY:
+                return arrDelay;
+            case CANCELLATION_CODE:
+                return cancellationCode;
+            case AIR_TIME:
+                return airTime;
+            case DISTANCE:
+                return distance;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Method returns the array of a byte column
+     *
+     * @param column The column of the table
+     * @return The column itself, not a copy, or null for the int columns
+     */
+    byte[] byteColumn(FlightColumn column) {
+        switch (column) {
+            case DAY_OF_WEEK:
+                return dayOfWeek;
+            case CANCELLED:
+                return cancelled;
+            case DIVERTED:
+                return diverted;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Method returns the dictionary of a string column. The airport columns
+     * share one dictionary, and so do the state columns
+     *
+     * @param column The column of the table
+     * @return The dictionary or null for the number columns
+     */
+    public StringDictionary dictionary(FlightColumn column) {
+        switch (column) {
+            case UNIQUE_CARRIER:
+                return carriers;
+            case TAIL_NUM:
+                return tailNums;
+            case ORIGIN_AIRPORT_ID:
+            case DEST_AIRPORT_ID:
+                return airportIDs;
+            case ORIGIN:
+            case DEST:
+                return airports;
+            case ORIGIN_STATE_NAME:
+            case DEST_STATE_NAME:
+                return states;
+            case CANCELLATION_CODE:
+                return cancellationCodes;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Method copies the values of a column for the selected rows, so that a
+     * query handles a block of rows one column at a time
+     *
+     * @param column The column of the table
+     * @param rows The selected rows
+     * @param count The number of the selected rows
+     * @param values The array for the values of the rows
+     */
+    public void gather(FlightColumn column, int[] rows, int count, int[] values) {
+        int[] ints = intColumn(column);
+        if (ints != null) {
+            for (int i = 0; i < count; i++) {
+                values[i] = ints[rows[i]];
+            }
+        } else {
+            byte[] bytes = byteColumn(column);
+            for (int i = 0; i < count; i++) {
+                values[i] = bytes[rows[i]];
+            }
+        }
+    }
+
+    /**
+     * Method prepares the columns for the given number of rows, which are then
+     * filled directly in the arrays of intColumns() and byteColumns()
+     *
+     * @param rows The number of rows
+     * @param completedCount The number of completed flights among the rows
+     * @param cancelledCount The number of cancelled flights among the rows
+     */
+    void restore(int rows, long completedCount, long cancelledCount) {
+        if (rows > capacity) {
+            allocate(rows);
+        }
+        size = rows;
+        this.completedCount = completedCount;
+        this.cancelledCount = cancelledCount;
+    }
+
+    /**
+     * Method changes the capacity of the columns
+     *
+     * @param newCapacity The number of rows which the columns can hold
+     */
+    private void allocate(int newCapacity) {
+        capacity = newCapacity;
+        dayofMonth = resize(dayofMonth);
+        dayOfWeek = resize(dayOfWeek);
+        flightDate = resize(flightDate);
+        uniqueCarrier = resize(uniqueCarrier);
+        tailNum = resize(tailNum);
+        originAirportID = resize(originAirportID);
+        origin = resize(origin);
+        originStateName = resize(originStateName);
+        destAirportID = resize(destAirportID);
+        dest = resize(dest);
+        destStateName = resize(destStateName);
+        depTime = resize(depTime);
+        depDelay = resize(depDelay);
+        wheelsOff = resize(wheelsOff);
+        wheelsOn = resize(wheelsOn);
+        arrTime = resize(arrTime);
+        arrDelay = resize(arrDelay);
+        cancelled = resize(cancelled);
+        cancellationCode = resize(cancellationCode);
+        diverted = resize(diverted);
+        airTime = resize(airTime);
+        distance = resize(distance);
+    }
+
+    private int[] resize(int[] column) {
+        return column == null ? new int[capacity] : Arrays.copyOf(column, capacity);
+    }
+
+    private byte[] resize(byte[] column) {
+        return column == null ? new byte[capacity] : Arrays.copyOf(column, capacity);
+    }
+
+    /**
+     * Method returns the rows of each day of the flights. The ranges are read
+     * from the snapshot or found on the first call after the rows change
+     *
+     * @return The ranges of the rows of each day
+     */
+    public DayRanges getDayRanges() {
+        if (dayRanges == null || !dayRanges.covers(this)) {
+            dayRanges = DayRanges.build(this);
+        }
+        return dayRanges;
+    }
+
+    void setDayRanges(DayRanges dayRanges) {
+        this.dayRanges = dayRanges;
+    }
+
+    /**
+     * Method returns the number of rows of the table
+     *
+     * @return The number of committed rows
+     */
+    public int size() {
+        return size;
+    }
+
+    public long getCompletedCount() {
+        return completedCount;
+    }
+
+    public long getCancelledCount() {
+        return cancelledCount;
+    }
+
+    /**
+     * Method counts a parsed row which is not added to the table
+     *
+     * @param reason The reason of the rejection
+     * @param count The number of the rejected rows
+     */
+    void reject(String reason, long count) {
+        rejectedRows.addTo(reason, count);
+    }
+
+    /**
+     * Method returns the numbers of the rejected rows for each reason, so the
+     * snapshot of the table keeps them
+     *
+     * @return The numbers of the rows in the order of the first rejection
+     */
+    public Map<String, Long> getRejectedCounts() {
+        return rejectedRows.toMap();
+    }
+
+    /**
+     * Method counts the parsed rows which break a rule of the validation,
+     * whether they are rejected or not
+     *
+     * @param reason The reason of the rule
+     * @param count The number of the rows
+     */
+    void countViolations(String reason, long count) {
+        violations.addTo(reason, count);
+    }
+
+    /**
+     * Method returns the numbers of the rows breaking each rule of the
+     * validation
+     *
+     * @return The numbers of the rows in the order of the first violation
+     */
+    public Map<String, Long> getViolationCounts() {
+        return violations.toMap();
+    }
+
+    public int getDayofMonth(int row) {
+        return dayofMonth[row];
+    }
+
+    public int getDayOfWeek(int row) {
+        return dayOfWeek[row];
+    }
+
+    public LocalDate getFlightDate(int row) {
+        return LocalDate.ofEpochDay(flightDate[row]);
+    }
+
+    public int getFlightDay(int row) {
+        return flightDate[row];
+    }
+
+    public String getUniqueCarrier(int row) {
+        return carriers.value(uniqueCarrier[row]);
+    }
+
+    public int getUniqueCarrierCode(int row) {
+        return uniqueCarrier[row];
+    }
+
+    public String getTailNum(int row) {
+        return tailNums.value(tailNum[row]);
+    }
+
+    public int getTailNumCode(int row) {
+        return tailNum[row];
+    }
+
+    public String getOriginAirportID(int row) {
+        return airportIDs.value(originAirportID[row]);
+    }
+
+    public int getOriginAirportIDCode(int row) {
+        return originAirportID[row];
+    }
+
+    public String getOrigin(int row) {
+        return airports.value(origin[row]);
+    }
+
+    public int getOriginCode(int row) {
+        return origin[row];
+    }
+
+    public String getOriginStateName(int row) {
+        return states.value(originStateName[row]);
+    }
+
+    public int getOriginStateNameCode(int row) {
+        return originStateName[row];
+    }
+
+    public String getDestAirportID(int row) {
+        return airportIDs.value(destAirportID[row]);
+    }
+
+    public int getDestAirportIDCode(int row) {
+        return destAirportID[row];
+    }
+
+    public String getDest(int row) {
+        return airports.value(dest[row]);
+    }
+
+    public int getDestCode(int row) {
+        return dest[row];
+    }
+
+    public String getDestStateName(int row) {
+        return states.value(destStateName[row]);
+    }
+
+    public int getDestStateNameCode(int row) {
+        return destStateName[row];
+    }
+
+    public int getDepTime(int row) {
+        return depTime[row];
+    }
+
+    public int getDepDelay(int row) {
+        return depDelay[row];
+    }
+
+    public int getWheelsOff(int row) {
+        return wheelsOff[row];
+    }
+
+    public int getWheelsOn(int row) {
+        return wheelsOn[row];
+    }
+
+    public int getArrTime(int row) {
+        return arrTime[row];
+    }
+
+    public int getArrDelay(int row) {
+        return arrDelay[row];
+    }
+
+    public int getCancelled(int row) {
+        return cancelled[row];
+    }
+
+    public String getCancellationCode(int row) {
+        return cancellationCodes.value(cancellationCode[row]);
+    }
+
+    public int getCancellationCodeCode(int row) {
+        return cancellationCode[row];
+    }
+
+    public int getDiverted(int row) {
+        return diverted[row];
+    }
+
+    public int getAirTime(int row) {
+        return airTime[row];
+    }
+
+    public int getDistance(int row) {
+        return distance[row];
+    }
+
+    public StringDictionary getCarriers() {
+        return carriers;
+    }
+
+    public StringDictionary getTailNums() {
+        return tailNums;
+    }
+
+    public StringDictionary getAirportIDs() {
+        return airportIDs;
+    }
+
+    public StringDictionary getAirports() {
+        return airports;
+    }
+
+    public StringDictionary getStates() {
+        return states;
+    }
+
+    public StringDictionary getCancellationCodes() {
+        return cancellationCodes;
+    }
+}
@@ -0,0 +1,92 @@
+package datasciencewithairlines;
+
+import java.io.Serializable;
+
+/**
+ * Class that is used to estimate the number of distinct values in fixed
+ * memory. Each hash selects a register by its first bits, and the register
+ * keeps the longest run of leading zeros seen in the rest of the hash. The
+ * standard error of the estimate is 1.04 / sqrt(number of registers)
+ */
+public class HyperLogLog implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int precision;
+    private byte[] registers;
+
+    /**
+     * Constructor of the empty sketch
+     *
+     * @param settings The error bound of the distinct counts
+     */
+    public HyperLogLog(SketchSettings settings) {
+        this.precision = settings.distinctPrecision();
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Method adds the value given by its 64-bit hash
+     *
+     * @param hash The hash of the value, see CountMinSketch.hash
+     */
+    public void add(long hash) {
+        int register = (int) (hash >>> (64 - precision));
+        // the marker bit limits the run when the rest of the hash is zero
+        byte rank = (byte) (Long.numberOfLeadingZeros(hash << precision | 1L << (precision - 1)) + 1);
+        if (rank > registers[register]) {
+            registers[register] = rank;
+        }
+    }
+
+    /**
+     * Method adds the values counted by the other sketch with the same
+     * settings
+     *
+     * @param other The sketch of the next part of the database
+     */
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Method estimates the number of distinct values. Small numbers are
+     * estimated by the share of the empty registers (linear counting)
+     *
+     * @return The estimate
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int empty = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                empty++;
+            }
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && empty > 0) {
+            estimate = m * Math.log((double) m / empty);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Method returns the standard error of the estimate
+     *
+     * @return The relative standard error
+     */
+    public double getStandardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    public long getMemoryBytes() {
+        return registers.length;
+    }
+}
@@ -0,0 +1,163 @@
+package datasciencewithairlines;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Class that is used to count by int keys, such as the days or the codes of
+ * the dictionaries, without boxing. The entries are kept in the order of their
+ * first encounter in dense arrays of keys and counters and are found through
+ * an open-addressing table of the numbers of the entries, so any int is a
+ * valid key and counting a known key allocates nothing
+ */
+public class IntLongMap implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int[] keys = new int[8];
+    private long[] values = new long[keys.length];
+    private int size;
+    // the number of the entry + 1 in each slot, 0 for the empty slots
+    private int[] slots = new int[16];
+
+    private static int hash(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ hash >>> 16;
+    }
+
+    /**
+     * Method finds the number of the entry of the key
+     *
+     * @param key The key
+     * @return The number of the entry or -1 if the key is not counted
+     */
+    public int indexOf(int key) {
+        int mask = slots.length - 1;
+        for (int slot = hash(key) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slots[slot] - 1] == key) {
+                return slots[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Method finds the number of the entry of the key and adds an entry with
+     * the counter 0 if the key is new
+     *
+     * @param key The key
+     * @return The number of the entry
+     */
+    public int insert(int key) {
+        int mask = slots.length - 1;
+        int slot = hash(key) & mask;
+        for (; slots[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slots[slot] - 1] == key) {
+                return slots[slot] - 1;
+            }
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        slots[slot] = ++size;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return size - 1;
+    }
+
+    private void rehash(int length) {
+        slots = new int[length];
+        for (int index = 0; index < size; index++) {
+            int slot = hash(keys[index]) & (length - 1);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (length - 1);
+            }
+            slots[slot] = index + 1;
+        }
+    }
+
+    /**
+     * Method adds the value to the counter of the key
+     *
+     * @param key The key
+     * @param value The value added to the counter
+     * @return The new value of the counter
+     */
+    public long addTo(int key, long value) {
+        int index = insert(key);
+        return values[index] += value;
+    }
+
+    /**
+     * Method adds the value to the counter of the entry
+     *
+     * @param index The number of the entry
+     * @param value The value added to the counter
+     * @return The new value of the counter
+     */
+    public long addAt(int index, long value) {
+        return values[index] += value;
+    }
+
+    /**
+     * Method returns the counter of the key
+     *
+     * @param key The key
+     * @return The counter or 0 if the key is not counted
+     */
+    public long get(int key) {
+        int index = indexOf(key);
+        return index < 0 ? 0 : values[index];
+    }
+
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int keyAt(int index) {
+        return keys[index];
+    }
+
+    public long valueAt(int index) {
+        return values[index];
+    }
+
+    /**
+     * Method adds the counters of the other map. The keys which are new for
+     * this map are added in the order of their first encounter
+     *
+     * @param other The counters of the next part
+     */
+    public void merge(IntLongMap other) {
+        for (int index = 0; index < other.size; index++) {
+            addTo(other.keys[index], other.values[index]);
+        }
+    }
+
+    /**
+     * Method finds the entries with the greatest counters. Of the equal
+     * counters the smaller keys are first
+     *
+     * @param k The number of the kept entries
+     * @return The numbers of the k best entries, the best first
+     */
+    public int[] topK(int k) {
+        TopK<Integer> top = new TopK<>(k, (first, second) -> {
+            int byValue = Long.compare(values[second], values[first]);
+            return byValue != 0 ? byValue : Integer.compare(keys[first], keys[second]);
+        });
+        for (int index = 0; index < size; index++) {
+            if (!top.isFull() || values[index] >= values[top.worst()]) {
+                top.offer(index);
+            }
+        }
+        return top.toList().stream().mapToInt(Integer::intValue).toArray();
+    }
+}
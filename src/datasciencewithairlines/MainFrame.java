@@ -3,14 +3,22 @@ package datasciencewithairlines;
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import static javax.swing.JFrame.EXIT_ON_CLOSE;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 /**
@@ -24,6 +32,13 @@ public class MainFrame extends JFrame {
     private JButton btnChooseFile;
     private JButton btnAnalyzeFile;
     private JButton btnExitProgram;
+    private JButton btnCancel;
+    private JCheckBox chkSnapshot;
+    private JProgressBar progressBar;
+    private JLabel lblRate;
+    private AnalysisCenter analysisCenter;
+    private Timer progressTimer;
+    private long analysisStart;
 
     /**
      * Constructor of the main program frame
@@ -73,22 +88,51 @@ public class MainFrame extends JFrame {
 
         btnAnalyzeFile = new JButton("Analyze file");
         btnAnalyzeFile.addActionListener((ActionEvent ae) -> {
-            try {
-                AnalysisCenter ac = new AnalysisCenter();
-                ac.analyzeFile(dirName, fileName);
-                JOptionPane.showMessageDialog(MainFrame.this, "Data analysis "
-                        + "completed. The results of the analysis are recorded "
-                        + "in the file 'answers.txt' in the folder where the "
-                        + "source data is located.");
-                btnAnalyzeFile.setEnabled(false);
-                label2.setText("You can choose another file in CSV format to analyze.");
-            } catch (Exception ex) {
-                btnAnalyzeFile.setEnabled(false);
-                JOptionPane.showMessageDialog(MainFrame.this, "Sorry, "
-                        + "file upload and analysis failed. Please choose "
-                        + "another file with the correct data.");
-//                ex.printStackTrace();
-            }
+            analysisCenter = new AnalysisCenter();
+            analysisCenter.setSnapshots(chkSnapshot.isSelected());
+            AnalysisCenter ac = analysisCenter;
+            File file = fileName;
+            String dir = dirName;
+            setAnalysisRunning(true);
+            label2.setText("Analyzing '" + file.getName() + "'...");
+
+            // the analysis runs off the event dispatch thread, so the frame stays responsive
+            new SwingWorker<Void, Void>() {
+                @Override
+                protected Void doInBackground() throws IOException {
+                    ac.analyzeFile(dir, file);
+                    return null;
+                }
+
+                @Override
+                protected void done() {
+                    setAnalysisRunning(false);
+                    btnAnalyzeFile.setEnabled(false);
+                    analysisCenter = null;
+                    try {
+                        get();
+                        progressBar.setValue(progressBar.getMaximum());
+                        JOptionPane.showMessageDialog(MainFrame.this, "Data analysis "
+                                + "completed. The results of the analysis are recorded "
+                                + "in the file 'answers.txt' in the folder where the "
+                                + "source data is located.");
+                        label2.setText("You can choose another file in CSV format to analyze.");
+                    } catch (ExecutionException ex) {
+                        if (ex.getCause() instanceof CancellationException) {
+                            progressBar.setValue(0);
+                            lblRate.setText("The analysis is cancelled.");
+                            label2.setText("You can choose a file in CSV format to analyze.");
+                            btnAnalyzeFile.setEnabled(true);
+                        } else {
+                            JOptionPane.showMessageDialog(MainFrame.this, "Sorry, "
+                                    + "file upload and analysis failed. Please choose "
+                                    + "another file with the correct data.");
+                        }
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }.execute();
         }
         );
         btnAnalyzeFile.setBounds(195, 210, 110, 25);
@@ -103,6 +147,37 @@ public class MainFrame extends JFrame {
         btnExitProgram.setBounds(340, 210, 110, 25);
         panel.add(btnExitProgram);
 
+        btnCancel = new JButton("Cancel");
+        btnCancel.addActionListener((ActionEvent ae) -> {
+            if (analysisCenter != null) {
+                analysisCenter.cancel();
+                btnCancel.setEnabled(false);
+                lblRate.setText("Cancelling...");
+            }
+        }
+        );
+        btnCancel.setBounds(195, 210, 110, 25);
+        btnCancel.setVisible(false);
+        panel.add(btnCancel);
+
+        progressBar = new JProgressBar(0, 1000);
+        progressBar.setBounds(50, 120, 400, 20);
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
+        panel.add(progressBar);
+
+        lblRate = new JLabel();
+        lblRate.setBounds(50, 145, 400, 20);
+        lblRate.setHorizontalAlignment((int) CENTER_ALIGNMENT);
+        panel.add(lblRate);
+
+        progressTimer = new Timer(250, (ActionEvent ae) -> showProgress());
+
+        chkSnapshot = new JCheckBox("Keep a snapshot of the parsed data for faster reruns");
+        chkSnapshot.setBounds(50, 175, 400, 25);
+        chkSnapshot.setOpaque(false);
+        panel.add(chkSnapshot);
+
         JLabel backgroundLabel;
         backgroundLabel = new JLabel(new ImageIcon(getClass().getResource("background.jpg")));
         backgroundLabel.setBounds(0, 0, 500, 250);
@@ -113,6 +188,46 @@ public class MainFrame extends JFrame {
         setVisible(true);
     }
 
+    /**
+     * Method switches the frame between choosing a file and waiting for the
+     * analysis: the progress bar and the Cancel button are shown only while
+     * the analysis runs
+     *
+     * @param running true if the analysis has been started
+     */
+    private void setAnalysisRunning(boolean running) {
+        btnChooseFile.setEnabled(!running);
+        chkSnapshot.setEnabled(!running);
+        btnAnalyzeFile.setVisible(!running);
+        btnCancel.setVisible(running);
+        btnCancel.setEnabled(running);
+        progressBar.setVisible(true);
+        if (running) {
+            progressBar.setValue(0);
+            lblRate.setText("");
+            analysisStart = System.nanoTime();
+            progressTimer.start();
+        } else {
+            progressTimer.stop();
+            showProgress();
+        }
+    }
+
+    /**
+     * Method shows the share of the file read so far and the reading speed
+     */
+    private void showProgress() {
+        AnalysisCenter ac = analysisCenter;
+        if (ac == null || fileName == null) {
+            return;
+        }
+        long length = Math.max(1, fileName.length());
+        progressBar.setValue((int) Math.min(1000, ac.getBytesRead() * 1000 / length));
+        double seconds = Math.max(1e-3, (System.nanoTime() - analysisStart) / 1e9);
+        lblRate.setText(String.format(Locale.ROOT, "%,d rows read, %,.0f rows/s",
+                ac.getRowsRead(), ac.getRowsRead() / seconds));
+    }
+
     public static void main(String[] args) {
 
         new MainFrame();
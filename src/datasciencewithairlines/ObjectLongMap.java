@@ -0,0 +1,242 @@
+package datasciencewithairlines;
+
+import java.io.Serializable;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Class that is used to count by keys without boxing the counters. The entries
+ * are kept in the order of their first encounter in a dense array of keys and
+ * an array of longs, and they are found through an open-addressing table of
+ * the numbers of the entries. A counter is incremented in place, so counting a
+ * known key allocates nothing
+ *
+ * @param <K> The type of the keys
+ */
+public class ObjectLongMap<K> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Object[] keys = new Object[8];
+    private int[] hashes = new int[keys.length];
+    private long[] values = new long[keys.length];
+    private int size;
+    // the number of the entry + 1 in each slot, 0 for the empty slots
+    private int[] slots = new int[16];
+
+    private static int hash(Object key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return hash ^ hash >>> 16;
+    }
+
+    /**
+     * Method finds the number of the entry of the key
+     *
+     * @param key The key
+     * @return The number of the entry or -1 if the key is not counted
+     */
+    public int indexOf(K key) {
+        int hash = hash(key);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int index = slots[slot] - 1;
+            if (hashes[index] == hash && keys[index].equals(key)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Method finds the number of the entry of the key and adds an entry with
+     * the counter 0 if the key is new
+     *
+     * @param key The key
+     * @return The number of the entry
+     */
+    public int insert(K key) {
+        int hash = hash(key);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        for (; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int index = slots[slot] - 1;
+            if (hashes[index] == hash && keys[index].equals(key)) {
+                return index;
+            }
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        hashes[size] = hash;
+        slots[slot] = ++size;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return size - 1;
+    }
+
+    private void rehash(int length) {
+        slots = new int[length];
+        for (int index = 0; index < size; index++) {
+            int slot = hashes[index] & (length - 1);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (length - 1);
+            }
+            slots[slot] = index + 1;
+        }
+    }
+
+    /**
+     * Method adds the value to the counter of the key
+     *
+     * @param key The key
+     * @param value The value added to the counter
+     * @return The new value of the counter
+     */
+    public long addTo(K key, long value) {
+        int index = insert(key);
+        return values[index] += value;
+    }
+
+    /**
+     * Method adds the value to the counter of the entry
+     *
+     * @param index The number of the entry
+     * @param value The value added to the counter
+     * @return The new value of the counter
+     */
+    public long addAt(int index, long value) {
+        return values[index] += value;
+    }
+
+    /**
+     * Method returns the counter of the key
+     *
+     * @param key The key
+     * @return The counter or 0 if the key is not counted
+     */
+    public long get(K key) {
+        int index = indexOf(key);
+        return index < 0 ? 0 : values[index];
+    }
+
+    public boolean containsKey(K key) {
+        return indexOf(key) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public K keyAt(int index) {
+        return (K) keys[index];
+    }
+
+    public long valueAt(int index) {
+        return values[index];
+    }
+
+    /**
+     * Method adds the counters of the other map. The keys which are new for
+     * this map are added in the order of their first encounter
+     *
+     * @param other The counters of the next part
+     */
+    public void merge(ObjectLongMap<K> other) {
+        for (int index = 0; index < other.size; index++) {
+            addTo(other.keyAt(index), other.values[index]);
+        }
+    }
+
+    /**
+     * Method finds the best entries of the map
+     *
+     * @param k The number of the kept entries
+     * @param order The order of the entries, the best first
+     * @return The k best entries, the best first
+     */
+    public List<Entry<K, Long>> topK(int k, Comparator<? super Entry<K, Long>> order) {
+        TopK<Entry<K, Long>> top = new TopK<>(k, order);
+        for (int index = 0; index < size; index++) {
+            top.offer(new SimpleEntry<>(keyAt(index), values[index]));
+        }
+        return top.toList();
+    }
+
+    /**
+     * Method finds the entry with the greatest counter if no other entry has
+     * the same counter, so the entry does not depend on the order of the keys
+     *
+     * @return The number of the entry or -1 if the map is empty or the
+     * greatest counter is shared
+     */
+    public int indexOfUniqueMax() {
+        return indexOfUnique(1);
+    }
+
+    /**
+     * Method finds the entry with the smallest counter if no other entry has
+     * the same counter
+     *
+     * @return The number of the entry or -1 if the map is empty or the
+     * smallest counter is shared
+     */
+    public int indexOfUniqueMin() {
+        return indexOfUnique(-1);
+    }
+
+    private int indexOfUnique(int sign) {
+        int best = -1;
+        boolean shared = false;
+        for (int index = 0; index < size; index++) {
+            int order = best < 0 ? 1 : Long.compare(values[index], values[best]) * sign;
+            if (order > 0) {
+                best = index;
+                shared = false;
+            } else if (order == 0) {
+                shared = true;
+            }
+        }
+        return shared ? -1 : best;
+    }
+
+    /**
+     * Method copies the counters into a map
+     *
+     * @return The counters in the order of the first encounter of the keys
+     */
+    public Map<K, Long> toMap() {
+        Map<K, Long> map = new LinkedHashMap<>();
+        for (int index = 0; index < size; index++) {
+            map.put(keyAt(index), values[index]);
+        }
+        return map;
+    }
+
+    /**
+     * Method copies the counters into a HashMap one by one in the order of the
+     * first encounter of the keys with computeIfAbsent, as
+     * Collectors.groupingBy does. This gives the same iteration order (and so
+     * the same choice between equal values) as the groupingBy maps
+     *
+     * @return The HashMap with the same counters
+     */
+    public Map<K, Long> toHashMap() {
+        Map<K, Long> map = new HashMap<>();
+        for (int index = 0; index < size; index++) {
+            long value = values[index];
+            map.computeIfAbsent(keyAt(index), key -> value);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,160 @@
+package datasciencewithairlines;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Class that is used to keep the partial results of all questions for a shard
+ * of the dataset: a range of bytes of one of its files. The partial results
+ * can be written to disk, read by another process and merged. The position of
+ * the shard (the index of the file in the dataset and the offset of the range)
+ * decides which of the equal values wins, as in a single pass over the whole
+ * dataset, so the shards are always merged in the order of their positions
+ */
+public class PartialAggregate {
+
+    private static final int MAGIC = 0x44535750;
+    private static final int VERSION = 7;
+
+    private int firstIndex;
+    private long firstStart;
+    private int lastIndex;
+    private long lastEnd;
+    private int shards;
+    private AggregationEngine aggregationEngine;
+
+    /**
+     * Constructor of the partial results of one shard
+     *
+     * @param index The index of the file in the dataset
+     * @param start The offset of the first byte of the shard in the file
+     * @param end The offset after the last byte of the shard in the file
+     * @param aggregationEngine The engine which has read the shard
+     */
+    public PartialAggregate(int index, long start, long end, AggregationEngine aggregationEngine) {
+        this.firstIndex = index;
+        this.firstStart = start;
+        this.lastIndex = index;
+        this.lastEnd = end;
+        this.shards = 1;
+        this.aggregationEngine = aggregationEngine;
+    }
+
+    public AggregationEngine getAggregationEngine() {
+        return aggregationEngine;
+    }
+
+    /**
+     * Method returns the number of shards whose results have been merged into
+     * these partial results
+     *
+     * @return The number of shards
+     */
+    public int getShards() {
+        return shards;
+    }
+
+    /**
+     * Method adds the partial results of the shards which follow the shards of
+     * these results. The merging is associative: the merged results do not
+     * depend on how the sequence of shards is grouped
+     *
+     * @param other The partial results of the next shards; they are consumed
+     * @throws IllegalArgumentException If the other shards begin before the
+     * end of these shards, so they are out of order or overlap
+     */
+    public void merge(PartialAggregate other) {
+        if (compare(other.firstIndex, other.firstStart, lastIndex, lastEnd) < 0) {
+            throw new IllegalArgumentException("The partial results must be merged "
+                    + "in the order of the shards, and the shards must not overlap");
+        }
+        aggregationEngine.merge(other.aggregationEngine);
+        lastIndex = other.lastIndex;
+        lastEnd = other.lastEnd;
+        shards += other.shards;
+    }
+
+    /**
+     * Method merges the partial results in the order of the positions of
+     * their shards, whatever the order of the list is
+     *
+     * @param partials The partial results of the shards
+     * @return The merged results or null if the list is empty
+     */
+    public static PartialAggregate mergeAll(List<PartialAggregate> partials) {
+        List<PartialAggregate> sorted = new ArrayList<>(partials);
+        sorted.sort(Comparator.comparingInt((PartialAggregate partial) -> partial.firstIndex)
+                .thenComparingLong(partial -> partial.firstStart));
+        PartialAggregate merged = null;
+        for (PartialAggregate partial : sorted) {
+            if (merged == null) {
+                merged = partial;
+            } else {
+                merged.merge(partial);
+            }
+        }
+        return merged;
+    }
+
+    private static int compare(int index, long start, int otherIndex, long otherStart) {
+        return index != otherIndex ? Integer.compare(index, otherIndex) : Long.compare(start, otherStart);
+    }
+
+    /**
+     * Method writes the partial results to the file
+     *
+     * @param partial The file to be created or overwritten
+     * @throws IOException If the file cannot be written
+     */
+    public void write(File partial) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(partial)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(firstIndex);
+            out.writeLong(firstStart);
+            out.writeInt(lastIndex);
+            out.writeLong(lastEnd);
+            out.writeInt(shards);
+            out.writeObject(aggregationEngine);
+        }
+    }
+
+    /**
+     * Method reads the partial results from the file
+     *
+     * @param partial The file written by write()
+     * @return The partial results
+     * @throws IOException If the file cannot be read or is not a file of
+     * partial results
+     */
+    public static PartialAggregate read(File partial) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(partial)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(partial + " is not a file of partial results");
+            }
+            int firstIndex = in.readInt();
+            long firstStart = in.readLong();
+            int lastIndex = in.readInt();
+            long lastEnd = in.readLong();
+            int shards = in.readInt();
+            PartialAggregate result = new PartialAggregate(firstIndex, firstStart, lastEnd,
+                    (AggregationEngine) in.readObject());
+            result.lastIndex = lastIndex;
+            result.shards = shards;
+            return result;
+        } catch (ClassNotFoundException | ClassCastException ex) {
+            throw new IOException(partial + " is damaged", ex);
+        }
+    }
+}
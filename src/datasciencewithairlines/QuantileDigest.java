@@ -0,0 +1,176 @@
+package datasciencewithairlines;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Class that is used to estimate the quantiles of a value in fixed memory,
+ * in the manner of the merging t-digest. The values are collected in a buffer,
+ * and a full buffer is merged with the sorted centroids (mean and weight). A
+ * centroid may grow only while it spans a small part of the scale function
+ * k(q) = compression / (2 pi) * asin(2q - 1), so the centroids are small near
+ * the ends of the distribution and the high percentiles stay accurate
+ */
+public class QuantileDigest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int compression;
+    private double[] means;
+    private long[] weights;
+    private int centroids;
+    private double[] buffer;
+    private int buffered;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Constructor of the empty digest
+     *
+     * @param settings The compression of the digest
+     */
+    public QuantileDigest(SketchSettings settings) {
+        this.compression = settings.getCompression();
+        this.means = new double[2 * compression + 8];
+        this.weights = new long[means.length];
+        this.buffer = new double[5 * compression];
+    }
+
+    /**
+     * Method adds a value
+     *
+     * @param value The value, for example a delay in minutes
+     */
+    public void add(double value) {
+        if (buffered == buffer.length) {
+            compress();
+        }
+        buffer[buffered++] = value;
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Method adds the values of the other digest
+     *
+     * @param other The digest of the next part of the database
+     */
+    public void merge(QuantileDigest other) {
+        other.compress();
+        compress();
+        double[] otherMeans = Arrays.copyOf(other.means, other.centroids);
+        long[] otherWeights = Arrays.copyOf(other.weights, other.centroids);
+        merge(otherMeans, otherWeights, other.centroids);
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        Arrays.sort(buffer, 0, buffered);
+        long[] ones = new long[buffered];
+        Arrays.fill(ones, 1);
+        int values = buffered;
+        buffered = 0;
+        merge(Arrays.copyOf(buffer, values), ones, values);
+    }
+
+    /**
+     * Method merges the sorted points with the centroids
+     *
+     * @param pointMeans The means of the points in ascending order
+     * @param pointWeights The weights of the points
+     * @param points The number of the points
+     */
+    private void merge(double[] pointMeans, long[] pointWeights, int points) {
+        int total = centroids + points;
+        double[] allMeans = new double[total];
+        long[] allWeights = new long[total];
+        long totalWeight = 0;
+        for (int i = 0, j = 0, n = 0; n < total; n++) {
+            if (j == points || i < centroids && means[i] <= pointMeans[j]) {
+                allMeans[n] = means[i];
+                allWeights[n] = weights[i++];
+            } else {
+                allMeans[n] = pointMeans[j];
+                allWeights[n] = pointWeights[j++];
+            }
+            totalWeight += allWeights[n];
+        }
+        centroids = 0;
+        long before = 0;
+        double limit = scale(0) + 1;
+        for (int n = 0; n < total; n++) {
+            double q = (double) (before + allWeights[n]) / totalWeight;
+            if (centroids > 0 && scale(q) <= limit) {
+                int last = centroids - 1;
+                weights[last] += allWeights[n];
+                means[last] += (allMeans[n] - means[last]) * allWeights[n] / weights[last];
+            } else {
+                if (centroids == means.length) {
+                    means = Arrays.copyOf(means, centroids * 2);
+                    weights = Arrays.copyOf(weights, centroids * 2);
+                }
+                means[centroids] = allMeans[n];
+                weights[centroids++] = allWeights[n];
+                limit = scale((double) before / totalWeight) + 1;
+            }
+            before += allWeights[n];
+        }
+    }
+
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, Math.max(0, q)) - 1);
+    }
+
+    /**
+     * Method estimates the quantile
+     *
+     * @param q The quantile from 0 to 1, for example 0.99
+     * @return The estimate or NaN if the digest is empty
+     */
+    public double quantile(double q) {
+        compress();
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double rank = q * count;
+        long before = 0;
+        for (int i = 0; i < centroids; i++) {
+            double center = before + weights[i] / 2.0;
+            if (rank < center) {
+                if (i == 0) {
+                    return min + (means[0] - min) * Math.max(0, rank) / Math.max(1, center);
+                }
+                double previous = before - weights[i - 1] / 2.0;
+                return means[i - 1] + (means[i] - means[i - 1]) * (rank - previous) / (center - previous);
+            }
+            before += weights[i];
+        }
+        double last = count - weights[centroids - 1] / 2.0;
+        return means[centroids - 1] + (max - means[centroids - 1]) * (rank - last) / Math.max(1, count - last);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Method returns the typical error of the quantiles as a share of the
+     * ranks, which is smaller near the ends of the distribution
+     *
+     * @return The error of the ranks in the middle of the distribution
+     */
+    public double getRankError() {
+        return 1.0 / compression;
+    }
+
+    public long getMemoryBytes() {
+        return 8L * (means.length + weights.length + buffer.length);
+    }
+}
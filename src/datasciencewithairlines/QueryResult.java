@@ -0,0 +1,188 @@
+package datasciencewithairlines;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Class that is used to hold the result of a query: the groups with their keys
+ * and aggregates, and the rows asked by topRows()
+ */
+public class QueryResult {
+
+    private FlightTable flights;
+    private FlightColumn[] keys;
+    private FlightQuery.Aggregate[] aggregates;
+    private int[][] keyValues;
+    private long[] counts;
+    private long[][] sums;
+    private long[][] valueCounts;
+    private long[][] mins;
+    private long[][] maxs;
+    private int[] rows;
+    private int[] order;
+
+    QueryResult(FlightTable flights, FlightQuery query, int groups, int[][] keyValues, long[] counts,
+            long[][] sums, long[][] valueCounts, long[][] mins, long[][] maxs, int[] rows,
+            int orderBy, int limit) {
+        this.flights = flights;
+        this.keys = query.getKeys();
+        this.aggregates = query.getAggregates().toArray(new FlightQuery.Aggregate[0]);
+        this.keyValues = keyValues;
+        this.counts = counts;
+        this.sums = sums;
+        this.valueCounts = valueCounts;
+        this.mins = mins;
+        this.maxs = maxs;
+        this.rows = rows;
+        IntStream order = IntStream.range(0, groups);
+        if (orderBy >= 0) {
+            // the sort is stable, so the equal groups keep the order of the table
+            order = order.boxed()
+                    .sorted((first, second) -> Double.compare(value(second, orderBy), value(first, orderBy)))
+                    .mapToInt(Integer::intValue);
+        }
+        this.order = order.limit(limit).toArray();
+    }
+
+    /**
+     * Method returns the number of groups
+     *
+     * @return The number of groups; 1 for a query without groupBy()
+     */
+    public int size() {
+        return order.length;
+    }
+
+    /**
+     * Method returns the value of a key of the group
+     *
+     * @param index The index of the group in the result
+     * @param key The index of the key column
+     * @return The number or the code of the string
+     */
+    public int getKeyValue(int index, int key) {
+        return keyValues[key][order[index]];
+    }
+
+    /**
+     * Method returns a key of the group as it is shown in the answers
+     *
+     * @param index The index of the group in the result
+     * @param key The index of the key column
+     * @return The string, the date or the number
+     */
+    public String getKey(int index, int key) {
+        return keys[key].format(flights, getKeyValue(index, key));
+    }
+
+    /**
+     * Method returns all keys of the group separated by commas
+     *
+     * @param index The index of the group in the result
+     * @return The keys of the group
+     */
+    public String getKey(int index) {
+        StringBuilder key = new StringBuilder();
+        for (int k = 0; k < keys.length; k++) {
+            if (k > 0) {
+                key.append(',');
+            }
+            key.append(getKey(index, k));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Method returns the number of rows of the group
+     *
+     * @param index The index of the group in the result
+     * @return The number of rows
+     */
+    public long getCount(int index) {
+        return counts[order[index]];
+    }
+
+    /**
+     * Method returns an aggregate of the group as a whole number. The average
+     * is rounded down
+     *
+     * @param index The index of the group in the result
+     * @param aggregate The index of the aggregate in the order of adding
+     * @return The value or 0 if the group has no values of the column
+     */
+    public long getLong(int index, int aggregate) {
+        int group = order[index];
+        if (aggregates[aggregate] == FlightQuery.Aggregate.COUNT) {
+            return counts[group];
+        } else if (valueCounts[aggregate][group] == 0) {
+            return 0;
+        }
+        switch (aggregates[aggregate]) {
+            case SUM:
+                return sums[aggregate][group];
+            case MIN:
+                return mins[aggregate][group];
+            case MAX:
+                return maxs[aggregate][group];
+            default:
+                return Math.floorDiv(sums[aggregate][group], valueCounts[aggregate][group]);
+        }
+    }
+
+    /**
+     * Method returns an aggregate of the group
+     *
+     * @param index The index of the group in the result
+     * @param aggregate The index of the aggregate in the order of adding
+     * @return The value or NaN if the minimum, maximum or average is asked
+     * for a group without values of the column
+     */
+    public double getValue(int index, int aggregate) {
+        return value(order[index], aggregate);
+    }
+
+    private double value(int group, int aggregate) {
+        switch (aggregates[aggregate]) {
+            case COUNT:
+                return counts[group];
+            case SUM:
+                return sums[aggregate][group];
+            default:
+                if (valueCounts[aggregate][group] == 0) {
+                    return Double.NaN;
+                }
+                if (aggregates[aggregate] == FlightQuery.Aggregate.MIN) {
+                    return mins[aggregate][group];
+                } else if (aggregates[aggregate] == FlightQuery.Aggregate.MAX) {
+                    return maxs[aggregate][group];
+                }
+                return (double) sums[aggregate][group] / valueCounts[aggregate][group];
+        }
+    }
+
+    /**
+     * Method collects an aggregate of all groups into a map in the order of
+     * the result
+     *
+     * @param aggregate The index of the aggregate in the order of adding
+     * @return The map from the keys of each group to the value
+     */
+    public Map<String, Long> toMap(int aggregate) {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (int index = 0; index < size(); index++) {
+            map.put(getKey(index), getLong(index, aggregate));
+        }
+        return map;
+    }
+
+    /**
+     * Method returns the rows asked by topRows(), the greatest value first
+     *
+     * @return The row numbers of the table
+     */
+    public int[] getRows() {
+        return Arrays.copyOf(rows, rows.length);
+    }
+}
@@ -0,0 +1,133 @@
+package datasciencewithairlines;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Class that is used to collect the top-K lists of the ranking questions
+ * (which carrier, plane, airport or state is first, and which are next) and
+ * to write them to rankings.txt next to answers.txt. The lists are ordered by
+ * the value, and the equal values are ordered by the key, so the lists do not
+ * depend on the order of the database or on the number of threads
+ */
+public class Rankings {
+
+    private int carriers = 20;
+    private int tailNums = 50;
+    private int airports = 25;
+    private int others = 10;
+    private Map<String, List<String>> rankings = new LinkedHashMap<>();
+
+    public int getCarriers() {
+        return carriers;
+    }
+
+    public int getTailNums() {
+        return tailNums;
+    }
+
+    public int getAirports() {
+        return airports;
+    }
+
+    public int getOthers() {
+        return others;
+    }
+
+    /**
+     * Method adds a ranking of keys and values
+     *
+     * @param title The title of the ranking
+     * @param entries The entries, the best first
+     * @param suffix The text after each value, for example "%"
+     */
+    public void addRanking(String title, List<? extends Entry<String, ?>> entries, String suffix) {
+        List<String> lines = new ArrayList<>(entries.size());
+        for (Entry<String, ?> entry : entries) {
+            lines.add(entry.getKey() + "," + entry.getValue() + suffix);
+        }
+        addRanking(title, lines);
+    }
+
+    /**
+     * Method adds a ranking of prepared lines
+     *
+     * @param title The title of the ranking
+     * @param lines The lines, the best first
+     */
+    public void addRanking(String title, List<String> lines) {
+        rankings.put(title, new ArrayList<>(lines));
+    }
+
+    /**
+     * Method returns a ranking
+     *
+     * @param title The title of the ranking
+     * @return The lines, the best first, or null if there is no such ranking
+     */
+    public List<String> getRanking(String title) {
+        return rankings.get(title);
+    }
+
+    /**
+     * Writes a .txt of the rankings: the title of each ranking and its lines
+     * numbered from 1
+     *
+     * @param dirName The absolute path to the folder with answers.txt
+     */
+    public void writeRankings(String dirName) {
+        File out = new File(dirName, "rankings.txt");
+
+        try (PrintWriter pw = new PrintWriter(out)) {
+            for (Map.Entry<String, List<String>> ranking : rankings.entrySet()) {
+                pw.println("# " + ranking.getKey());
+                int place = 1;
+                for (String line : ranking.getValue()) {
+                    pw.println(place++ + "," + line);
+                }
+                pw.println();
+            }
+        } catch (IOException e) {
+            System.out.println("Could not write the rankings.");
+        }
+    }
+
+    public static class Builder {
+
+        private Rankings newRankings;
+
+        public Builder() {
+            newRankings = new Rankings();
+        }
+
+        public Builder withCarriers(int carriers) {
+            newRankings.carriers = carriers;
+            return this;
+        }
+
+        public Builder withTailNums(int tailNums) {
+            newRankings.tailNums = tailNums;
+            return this;
+        }
+
+        public Builder withAirports(int airports) {
+            newRankings.airports = airports;
+            return this;
+        }
+
+        public Builder withOthers(int others) {
+            newRankings.others = others;
+            return this;
+        }
+
+        public Rankings build() {
+            return newRankings;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package datasciencewithairlines;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class that is used to write the rejected rows to a side file as lines of
+ * the reason and the original line of the database. Each reading thread
+ * copies its rejected lines into its own buffer, and the full buffers are
+ * written by a separate thread, so the parsing does not wait for the disk.
+ * If the writing thread falls behind, the reading thread writes its buffer
+ * itself, and a buffer passed after the writer is closed is an error rather
+ * than a lost part of the file. The lines of different parts of the file may
+ * be mixed in any order
+ */
+public class RejectWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int QUEUED_BUFFERS = 16;
+
+    private final OutputStream out;
+    private final ThreadPoolExecutor writer;
+    private volatile IOException failure;
+
+    /**
+     * Method opens the file of the rejected rows
+     *
+     * @param file The file, it is overwritten
+     * @throws IOException If the file cannot be created
+     */
+    public RejectWriter(File file) throws IOException {
+        out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUED_BUFFERS), runnable -> {
+                    Thread thread = new Thread(runnable, "reject-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                }, (task, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new IllegalStateException("The file of the rejected rows is closed");
+                    }
+                    task.run();
+                });
+    }
+
+    /**
+     * Method creates the buffer of a reading thread
+     *
+     * @return The empty buffer
+     */
+    public Buffer newBuffer() {
+        return new Buffer();
+    }
+
+    private void write(byte[] bytes, int length) {
+        try {
+            synchronized (out) {
+                out.write(bytes, 0, length);
+            }
+        } catch (IOException ex) {
+            failure = ex;
+        }
+    }
+
+    /**
+     * Method waits until all submitted buffers are written and closes the
+     * file
+     *
+     * @throws IOException If a buffer or the file could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (out) {
+            out.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Class that is used to collect the rejected lines of one reading thread
+     */
+    public class Buffer {
+
+        private byte[] bytes = new byte[BUFFER_SIZE];
+        private int size;
+
+        /**
+         * Method adds the current line of the tokenizer with the reason of
+         * the rejection
+         *
+         * @param rule The rule which has rejected the line
+         * @param line The tokenizer positioned on the rejected line
+         */
+        public void add(ValidationRule rule, CsvTokenizer line) {
+            byte[] reason = rule.getReasonBytes();
+            int length = reason.length + line.lineLength() + 2;
+            if (size + length > bytes.length) {
+                flush();
+                if (length > bytes.length) {
+                    bytes = new byte[length];
+                }
+            }
+            System.arraycopy(reason, 0, bytes, size, reason.length);
+            size += reason.length;
+            bytes[size++] = ',';
+            line.copyLine(bytes, size);
+            size += line.lineLength();
+            bytes[size++] = '\n';
+        }
+
+        /**
+         * Method passes the collected lines to the writing thread and starts
+         * a new buffer
+         *
+         * @throws IllegalStateException If the writer has been closed
+         */
+        public void flush() {
+            if (size == 0) {
+                return;
+            }
+            byte[] full = bytes;
+            int length = size;
+            writer.execute(() -> write(full, length));
+            bytes = new byte[BUFFER_SIZE];
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package datasciencewithairlines;
+
+import java.util.Arrays;
+
+/**
+ * Accumulator of the routes (origin and destination airport) of the flights.
+ * The airports get dense numbers in the order of their first encounter, and
+ * the counters of each route are kept in one array of longs, found through an
+ * open-addressing table of the pairs of numbers. The routes are turned into
+ * the compact graph by toGraph
+ */
+public class RouteAccumulator implements FlightAccumulator {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long EMPTY = -1;
+
+    // the airports are numbered as the entries of the map
+    private ObjectLongMap<String> airports = new ObjectLongMap<>();
+    private long[] keys = newKeys(64);
+    private int[] routeOfKey = new int[keys.length];
+    private int routes;
+    private long[] counters = new long[16 * RouteGraph.COUNTERS];
+    private transient StringDictionary dictionary;
+    private transient int[] numberOfCode;
+
+    private static long[] newKeys(int size) {
+        long[] keys = new long[size];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+
+    @Override
+    public void acceptCompleted(FlightTable flights, int row) {
+        int route = routeOf(flights, row);
+        if (route < 0) {
+            return;
+        }
+        int base = route * RouteGraph.COUNTERS;
+        counters[base + RouteGraph.FLIGHTS]++;
+        if (flights.getDistance(row) > 0) {
+            counters[base + RouteGraph.DISTANCE] += flights.getDistance(row);
+        }
+        if (flights.getDepDelay(row) != 1000000) {
+            counters[base + RouteGraph.DEP_DELAY] += flights.getDepDelay(row);
+            counters[base + RouteGraph.DEP_DELAYS]++;
+        }
+        if (flights.getArrDelay(row) != 1000000) {
+            counters[base + RouteGraph.ARR_DELAY] += flights.getArrDelay(row);
+            counters[base + RouteGraph.ARR_DELAYS]++;
+        }
+    }
+
+    @Override
+    public void acceptCancelled(FlightTable flights, int row) {
+        int route = routeOf(flights, row);
+        if (route >= 0) {
+            counters[route * RouteGraph.COUNTERS + RouteGraph.FLIGHTS]++;
+            counters[route * RouteGraph.COUNTERS + RouteGraph.CANCELLED]++;
+        }
+    }
+
+    private int routeOf(FlightTable flights, int row) {
+        int originCode = flights.getOriginAirportIDCode(row);
+        int destCode = flights.getDestAirportIDCode(row);
+        if (originCode == StringDictionary.NOT_FILLED || destCode == StringDictionary.NOT_FILLED) {
+            return -1;
+        }
+        return routeOf(airportOf(flights, originCode), airportOf(flights, destCode));
+    }
+
+    /**
+     * Method finds the number of the airport by its code in the dictionary of
+     * the table, so the string is looked up only once for each table
+     */
+    private int airportOf(FlightTable flights, int code) {
+        if (dictionary != flights.getAirportIDs()) {
+            dictionary = flights.getAirportIDs();
+            numberOfCode = new int[16];
+        }
+        if (code >= numberOfCode.length) {
+            numberOfCode = Arrays.copyOf(numberOfCode, Math.max(code + 1, numberOfCode.length * 2));
+        }
+        if (numberOfCode[code] == 0) {
+            numberOfCode[code] = airports.insert(dictionary.value(code)) + 1;
+        }
+        return numberOfCode[code] - 1;
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) CountMinSketch.mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return routeOfKey[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int routeOf(int origin, int dest) {
+        long key = (long) origin << 32 | dest;
+        int mask = keys.length - 1;
+        int slot = (int) CountMinSketch.mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return routeOfKey[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        routeOfKey[slot] = routes;
+        if ((routes + 1) * RouteGraph.COUNTERS > counters.length) {
+            counters = Arrays.copyOf(counters, counters.length * 2);
+        }
+        if (++routes * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return routes - 1;
+    }
+
+    private void rehash(int size) {
+        long[] oldKeys = keys;
+        int[] oldRoutes = routeOfKey;
+        keys = newKeys(size);
+        routeOfKey = new int[size];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = (int) CountMinSketch.mix(oldKeys[i]) & (size - 1);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & (size - 1);
+                }
+                keys[slot] = oldKeys[i];
+                routeOfKey[slot] = oldRoutes[i];
+            }
+        }
+    }
+
+    @Override
+    public void merge(FlightAccumulator other) {
+        RouteAccumulator next = (RouteAccumulator) other;
+        int[] numbers = new int[next.airports.size()];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = airports.insert(next.airports.keyAt(i));
+        }
+        for (int slot = 0; slot < next.keys.length; slot++) {
+            long key = next.keys[slot];
+            if (key == EMPTY) {
+                continue;
+            }
+            int route = routeOf(numbers[(int) (key >>> 32)], numbers[(int) key]);
+            int from = next.routeOfKey[slot] * RouteGraph.COUNTERS;
+            for (int i = 0; i < RouteGraph.COUNTERS; i++) {
+                counters[route * RouteGraph.COUNTERS + i] += next.counters[from + i];
+            }
+        }
+    }
+
+    /**
+     * The routes are ranked by rank, not answered
+     *
+     * @param formattedOutput The answers of the current analysis
+     */
+    @Override
+    public void answer(FormattedOutput formattedOutput) {
+    }
+
+    /**
+     * Method adds the busiest routes, the airports with the most routes and
+     * the routes with the largest share of cancelled flights to the rankings
+     *
+     * @param rankings The rankings of the current analysis
+     */
+    @Override
+    public void rank(Rankings rankings) {
+        RouteGraph graph = toGraph();
+        rankings.addRanking("Busiest routes", graph.busiestRoutes(rankings.getAirports()), "");
+        rankings.addRanking("Hubs by connected airports", graph.hubs(rankings.getAirports()), "");
+        rankings.addRanking("Routes by share of cancelled flights",
+                graph.cancellationRates(rankings.getAirports(), RouteGraph.MIN_FLIGHTS), "%");
+    }
+
+    /**
+     * Method builds the compact graph of the routes: the routes of each
+     * origin are stored together, ordered by the destination
+     *
+     * @return The graph of the routes counted so far
+     */
+    public RouteGraph toGraph() {
+        // the airports are numbered in the order of their names, so the graph
+        // does not depend on the order of the database
+        String[] names = new String[airports.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = airports.keyAt(i);
+        }
+        Integer[] order = new Integer[names.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> names[a].compareTo(names[b]));
+        int[] numbers = new int[names.length];
+        String[] sortedNames = new String[names.length];
+        for (int i = 0; i < order.length; i++) {
+            numbers[order[i]] = i;
+            sortedNames[i] = names[order[i]];
+        }
+        long[] sortedKeys = new long[routes];
+        int edge = 0;
+        for (long key : keys) {
+            if (key != EMPTY) {
+                sortedKeys[edge++] = (long) numbers[(int) (key >>> 32)] << 32 | numbers[(int) key];
+            }
+        }
+        Arrays.sort(sortedKeys);
+        int[] offsets = new int[names.length + 1];
+        int[] dests = new int[routes];
+        long[] edgeCounters = new long[routes * RouteGraph.COUNTERS];
+        for (edge = 0; edge < routes; edge++) {
+            int origin = (int) (sortedKeys[edge] >>> 32);
+            int dest = (int) sortedKeys[edge];
+            offsets[origin + 1]++;
+            dests[edge] = dest;
+            int route = find((long) order[origin] << 32 | order[dest]);
+            System.arraycopy(counters, route * RouteGraph.COUNTERS,
+                    edgeCounters, edge * RouteGraph.COUNTERS, RouteGraph.COUNTERS);
+        }
+        for (int i = 0; i < names.length; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        return new RouteGraph(sortedNames, offsets, dests, edgeCounters);
+    }
+
+    public int getRouteCount() {
+        return routes;
+    }
+}
@@ -0,0 +1,267 @@
+package datasciencewithairlines;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Class that is used to answer the questions about the routes. The graph is
+ * stored in the compressed sparse row layout: the airports are numbered in
+ * the order of their names, the routes from the airport i are the routes
+ * offsets[i] to offsets[i + 1] - 1 ordered by the destination, and the
+ * counters of the route e are counters[e * COUNTERS] to
+ * counters[e * COUNTERS + COUNTERS - 1]
+ */
+public class RouteGraph {
+
+    static final int FLIGHTS = 0;
+    static final int CANCELLED = 1;
+    static final int DISTANCE = 2;
+    static final int DEP_DELAY = 3;
+    static final int DEP_DELAYS = 4;
+    static final int ARR_DELAY = 5;
+    static final int ARR_DELAYS = 6;
+    static final int COUNTERS = 7;
+
+    /**
+     * The smallest number of flights of a route ranked by the share of
+     * cancelled flights
+     */
+    public static final int MIN_FLIGHTS = 30;
+
+    private String[] airports;
+    private int[] offsets;
+    private int[] dests;
+    private long[] counters;
+
+    /**
+     * Constructor of the graph
+     *
+     * @param airports The names of the airports in ascending order
+     * @param offsets The first route of each airport and the number of routes
+     * @param dests The destinations of the routes
+     * @param counters The counters of the routes
+     */
+    RouteGraph(String[] airports, int[] offsets, int[] dests, long[] counters) {
+        this.airports = airports;
+        this.offsets = offsets;
+        this.dests = dests;
+        this.counters = counters;
+    }
+
+    public int getAirportCount() {
+        return airports.length;
+    }
+
+    public int getRouteCount() {
+        return dests.length;
+    }
+
+    public String getAirport(int airport) {
+        return airports[airport];
+    }
+
+    /**
+     * Method finds the number of the airport
+     *
+     * @param airport The airport ID
+     * @return The number of the airport or -1 if it has no routes
+     */
+    public int airportOf(String airport) {
+        int number = Arrays.binarySearch(airports, airport);
+        return number >= 0 ? number : -1;
+    }
+
+    /**
+     * Method finds the route between the airports
+     *
+     * @param origin The airport ID of the origin
+     * @param dest The airport ID of the destination
+     * @return The number of the route or -1 if no flight has taken it
+     */
+    public int routeOf(String origin, String dest) {
+        int from = airportOf(origin);
+        int to = airportOf(dest);
+        if (from < 0 || to < 0) {
+            return -1;
+        }
+        int route = Arrays.binarySearch(dests, offsets[from], offsets[from + 1], to);
+        return route >= 0 ? route : -1;
+    }
+
+    public int getOrigin(int route) {
+        int origin = Arrays.binarySearch(offsets, route);
+        if (origin < 0) {
+            return -origin - 2;
+        }
+        // skip the airports without routes, which share the offset
+        while (offsets[origin + 1] == route) {
+            origin++;
+        }
+        return origin;
+    }
+
+    public int getDest(int route) {
+        return dests[route];
+    }
+
+    /**
+     * Method returns the first route from the airport, the routes from the
+     * airport end at routesFrom(airport + 1)
+     *
+     * @param airport The number of the airport
+     * @return The number of the first route
+     */
+    public int routesFrom(int airport) {
+        return offsets[airport];
+    }
+
+    public long getFlights(int route) {
+        return counters[route * COUNTERS + FLIGHTS];
+    }
+
+    public long getCancelled(int route) {
+        return counters[route * COUNTERS + CANCELLED];
+    }
+
+    public long getDistance(int route) {
+        return counters[route * COUNTERS + DISTANCE];
+    }
+
+    /**
+     * Method returns the average departure delay of the route
+     *
+     * @param route The number of the route
+     * @return The delay in minutes or NaN if no delay is known
+     */
+    public double getAverageDepDelay(int route) {
+        return (double) counters[route * COUNTERS + DEP_DELAY] / counters[route * COUNTERS + DEP_DELAYS];
+    }
+
+    /**
+     * Method returns the average arrival delay of the route
+     *
+     * @param route The number of the route
+     * @return The delay in minutes or NaN if no delay is known
+     */
+    public double getAverageArrDelay(int route) {
+        return (double) counters[route * COUNTERS + ARR_DELAY] / counters[route * COUNTERS + ARR_DELAYS];
+    }
+
+    /**
+     * Method returns the name of the route
+     *
+     * @param route The number of the route
+     * @return The airport IDs of the origin and the destination, for example
+     * 10397-12478
+     */
+    public String getName(int route) {
+        return airports[getOrigin(route)] + "-" + airports[dests[route]];
+    }
+
+    /**
+     * Method finds the routes with the most flights
+     *
+     * @param k The number of the routes
+     * @return The routes with their flights, the busiest first
+     */
+    public List<Entry<String, Long>> busiestRoutes(int k) {
+        TopK<Entry<String, Long>> top = new TopK<>(k, TopK.greatestFirst());
+        for (int origin = 0; origin < airports.length; origin++) {
+            for (int route = offsets[origin]; route < offsets[origin + 1]; route++) {
+                long flights = getFlights(route);
+                if (!top.isFull() || flights >= top.worst().getValue()) {
+                    top.offer(new SimpleEntry<>(airports[origin] + "-" + airports[dests[route]], flights));
+                }
+            }
+        }
+        return top.toList();
+    }
+
+    /**
+     * Method counts the airports connected with each airport by a route in
+     * either direction (the degree centrality of the airport). The flights
+     * which return to their origin are not counted
+     *
+     * @return The numbers of the connected airports by the number of the
+     * airport
+     */
+    public int[] connectedAirports() {
+        // the routes to each airport, ordered by the origin
+        int[] inOffsets = new int[airports.length + 1];
+        for (int dest : dests) {
+            inOffsets[dest + 1]++;
+        }
+        for (int i = 0; i < airports.length; i++) {
+            inOffsets[i + 1] += inOffsets[i];
+        }
+        int[] next = Arrays.copyOf(inOffsets, airports.length);
+        int[] origins = new int[dests.length];
+        for (int origin = 0; origin < airports.length; origin++) {
+            for (int route = offsets[origin]; route < offsets[origin + 1]; route++) {
+                origins[next[dests[route]]++] = origin;
+            }
+        }
+        int[] connected = new int[airports.length];
+        for (int airport = 0; airport < airports.length; airport++) {
+            int out = offsets[airport];
+            int in = inOffsets[airport];
+            while (out < offsets[airport + 1] || in < inOffsets[airport + 1]) {
+                int neighbour;
+                if (in == inOffsets[airport + 1]
+                        || out < offsets[airport + 1] && dests[out] < origins[in]) {
+                    neighbour = dests[out++];
+                } else if (out == offsets[airport + 1] || origins[in] < dests[out]) {
+                    neighbour = origins[in++];
+                } else {
+                    neighbour = dests[out++];
+                    in++;
+                }
+                if (neighbour != airport) {
+                    connected[airport]++;
+                }
+            }
+        }
+        return connected;
+    }
+
+    /**
+     * Method finds the hubs: the airports connected with the most airports
+     *
+     * @param k The number of the airports
+     * @return The airport IDs with the numbers of the connected airports, the
+     * largest first
+     */
+    public List<Entry<String, Integer>> hubs(int k) {
+        int[] connected = connectedAirports();
+        TopK<Entry<String, Integer>> top = new TopK<>(k, TopK.greatestFirst());
+        for (int airport = 0; airport < airports.length; airport++) {
+            top.offer(new SimpleEntry<>(airports[airport], connected[airport]));
+        }
+        return top.toList();
+    }
+
+    /**
+     * Method finds the routes with the largest share of cancelled flights
+     *
+     * @param k The number of the routes
+     * @param minFlights The smallest number of flights of a ranked route, so
+     * the rare routes do not fill the list
+     * @return The routes with the shares of cancelled flights in percent, the
+     * largest first
+     */
+    public List<Entry<String, Double>> cancellationRates(int k, long minFlights) {
+        TopK<Entry<String, Double>> top = new TopK<>(k, TopK.greatestFirst());
+        for (int origin = 0; origin < airports.length; origin++) {
+            for (int route = offsets[origin]; route < offsets[origin + 1]; route++) {
+                long flights = getFlights(route);
+                if (flights >= Math.max(1, minFlights)) {
+                    top.offer(new SimpleEntry<>(airports[origin] + "-" + airports[dests[route]],
+                            (double) getCancelled(route) / flights * 100));
+                }
+            }
+        }
+        return top.toList();
+    }
+}
@@ -0,0 +1,327 @@
+package datasciencewithairlines;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Class that is used to collect the metrics of one analysis: the wall time of
+ * each phase, the number of read and rejected rows, the throughput of the
+ * loading and the peak heap usage. The metrics are written to report.json
+ * next to answers.txt. The heap is shared by the whole process, so the peak
+ * is the largest used heap of the process seen during the analysis (sampled
+ * after each phase and each read part of the file), and the analyses which run
+ * at the same time in one process count each other's memory
+ */
+public class RunMetrics {
+
+    /**
+     * The phase of reading, parsing and aggregating the database
+     */
+    public static final String LOAD_FILE = "loadFile";
+
+    /**
+     * The phases of loading the flights from the snapshot instead of the
+     * database: reading the snapshot and aggregating its flights
+     */
+    public static final String READ_SNAPSHOT = "readSnapshot";
+    public static final String AGGREGATE = "aggregate";
+
+    private String fileName = "";
+    private long bytes;
+    private long rows;
+    private long completedRows;
+    private long cancelledRows;
+    private Map<String, Long> rejectedRows = new LinkedHashMap<>();
+    private Map<String, Long> violations = new LinkedHashMap<>();
+    private Map<String, Long> phases = new LinkedHashMap<>();
+    private Map<String, String> sketches = new LinkedHashMap<>();
+    private Map<String, String> dictionaries = new LinkedHashMap<>();
+    private MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private long startTime = System.nanoTime();
+    private long totalTime;
+    private long peakHeap;
+
+    /**
+     * Method starts the measurement of a new analysis
+     *
+     * @param fileName The file received for analysis
+     */
+    public void start(File fileName) {
+        this.fileName = fileName.getAbsolutePath();
+        startTime = System.nanoTime();
+        sampleHeap();
+    }
+
+    /**
+     * Method finishes the measurement of the analysis
+     */
+    public void finish() {
+        totalTime = System.nanoTime() - startTime;
+        sampleHeap();
+    }
+
+    // the peak usage of the memory pools is not reset, as other analyses of
+    // the process may measure it at the same time
+    private void sampleHeap() {
+        peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+    }
+
+    /**
+     * Method adds the wall time of a phase. The times of the repeated phases
+     * are summed
+     *
+     * @param phase The name of the phase
+     * @param nanos The wall time in nanoseconds
+     */
+    public void addPhase(String phase, long nanos) {
+        phases.merge(phase, nanos, Long::sum);
+        sampleHeap();
+    }
+
+    /**
+     * Method adds the number of bytes of the database covered by the
+     * analysis: the range of the file which has been read, or the whole file
+     * if its snapshot has been loaded
+     *
+     * @param count The number of bytes
+     */
+    public void addBytes(long count) {
+        bytes += count;
+    }
+
+    /**
+     * Method runs a phase and adds its wall time
+     *
+     * @param phase The name of the phase
+     * @param action The work of the phase
+     */
+    public void time(String phase, Runnable action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            addPhase(phase, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Method adds the numbers of the rows read from a part of the database
+     *
+     * @param completed The number of accepted completed (or diverted) flights
+     * @param cancelled The number of accepted cancelled flights
+     * @param rejected The number of rejected rows for each reason
+     */
+    public void addRows(long completed, long cancelled, Map<String, Long> rejected) {
+        completedRows += completed;
+        cancelledRows += cancelled;
+        rows += completed + cancelled;
+        for (Map.Entry<String, Long> entry : rejected.entrySet()) {
+            rejectedRows.merge(entry.getKey(), entry.getValue(), Long::sum);
+            rows += entry.getValue();
+        }
+        sampleHeap();
+    }
+
+    /**
+     * Method adds the numbers of the rows of a part of the database which
+     * break the rules of the validation, whether they are rejected or only
+     * counted
+     *
+     * @param violationsByRule The number of rows for each reason of a rule
+     */
+    public void addViolations(Map<String, Long> violationsByRule) {
+        for (Map.Entry<String, Long> entry : violationsByRule.entrySet()) {
+            violations.merge(entry.getKey(), entry.getValue(), Long::sum);
+        }
+    }
+
+    /**
+     * Method adds the description of a sketch of the approximate analysis
+     *
+     * @param name The name of the sketch
+     * @param memoryBytes The memory used by the sketch
+     * @param error The error bound of the sketch: a share of the total weight,
+     * of the distinct count or of the ranks
+     * @param confidence The probability that the error is within the bound or
+     * 0 if the bound is not probabilistic
+     * @param estimate The main estimate of the sketch as text
+     */
+    public void addSketch(String name, long memoryBytes, double error, double confidence, String estimate) {
+        sketches.put(name, String.format(Locale.ROOT,
+                "{\"memoryBytes\": %d, \"error\": %s, \"confidence\": %s, \"estimate\": %s}",
+                memoryBytes, error, confidence, quote(estimate)));
+    }
+
+    /**
+     * Method adds the size and the memory of a dictionary of the string
+     * columns, which grows with the number of distinct values also in the
+     * approximate analysis
+     *
+     * @param name The name of the dictionary
+     * @param dictionary The dictionary of the loaded table
+     */
+    public void addDictionary(String name, StringDictionary dictionary) {
+        dictionaries.put(name, String.format(Locale.ROOT, "{\"values\": %d, \"memoryBytes\": %d}",
+                dictionary.size(), dictionary.getMemoryBytes()));
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getCompletedRows() {
+        return completedRows;
+    }
+
+    public long getCancelledRows() {
+        return cancelledRows;
+    }
+
+    public long getRejectedRows() {
+        return rejectedRows.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public Map<String, Long> getRejectedRowsByReason() {
+        return new LinkedHashMap<>(rejectedRows);
+    }
+
+    public Map<String, Long> getViolationsByRule() {
+        return new LinkedHashMap<>(violations);
+    }
+
+    public Map<String, Long> getPhases() {
+        return new LinkedHashMap<>(phases);
+    }
+
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    public long getPeakHeap() {
+        return peakHeap;
+    }
+
+    /**
+     * Method calculates the number of rows loaded per second
+     *
+     * @return Rows per second of the loading phase (of reading the snapshot
+     * and aggregating its flights if the snapshot was used) or 0 if it was not
+     * measured
+     */
+    public double getRowsPerSecond() {
+        return perSecond(rows);
+    }
+
+    /**
+     * Method calculates the number of bytes loaded per second
+     *
+     * @return Bytes per second of the loading phase (of reading the snapshot
+     * and aggregating its flights if the snapshot was used) or 0 if it was not
+     * measured
+     */
+    public double getBytesPerSecond() {
+        return perSecond(bytes);
+    }
+
+    private double perSecond(long count) {
+        long nanos = phases.containsKey(LOAD_FILE) ? phases.get(LOAD_FILE)
+                : phases.getOrDefault(READ_SNAPSHOT, 0L) + phases.getOrDefault(AGGREGATE, 0L);
+        return nanos == 0 ? 0 : count * 1e9 / nanos;
+    }
+
+    /**
+     * Method writes the metrics as a JSON object to report.json
+     *
+     * @param dirName The absolute path to the folder with answers.txt
+     */
+    public void writeReport(String dirName) {
+        File out = new File(dirName, "report.json");
+
+        try (PrintWriter pw = new PrintWriter(out)) {
+            pw.println(toJson());
+        } catch (IOException e) {
+            System.out.println("Could not write the run report.");
+        }
+    }
+
+    /**
+     * Method formats the metrics as a JSON object
+     *
+     * @return The JSON text
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"file\": ").append(quote(fileName)).append(",\n");
+        json.append("  \"bytes\": ").append(bytes).append(",\n");
+        json.append("  \"rows\": ").append(rows).append(",\n");
+        json.append("  \"completedRows\": ").append(completedRows).append(",\n");
+        json.append("  \"cancelledRows\": ").append(cancelledRows).append(",\n");
+        json.append("  \"rejectedRows\": ").append(getRejectedRows()).append(",\n");
+        json.append("  \"rejectedRowsByReason\": {");
+        appendMap(json, rejectedRows, count -> Long.toString(count));
+        json.append("},\n");
+        json.append("  \"violationsByRule\": {");
+        appendMap(json, violations, count -> Long.toString(count));
+        json.append("},\n");
+        json.append("  \"phasesMillis\": {");
+        appendMap(json, phases, nanos -> String.format(Locale.ROOT, "%.3f", nanos / 1e6));
+        json.append("},\n");
+        json.append("  \"totalMillis\": ").append(String.format(Locale.ROOT, "%.3f", totalTime / 1e6)).append(",\n");
+        json.append("  \"rowsPerSecond\": ").append(String.format(Locale.ROOT, "%.1f", getRowsPerSecond())).append(",\n");
+        json.append("  \"bytesPerSecond\": ").append(String.format(Locale.ROOT, "%.1f", getBytesPerSecond())).append(",\n");
+        appendObjects(json, "dictionaries", dictionaries);
+        appendObjects(json, "sketches", sketches);
+        json.append("  \"peakHeapBytes\": ").append(peakHeap).append("\n");
+        return json.append("}").toString();
+    }
+
+    private static void appendObjects(StringBuilder json, String name, Map<String, String> objects) {
+        if (objects.isEmpty()) {
+            return;
+        }
+        json.append("  ").append(quote(name)).append(": {");
+        String separator = "\n    ";
+        for (Map.Entry<String, String> object : objects.entrySet()) {
+            json.append(separator).append(quote(object.getKey())).append(": ").append(object.getValue());
+            separator = ",\n    ";
+        }
+        json.append("\n  },\n");
+    }
+
+    private static void appendMap(StringBuilder json, Map<String, Long> map, Function<Long, String> format) {
+        String separator = "";
+        for (Map.Entry<String, Long> entry : map.entrySet()) {
+            json.append(separator).append(quote(entry.getKey())).append(": ").append(format.apply(entry.getValue()));
+            separator = ", ";
+        }
+    }
+
+    private static String quote(String str) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : str.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
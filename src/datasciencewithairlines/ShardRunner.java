@@ -0,0 +1,151 @@
+package datasciencewithairlines;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class that is used to analyze a dataset by shards in separate processes,
+ * possibly on different machines. Each process writes the partial results of
+ * its shard to a file, and the coordinator merges the files and writes the
+ * same answers as a single analysis of the dataset
+ */
+public class ShardRunner {
+
+    private static final String USAGE = "Usage:\n"
+            + "  ShardRunner shard <file> <shard> <shards> <partial file> [<index of the file>]\n"
+            + "  ShardRunner combine <partial file> <partial file>...\n"
+            + "  ShardRunner merge <folder for answers> <partial file>...\n"
+            + "  ShardRunner local <file> <processes> <folder for answers>";
+
+    /**
+     * Method computes the partial results of one shard of the file and writes
+     * them to the partial file
+     *
+     * @param file The file of the dataset
+     * @param shard The number of the shard from 0
+     * @param shards The number of shards
+     * @param index The index of the file in the dataset
+     * @param partial The file for the partial results
+     * @throws IOException If the file cannot be read or the partial results
+     * cannot be written
+     */
+    static void shard(File file, int shard, int shards, int index, File partial) throws IOException {
+        PartialAggregate result = new AnalysisCenter().aggregateShard(file, index, shard, shards);
+        if (result == null) {
+            throw new IOException("Could not read " + file);
+        }
+        result.write(partial);
+    }
+
+    /**
+     * Method merges the partial results of the shards into a new partial
+     * file, so the merging can be done in several steps
+     *
+     * @param combined The file for the merged partial results
+     * @param partials The files with the partial results of the shards
+     * @return The number of merged shards
+     * @throws IOException If a partial file cannot be read or written
+     */
+    static int combine(File combined, List<File> partials) throws IOException {
+        PartialAggregate merged = mergeFiles(partials);
+        merged.write(combined);
+        return merged.getShards();
+    }
+
+    /**
+     * Method merges the partial results of the shards and writes the answers
+     *
+     * @param dirName The folder for answers.txt
+     * @param partials The files with the partial results of the shards
+     * @return The number of merged shards
+     * @throws IOException If a partial file cannot be read
+     */
+    static int merge(String dirName, List<File> partials) throws IOException {
+        PartialAggregate merged = mergeFiles(partials);
+        new AnalysisCenter().answerPartials(dirName, merged);
+        return merged.getShards();
+    }
+
+    private static PartialAggregate mergeFiles(List<File> partials) throws IOException {
+        List<PartialAggregate> results = new ArrayList<>();
+        for (File partial : partials) {
+            results.add(PartialAggregate.read(partial));
+        }
+        PartialAggregate merged = PartialAggregate.mergeAll(results);
+        if (merged == null) {
+            throw new IOException("No partial results are given");
+        }
+        return merged;
+    }
+
+    /**
+     * Method analyzes the file by shards in separate local processes of the
+     * Java machine, and then merges their partial results. It shows that the
+     * distributed analysis gives the same answers as a single one
+     *
+     * @param file The file of the dataset
+     * @param processes The number of processes (and shards)
+     * @param dirName The folder for answers.txt and the partial files
+     * @throws IOException If a process cannot be started or has failed
+     * @throws InterruptedException If the waiting is interrupted
+     */
+    static void local(File file, int processes, String dirName) throws IOException, InterruptedException {
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        List<Process> started = new ArrayList<>();
+        List<File> partials = new ArrayList<>();
+        for (int shard = 0; shard < processes; shard++) {
+            File partial = new File(dirName, "shard-" + shard + ".partial");
+            partials.add(partial);
+            started.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    ShardRunner.class.getName(), "shard", file.getAbsolutePath(),
+                    Integer.toString(shard), Integer.toString(processes), partial.getAbsolutePath())
+                    .inheritIO()
+                    .start());
+        }
+        for (int shard = 0; shard < processes; shard++) {
+            if (started.get(shard).waitFor() != 0) {
+                throw new IOException("The process of shard " + shard + " has failed");
+            }
+        }
+        merge(dirName, partials);
+    }
+
+    /**
+     * Method runs a command of the distributed analysis
+     *
+     * @param args The command and its arguments
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length >= 5 && args[0].equals("shard")) {
+                shard(new File(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                        args.length > 5 ? Integer.parseInt(args[5]) : 0, new File(args[4]));
+            } else if (args.length >= 3 && (args[0].equals("merge") || args[0].equals("combine"))) {
+                List<File> partials = new ArrayList<>();
+                for (int i = 2; i < args.length; i++) {
+                    partials.add(new File(args[i]));
+                }
+                int shards = args[0].equals("merge") ? merge(args[1], partials)
+                        : combine(new File(args[1]), partials);
+                System.out.println(shards + " shards are merged.");
+            } else if (args.length == 4 && args[0].equals("local")) {
+                local(new File(args[1]), Integer.parseInt(args[2]), args[3]);
+            } else {
+                System.out.println(USAGE);
+                System.exit(2);
+            }
+        } catch (IllegalArgumentException ex) {
+            System.out.println(ex.getMessage());
+            System.out.println(USAGE);
+            System.exit(2);
+        } catch (IOException ex) {
+            System.out.println("Distributed analysis failed: " + ex.getMessage());
+            System.exit(1);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            System.exit(1);
+        }
+    }
+}
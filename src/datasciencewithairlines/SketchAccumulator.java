@@ -0,0 +1,172 @@
+package datasciencewithairlines;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * Accumulator of the approximate analysis. Instead of the maps of all planes
+ * and airports it keeps fixed-size sketches: count-min sketches with heavy
+ * hitters for the miles of the planes (question 3) and the flights of the
+ * airports (question 4), HyperLogLog sketches of the distinct planes and
+ * routes, and digests of the quantiles of the departure and arrival delays
+ */
+public class SketchAccumulator implements FlightAccumulator {
+
+    private static final long serialVersionUID = 1L;
+
+    private SketchSettings settings;
+    private long completedCount;
+    private CountMinSketch tailMiles;
+    private CountMinSketch airportFlights;
+    private HyperLogLog distinctTails;
+    private HyperLogLog distinctRoutes;
+    private QuantileDigest depDelays;
+    private QuantileDigest arrDelays;
+
+    /**
+     * Constructor of the empty sketches
+     *
+     * @param settings The error bounds of the sketches
+     */
+    public SketchAccumulator(SketchSettings settings) {
+        this.settings = settings;
+        tailMiles = new CountMinSketch(settings);
+        airportFlights = new CountMinSketch(settings);
+        distinctTails = new HyperLogLog(settings);
+        distinctRoutes = new HyperLogLog(settings);
+        depDelays = new QuantileDigest(settings);
+        arrDelays = new QuantileDigest(settings);
+    }
+
+    @Override
+    public void acceptCompleted(FlightTable flights, int row) {
+        completedCount++;
+        int tailNum = flights.getTailNumCode(row);
+        if (tailNum != StringDictionary.NOT_FILLED) {
+            distinctTails.add(flights.getTailNums().hash(tailNum));
+            if (flights.getDistance(row) > 0) {
+                tailMiles.add(flights.getTailNums(), tailNum, flights.getDistance(row));
+            }
+        }
+        StringDictionary airportIDs = flights.getAirportIDs();
+        int origin = flights.getOriginAirportIDCode(row);
+        int dest = flights.getDestAirportIDCode(row);
+        if (origin != StringDictionary.NOT_FILLED) {
+            airportFlights.add(airportIDs, origin, 1);
+        }
+        if (dest != StringDictionary.NOT_FILLED) {
+            airportFlights.add(airportIDs, dest, 1);
+        }
+        if (origin != StringDictionary.NOT_FILLED && dest != StringDictionary.NOT_FILLED) {
+            distinctRoutes.add(CountMinSketch.mix(airportIDs.hash(origin) * 31 + airportIDs.hash(dest)));
+        }
+        if (flights.getDepDelay(row) != 1000000) {
+            depDelays.add(flights.getDepDelay(row));
+        }
+        if (flights.getArrDelay(row) != 1000000) {
+            arrDelays.add(flights.getArrDelay(row));
+        }
+    }
+
+    @Override
+    public void merge(FlightAccumulator other) {
+        SketchAccumulator next = (SketchAccumulator) other;
+        if (!settings.equals(next.settings)) {
+            throw new IllegalArgumentException("The sketches have different error bounds");
+        }
+        completedCount += next.completedCount;
+        tailMiles.merge(next.tailMiles);
+        airportFlights.merge(next.airportFlights);
+        distinctTails.merge(next.distinctTails);
+        distinctRoutes.merge(next.distinctRoutes);
+        depDelays.merge(next.depDelays);
+        arrDelays.merge(next.arrDelays);
+    }
+
+    /**
+     * Method writes the approximate answers to questions 3 and 4: the plane
+     * and the airport with the largest estimates
+     *
+     * @param formattedOutput The answers of the current analysis
+     */
+    @Override
+    public void answer(FormattedOutput formattedOutput) {
+        AnalysisCenter.reportQuestion3(formattedOutput, completedCount, heaviest(tailMiles));
+        AnalysisCenter.reportQuestion4(formattedOutput, completedCount, heaviest(airportFlights),
+                new TreeMap<>());
+    }
+
+    private static Map<String, Long> heaviest(CountMinSketch sketch) {
+        Map<String, Long> heaviest = new TreeMap<>();
+        for (Entry<String, Long> entry : sketch.heavyHitters(1)) {
+            heaviest.put(entry.getKey(), entry.getValue());
+        }
+        return heaviest;
+    }
+
+    @Override
+    public void rank(Rankings rankings) {
+        rankings.addRanking("Planes by miles flown (estimated)",
+                tailMiles.heavyHitters(rankings.getTailNums()), "");
+        rankings.addRanking("Busiest airports (estimated)",
+                airportFlights.heavyHitters(rankings.getAirports()), "");
+    }
+
+    /**
+     * Method adds the estimates, the error bounds and the memory of each
+     * sketch to the metrics of the analysis
+     *
+     * @param metrics The metrics of the current analysis
+     */
+    @Override
+    public void report(RunMetrics metrics) {
+        metrics.addSketch("tailMiles", tailMiles.getMemoryBytes(), settings.getRelativeError(),
+                settings.getConfidence(), estimate("heaviest", tailMiles.heavyHitters(1)));
+        metrics.addSketch("airportFlights", airportFlights.getMemoryBytes(), settings.getRelativeError(),
+                settings.getConfidence(), estimate("heaviest", airportFlights.heavyHitters(1)));
+        metrics.addSketch("distinctTails", distinctTails.getMemoryBytes(), distinctTails.getStandardError(),
+                0.68, Long.toString(distinctTails.estimate()));
+        metrics.addSketch("distinctRoutes", distinctRoutes.getMemoryBytes(), distinctRoutes.getStandardError(),
+                0.68, Long.toString(distinctRoutes.estimate()));
+        metrics.addSketch("depDelayQuantiles", depDelays.getMemoryBytes(), depDelays.getRankError(),
+                0, quantiles(depDelays));
+        metrics.addSketch("arrDelayQuantiles", arrDelays.getMemoryBytes(), arrDelays.getRankError(),
+                0, quantiles(arrDelays));
+    }
+
+    private static String estimate(String name, List<Entry<String, Long>> entries) {
+        return entries.isEmpty() ? "" : name + " " + entries.get(0).getKey() + " " + entries.get(0).getValue();
+    }
+
+    private static String quantiles(QuantileDigest digest) {
+        return String.format(Locale.ROOT, "p50 %.1f, p90 %.1f, p99 %.1f",
+                digest.quantile(0.5), digest.quantile(0.9), digest.quantile(0.99));
+    }
+
+    public CountMinSketch getTailMiles() {
+        return tailMiles;
+    }
+
+    public CountMinSketch getAirportFlights() {
+        return airportFlights;
+    }
+
+    public HyperLogLog getDistinctTails() {
+        return distinctTails;
+    }
+
+    public HyperLogLog getDistinctRoutes() {
+        return distinctRoutes;
+    }
+
+    public QuantileDigest getDepDelays() {
+        return depDelays;
+    }
+
+    public QuantileDigest getArrDelays() {
+        return arrDelays;
+    }
+}
@@ -0,0 +1,174 @@
+package datasciencewithairlines;
+
+import java.io.Serializable;
+import java.util.Locale;
+
+/**
+ * Class that is used to set the error bounds of the approximate analysis. The
+ * sizes of the sketches follow from the bounds and do not depend on the size
+ * of the database
+ */
+public class SketchSettings implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private double relativeError = 0.0005;
+    private double confidence = 0.99;
+    private double distinctError = 0.01;
+    private int compression = 100;
+    private int heavyHitters = 32;
+
+    /**
+     * Method returns the error of the count-min sketches as a share of the
+     * total counted weight
+     *
+     * @return The relative error, for example 0.0005
+     */
+    public double getRelativeError() {
+        return relativeError;
+    }
+
+    /**
+     * Method returns the probability that an estimate of the count-min
+     * sketches is within the error
+     *
+     * @return The confidence, for example 0.99
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * Method returns the standard error of the distinct counts
+     *
+     * @return The relative standard error, for example 0.01
+     */
+    public double getDistinctError() {
+        return distinctError;
+    }
+
+    /**
+     * Method returns the compression of the quantile digests: the number of
+     * centroids is about twice the compression
+     *
+     * @return The compression, for example 100
+     */
+    public int getCompression() {
+        return compression;
+    }
+
+    /**
+     * Method returns the number of candidates kept by the heavy hitter
+     * sketches
+     *
+     * @return The number of candidates
+     */
+    public int getHeavyHitters() {
+        return heavyHitters;
+    }
+
+    /**
+     * Method calculates the width of the count-min sketches: e / error
+     *
+     * @return The number of counters in each row
+     */
+    int countMinWidth() {
+        return (int) Math.ceil(Math.E / relativeError);
+    }
+
+    /**
+     * Method calculates the depth of the count-min sketches: ln(1 / (1 -
+     * confidence))
+     *
+     * @return The number of rows
+     */
+    int countMinDepth() {
+        return Math.max(1, (int) Math.ceil(Math.log(1 / (1 - confidence))));
+    }
+
+    /**
+     * Method calculates the precision of the HyperLogLog sketches: the
+     * standard error is 1.04 / sqrt(2^precision)
+     *
+     * @return The number of bits of the register index, from 4 to 18
+     */
+    int distinctPrecision() {
+        int precision = (int) Math.ceil(Math.log(Math.pow(1.04 / distinctError, 2)) / Math.log(2));
+        return Math.max(4, Math.min(18, precision));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof SketchSettings)) {
+            return false;
+        }
+        SketchSettings other = (SketchSettings) obj;
+        return relativeError == other.relativeError && confidence == other.confidence
+                && distinctError == other.distinctError && compression == other.compression
+                && heavyHitters == other.heavyHitters;
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "error %s, confidence %s, distinct error %s, compression %d, candidates %d",
+                relativeError, confidence, distinctError, compression, heavyHitters);
+    }
+
+    public static class Builder {
+
+        private SketchSettings newSettings;
+
+        public Builder() {
+            newSettings = new SketchSettings();
+        }
+
+        public Builder withRelativeError(double relativeError) {
+            if (relativeError <= 0 || relativeError >= 1) {
+                throw new IllegalArgumentException("The error must be between 0 and 1");
+            }
+            newSettings.relativeError = relativeError;
+            return this;
+        }
+
+        public Builder withConfidence(double confidence) {
+            if (confidence <= 0 || confidence >= 1) {
+                throw new IllegalArgumentException("The confidence must be between 0 and 1");
+            }
+            newSettings.confidence = confidence;
+            return this;
+        }
+
+        public Builder withDistinctError(double distinctError) {
+            if (distinctError <= 0 || distinctError >= 1) {
+                throw new IllegalArgumentException("The error must be between 0 and 1");
+            }
+            newSettings.distinctError = distinctError;
+            return this;
+        }
+
+        public Builder withCompression(int compression) {
+            if (compression < 10) {
+                throw new IllegalArgumentException("The compression must be at least 10");
+            }
+            newSettings.compression = compression;
+            return this;
+        }
+
+        public Builder withHeavyHitters(int heavyHitters) {
+            if (heavyHitters < 1) {
+                throw new IllegalArgumentException("The number of candidates must be positive");
+            }
+            newSettings.heavyHitters = heavyHitters;
+            return this;
+        }
+
+        public SketchSettings build() {
+            return newSettings;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package datasciencewithairlines;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class that is used to encode the repeating string values of a column with
+ * int codes. The code 0 is always reserved for the "Not filled" value. The
+ * fields of the input are also looked up by their raw bytes in an
+ * open-addressing table, so a value which is already known is encoded without
+ * creating a string, and all rows with the value share one String instance.
+ * The 64-bit hash of each value (CountMinSketch.hash) is calculated once when
+ * the value is added, so the sketches do not hash the strings of every row
+ */
+public class StringDictionary {
+
+    public static final int NOT_FILLED = 0;
+
+    private Map<String, Integer> codes = new HashMap<>();
+    private List<String> values = new ArrayList<>();
+    private long[] hashes = new long[16];
+    private byte[][] byteValues = new byte[64][];
+    private int[] byteHashes = new int[byteValues.length];
+    private int[] byteCodes = new int[byteValues.length];
+    private int byteCount;
+
+    /**
+     * Constructor of the dictionary with the "Not filled" value
+     */
+    public StringDictionary() {
+        code("Not filled");
+    }
+
+    /**
+     * Method returns the code of the value and adds the value to the
+     * dictionary if it is new
+     *
+     * @param value The string value of the field
+     * @return The code of the value
+     */
+    public int code(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+            if (code == hashes.length) {
+                hashes = Arrays.copyOf(hashes, code * 2);
+            }
+            hashes[code] = CountMinSketch.hash(value);
+        }
+        return code;
+    }
+
+    /**
+     * Method returns the code of the field of the current line of the
+     * tokenizer, the empty and absent fields are "Not filled". The field is
+     * compared with the known values byte by byte, and it is decoded into a
+     * string only if its bytes are seen for the first time
+     *
+     * @param line The tokenizer positioned on the flights data
+     * @param index The index of the field
+     * @return The code of the value
+     */
+    public int code(CsvTokenizer line, int index) {
+        if (line.fieldCount() < index + 1 || line.isEmpty(index)) {
+            return NOT_FILLED;
+        }
+        int hash = line.hashField(index);
+        int mask = byteValues.length - 1;
+        int slot = hash & mask;
+        while (byteValues[slot] != null) {
+            if (byteHashes[slot] == hash && line.fieldEquals(index, byteValues[slot])) {
+                return byteCodes[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        // different bytes may decode into the same string, so the code is
+        // always given by the string
+        int code = code(line.getString(index));
+        byteValues[slot] = line.copyField(index);
+        byteHashes[slot] = hash;
+        byteCodes[slot] = code;
+        if (++byteCount * 2 > byteValues.length) {
+            rehash(byteValues.length * 2);
+        }
+        return code;
+    }
+
+    private void rehash(int size) {
+        byte[][] oldValues = byteValues;
+        int[] oldHashes = byteHashes;
+        int[] oldCodes = byteCodes;
+        byteValues = new byte[size][];
+        byteHashes = new int[size];
+        byteCodes = new int[size];
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = oldHashes[i] & (size - 1);
+                while (byteValues[slot] != null) {
+                    slot = (slot + 1) & (size - 1);
+                }
+                byteValues[slot] = oldValues[i];
+                byteHashes[slot] = oldHashes[i];
+                byteCodes[slot] = oldCodes[i];
+            }
+        }
+    }
+
+    /**
+     * Method finds the code of the value without adding it
+     *
+     * @param value The string value of the field
+     * @return The code of the value or -1 if the value is not in the dictionary
+     */
+    public int find(String value) {
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Method returns the value of the code
+     *
+     * @param code The code of the value
+     * @return The string value shared by all rows with this code
+     */
+    public String value(int code) {
+        return values.get(code);
+    }
+
+    /**
+     * Method returns the hash of the value of the code
+     *
+     * @param code The code of the value
+     * @return The same hash as CountMinSketch.hash of the value
+     */
+    public long hash(int code) {
+        return hashes[code];
+    }
+
+    /**
+     * Method estimates the memory used by the dictionary
+     *
+     * @return The size of the values, of their codes and hashes and of the
+     * table of their bytes in bytes
+     */
+    public long getMemoryBytes() {
+        long bytes = 28L * byteValues.length + 8L * hashes.length;
+        for (String value : values) {
+            // the string and its characters, the entry of the map with the
+            // boxed code, the reference of the list and the copy of the bytes
+            bytes += 40 + 2L * value.length() + 48 + 8 + 16 + value.length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Method returns the number of values in the dictionary
+     *
+     * @return The number of values including "Not filled"
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Method builds the table for translating the codes of the other
+     * dictionary into the codes of this dictionary. The values which are new
+     * for this dictionary are added to it
+     *
+     * @param other The dictionary of the same column
+     * @return The code in this dictionary for each code of the other one
+     */
+    public int[] translate(StringDictionary other) {
+        int[] translation = new int[other.size()];
+        for (int i = 0; i < translation.length; i++) {
+            translation[i] = code(other.value(i));
+        }
+        return translation;
+    }
+}
@@ -0,0 +1,293 @@
+package datasciencewithairlines;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Class that is used to follow each plane through its flights (legs). The
+ * completed flights of each plane are grouped by the code of the tail number
+ * and sorted by the date and the departure time, all in primitive arrays. For
+ * each plane it counts the legs and the days with flights, the block time
+ * from wheels off to wheels on, the ground time between an arrival and the
+ * next departure from the same airport, and the delays passed from a late
+ * arrival to the next departure
+ */
+public class TailUtilization {
+
+    /**
+     * The longest ground time between two legs of a chain, in minutes
+     */
+    static final int MAX_TURNAROUND = 24 * 60;
+
+    /**
+     * The smallest arrival delay which is counted as late, in minutes
+     */
+    static final int LATE = 15;
+
+    private FlightTable flights;
+    private int[] offsets;
+    private int[] legRows;
+    private int[] days;
+    private long[] blockMinutes;
+    private int[] turnarounds;
+    private long[] turnaroundMinutes;
+    private int[] lateArrivals;
+    private int[] propagatedDelays;
+    private long[] propagatedMinutes;
+
+    private TailUtilization(FlightTable flights, int[] offsets, int[] legRows) {
+        this.flights = flights;
+        this.offsets = offsets;
+        this.legRows = legRows;
+        int tails = offsets.length - 1;
+        days = new int[tails];
+        blockMinutes = new long[tails];
+        turnarounds = new int[tails];
+        turnaroundMinutes = new long[tails];
+        lateArrivals = new int[tails];
+        propagatedDelays = new int[tails];
+        propagatedMinutes = new long[tails];
+    }
+
+    /**
+     * Method builds the chains of the legs of all planes of the table. The
+     * legs are grouped by a counting sort on the code of the tail number, and
+     * the legs of each plane are sorted by one key of the date, the departure
+     * time and the position of the leg
+     *
+     * @param flights The table of the flights
+     * @return The utilization of the planes
+     */
+    public static TailUtilization build(FlightTable flights) {
+        int tails = flights.getTailNums().size();
+        int[] offsets = new int[tails + 1];
+        int firstDay = Integer.MAX_VALUE;
+        for (int row = 0; row < flights.size(); row++) {
+            if (isLeg(flights, row)) {
+                offsets[flights.getTailNumCode(row) + 1]++;
+                firstDay = Math.min(firstDay, flights.getFlightDay(row));
+            }
+        }
+        int longest = 0;
+        for (int tail = 0; tail < tails; tail++) {
+            longest = Math.max(longest, offsets[tail + 1]);
+            offsets[tail + 1] += offsets[tail];
+        }
+        int[] next = Arrays.copyOf(offsets, tails);
+        int[] legRows = new int[offsets[tails]];
+        for (int row = 0; row < flights.size(); row++) {
+            if (isLeg(flights, row)) {
+                legRows[next[flights.getTailNumCode(row)]++] = row;
+            }
+        }
+        long[] keys = new long[longest];
+        int[] rows = new int[longest];
+        for (int tail = 0; tail < tails; tail++) {
+            int from = offsets[tail];
+            int legs = offsets[tail + 1] - from;
+            for (int i = 0; i < legs; i++) {
+                int row = legRows[from + i];
+                keys[i] = (long) (flights.getFlightDay(row) - firstDay) << 36
+                        | (long) minutes(flights.getDepTime(row)) << 24 | i;
+                rows[i] = row;
+            }
+            Arrays.sort(keys, 0, legs);
+            for (int i = 0; i < legs; i++) {
+                legRows[from + i] = rows[(int) (keys[i] & 0xFFFFFF)];
+            }
+        }
+        TailUtilization utilization = new TailUtilization(flights, offsets, legRows);
+        for (int tail = 0; tail < tails; tail++) {
+            utilization.follow(tail);
+        }
+        return utilization;
+    }
+
+    private static boolean isLeg(FlightTable flights, int row) {
+        return flights.getCancelled(row) != 1
+                && flights.getTailNumCode(row) != StringDictionary.NOT_FILLED
+                && flights.getFlightDay(row) != DateDecoder.NOT_GIVEN;
+    }
+
+    /**
+     * Method converts the time of the database into minutes
+     *
+     * @param time The time as hhmm from 1 to 2400 or 0 if it is not given
+     * @return The minutes after the midnight
+     */
+    static int minutes(int time) {
+        return time / 100 * 60 + time % 100;
+    }
+
+    /**
+     * Method walks through the legs of the plane in the order of the time
+     */
+    private void follow(int tail) {
+        int previous = -1;
+        for (int leg = offsets[tail]; leg < offsets[tail + 1]; leg++) {
+            int row = legRows[leg];
+            if (previous < 0 || flights.getFlightDay(row) != flights.getFlightDay(previous)) {
+                days[tail]++;
+            }
+            int wheelsOff = flights.getWheelsOff(row);
+            int wheelsOn = flights.getWheelsOn(row);
+            if (wheelsOff != 0 && wheelsOn != 0) {
+                int block = minutes(wheelsOn) - minutes(wheelsOff);
+                blockMinutes[tail] += block >= 0 ? block : block + 24 * 60;
+            }
+            if (previous >= 0) {
+                connect(tail, previous, row);
+            }
+            previous = row;
+        }
+    }
+
+    /**
+     * Method counts the ground time and the passed delay between two legs
+     * which follow each other from the same airport
+     */
+    private void connect(int tail, int previous, int row) {
+        if (flights.getArrTime(previous) == 0 || flights.getDepTime(row) == 0
+                || flights.getDestAirportIDCode(previous) != flights.getOriginAirportIDCode(row)) {
+            return;
+        }
+        long arrival = arrivalMinute(previous);
+        long departure = flights.getFlightDay(row) * 1440L + minutes(flights.getDepTime(row));
+        long turnaround = departure - arrival;
+        if (turnaround < 0 || turnaround > MAX_TURNAROUND) {
+            return;
+        }
+        turnarounds[tail]++;
+        turnaroundMinutes[tail] += turnaround;
+        int arrDelay = flights.getArrDelay(previous);
+        if (arrDelay != 1000000 && arrDelay >= LATE) {
+            lateArrivals[tail]++;
+            int depDelay = flights.getDepDelay(row);
+            if (depDelay != 1000000 && depDelay > 0) {
+                propagatedDelays[tail]++;
+                propagatedMinutes[tail] += Math.min(arrDelay, depDelay);
+            }
+        }
+    }
+
+    // the arrival is on the next day if it is earlier than the departure
+    private long arrivalMinute(int row) {
+        long day = flights.getFlightDay(row);
+        int arrTime = minutes(flights.getArrTime(row));
+        if (flights.getDepTime(row) != 0 && arrTime < minutes(flights.getDepTime(row))) {
+            day++;
+        }
+        return day * 1440 + arrTime;
+    }
+
+    /**
+     * Method writes the utilization of each plane to tails.csv: the legs, the
+     * days with flights, the legs per day, the block hours, the number and
+     * the average of the ground times, the late arrivals and the delays passed
+     * to the next leg with their minutes
+     *
+     * @param dirName The absolute path to the folder of the answers
+     */
+    public void writeTails(String dirName) {
+        File out = new File(dirName, "tails.csv");
+
+        try (PrintWriter pw = new PrintWriter(out)) {
+            pw.println("tailNum,legs,days,legsPerDay,blockHours,turnarounds,avgTurnaround,"
+                    + "lateArrivals,propagatedDelays,propagatedMinutes");
+            for (int tail = 0; tail < days.length; tail++) {
+                if (getLegs(tail) == 0) {
+                    continue;
+                }
+                pw.println(String.format(Locale.ROOT, "%s,%d,%d,%.2f,%.1f,%d,%s,%d,%d,%d",
+                        getTailNum(tail), getLegs(tail), days[tail], getLegsPerDay(tail),
+                        getBlockHours(tail), turnarounds[tail],
+                        turnarounds[tail] > 0 ? String.format(Locale.ROOT, "%.1f", getAverageTurnaround(tail)) : "",
+                        lateArrivals[tail], propagatedDelays[tail], propagatedMinutes[tail]));
+            }
+        } catch (IOException e) {
+            System.out.println("Could not write the utilization of the planes.");
+        }
+    }
+
+    /**
+     * Method returns the number of the tail numbers, the planes are numbered
+     * by the codes of the tail numbers of the table
+     *
+     * @return The number of the codes of the tail numbers
+     */
+    public int getTailCount() {
+        return days.length;
+    }
+
+    public String getTailNum(int tail) {
+        return flights.getTailNums().value(tail);
+    }
+
+    public int getLegs(int tail) {
+        return offsets[tail + 1] - offsets[tail];
+    }
+
+    /**
+     * Method returns the row of a leg of the plane
+     *
+     * @param tail The code of the tail number
+     * @param leg The number of the leg of the plane in the order of the time
+     * @return The row of the flight in the table
+     */
+    public int getLegRow(int tail, int leg) {
+        return legRows[offsets[tail] + leg];
+    }
+
+    public int getDays(int tail) {
+        return days[tail];
+    }
+
+    /**
+     * Method returns the average number of legs on the days with flights
+     *
+     * @param tail The code of the tail number
+     * @return The legs per day or NaN if the plane has no legs
+     */
+    public double getLegsPerDay(int tail) {
+        return (double) getLegs(tail) / days[tail];
+    }
+
+    /**
+     * Method returns the time from wheels off to wheels on of all legs
+     *
+     * @param tail The code of the tail number
+     * @return The block time in hours
+     */
+    public double getBlockHours(int tail) {
+        return blockMinutes[tail] / 60.0;
+    }
+
+    public int getTurnarounds(int tail) {
+        return turnarounds[tail];
+    }
+
+    /**
+     * Method returns the average ground time between the legs
+     *
+     * @param tail The code of the tail number
+     * @return The time in minutes or NaN if no ground time is known
+     */
+    public double getAverageTurnaround(int tail) {
+        return (double) turnaroundMinutes[tail] / turnarounds[tail];
+    }
+
+    public int getLateArrivals(int tail) {
+        return lateArrivals[tail];
+    }
+
+    public int getPropagatedDelays(int tail) {
+        return propagatedDelays[tail];
+    }
+
+    public long getPropagatedMinutes(int tail) {
+        return propagatedMinutes[tail];
+    }
+}
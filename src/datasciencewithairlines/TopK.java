@@ -0,0 +1,177 @@
+package datasciencewithairlines;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Class that is used to keep the k best of the offered items in a bounded
+ * heap, so ranking n items takes O(n log k) time and O(k) memory instead of
+ * sorting all of them. The worst of the kept items is at the top of the heap
+ * and is replaced by a better item. The order must not consider different
+ * items equal, so the result does not depend on the order of offering
+ *
+ * @param <T> The type of the items
+ */
+public class TopK<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int k;
+    private Comparator<? super T> order;
+    private Object[] heap;
+    private int size;
+
+    /**
+     * Constructor of the empty ranking
+     *
+     * @param k The number of the kept items
+     * @param order The order of the items, the best first; it must be
+     * serializable if the ranking is saved
+     */
+    public TopK(int k, Comparator<? super T> order) {
+        if (k < 0) {
+            throw new IllegalArgumentException("The number of the kept items must not be negative");
+        }
+        this.k = k;
+        this.order = order;
+        this.heap = new Object[Math.min(k, 16)];
+    }
+
+    /**
+     * Method creates the ranking of the entries of the map: the greatest
+     * values first, and of the equal values the smallest keys first
+     *
+     * @param map The values of the keys
+     * @param k The number of the kept entries
+     * @return The k best entries, the best first
+     */
+    public static <V extends Comparable<V>> List<Entry<String, V>> of(Map<String, V> map, int k) {
+        TopK<Entry<String, V>> top = new TopK<>(k, greatestFirst());
+        map.entrySet().forEach(top::offer);
+        return top.toList();
+    }
+
+    /**
+     * Method creates the order of the entries with the greatest values first.
+     * Of the equal values the smallest keys are first
+     *
+     * @return The order of the entries
+     */
+    public static <V extends Comparable<V>> Comparator<Entry<String, V>> greatestFirst() {
+        Comparator<Entry<String, V>> byValue = Entry.comparingByValue();
+        return byValue.reversed().thenComparing(Entry.comparingByKey());
+    }
+
+    /**
+     * Method creates the order of the entries with the smallest values first.
+     * Of the equal values the smallest keys are first
+     *
+     * @return The order of the entries
+     */
+    public static <V extends Comparable<V>> Comparator<Entry<String, V>> smallestFirst() {
+        Comparator<Entry<String, V>> byValue = Entry.comparingByValue();
+        return byValue.thenComparing(Entry.comparingByKey());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Method checks whether the ranking already holds k items
+     *
+     * @return true if a new item must be better than the worst kept one
+     */
+    public boolean isFull() {
+        return size == k;
+    }
+
+    /**
+     * Method returns the worst of the kept items
+     *
+     * @return The item which is replaced by the next better item
+     */
+    @SuppressWarnings("unchecked")
+    public T worst() {
+        if (size == 0) {
+            throw new IllegalStateException("The ranking is empty");
+        }
+        return (T) heap[0];
+    }
+
+    /**
+     * Method offers the item to the ranking
+     *
+     * @param item The item
+     * @return true if the item is kept
+     */
+    public boolean offer(T item) {
+        if (size < k) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, Math.min(k, heap.length * 2));
+            }
+            heap[size] = item;
+            siftUp(size++);
+            return true;
+        }
+        if (k == 0 || order.compare(item, worst()) >= 0) {
+            return false;
+        }
+        heap[0] = item;
+        siftDown(0);
+        return true;
+    }
+
+    /**
+     * Method returns the kept items
+     *
+     * @return The items, the best first
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> toList() {
+        List<T> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add((T) heap[i]);
+        }
+        items.sort(order);
+        return items;
+    }
+
+    // the heap keeps the worse of two items above the better one
+    @SuppressWarnings("unchecked")
+    private boolean isWorse(int i, int j) {
+        return order.compare((T) heap[i], (T) heap[j]) > 0;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0 && isWorse(i, (i - 1) / 2)) {
+            swap(i, (i - 1) / 2);
+            i = (i - 1) / 2;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && isWorse(child + 1, child)) {
+                child++;
+            }
+            if (!isWorse(child, i)) {
+                return;
+            }
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        Object item = heap[i];
+        heap[i] = heap[j];
+        heap[j] = item;
+    }
+}
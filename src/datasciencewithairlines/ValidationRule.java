@@ -0,0 +1,140 @@
+package datasciencewithairlines;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class that is used to name the rules of the validation of the parsed rows.
+ * The range rules find the fields whose values have been replaced by the
+ * checks of the Verifier (see FlightTable.getInvalidFields), and the
+ * cross-field rules compare the fields of the row with each other. The rules
+ * read only the primitive columns of the row, so checking a row allocates
+ * nothing
+ */
+public enum ValidationRule {
+
+    NO_DEPARTURE_TIME("no departure time") {
+        @Override
+        boolean isViolated(FlightTable flights, int row, int invalidFields) {
+            return isCompleted(flights, row) && flights.getDiverted(row) != 1 && flights.getDepTime(row) == 0;
+        }
+    },
+    NO_ARRIVAL_TIME("no arrival time") {
+        @Override
+        boolean isViolated(FlightTable flights, int row, int invalidFields) {
+            return isCompleted(flights, row) && flights.getDiverted(row) != 1 && flights.getArrTime(row) == 0;
+        }
+    },
+    DAY_OF_MONTH_RANGE("day of month out of range") {
+        @Override
+        boolean isViolated(FlightTable flights, int row, int invalidFields) {
+            return isInvalid(invalidFields, FlightColumn.DAY_OF_MONTH);
+        }
+    },
+    DAY_OF_WEEK_RANGE("day of week out of range") {
+        @Override
+        boolean isViolated(FlightTable flights, int row, int invalidFields) {
+            return isInvalid(invalidFields, FlightColumn.DAY_OF_WEEK);
+        }
+    },
+    TIME_RANGE("time out of range") {
+        @Override
+        boolean isViolated(FlightTable flights, int row, int invalidFields) {
+            return isInvalid(invalidFields, FlightColumn.DEP_TIME) || isInvalid(invalidFields, FlightColumn.WHEELS_OFF)
+                    || isInvalid(invalidFields, FlightColumn.WHEELS_ON) || isInvalid(invalidFields, FlightColumn.ARR_TIME);
+        }
+    },
+    CANCELLED_RANGE("cancelled or diverted out of range") {
+        @Override
+        boolean isViolated(FlightTable flights, int row, int invalidFields) {
+            return isInvalid(invalidFields, FlightColumn.CANCELLED) || isInvalid(invalidFields, FlightColumn.DIVERTED);
+        }
+    },
+    NO_FLIGHT_DATE("no flight date") {
+        @Override
+        boolean isViolated(FlightTable flights, int row, int invalidFields) {
+            return flights.getFlightDay(row) == DateDecoder.NOT_GIVEN;
+        }
+    },
+    DAY_OF_WEEK_MISMATCH("day of week does not match the date") {
+        @Override
+        boolean isViolated(FlightTable flights, int row, int invalidFields) {
+            int dayOfWeek = flights.getDayOfWeek(row);
+            int day = flights.getFlightDay(row);
+            // the epoch day 0 (1970-01-01) is a Thursday, the day 4 of the ISO week
+            return dayOfWeek != 0 && day != DateDecoder.NOT_GIVEN && dayOfWeek != Math.floorMod(day + 3, 7) + 1;
+        }
+    },
+    WHEELS_OFF_BEFORE_DEPARTURE("wheels off before departure") {
+        @Override
+        boolean isViolated(FlightTable flights, int row, int invalidFields) {
+            return isCompleted(flights, row) && isBefore(flights.getWheelsOff(row), flights.getDepTime(row));
+        }
+    },
+    WHEELS_ON_AFTER_ARRIVAL("wheels on after arrival") {
+        @Override
+        boolean isViolated(FlightTable flights, int row, int invalidFields) {
+            return isCompleted(flights, row) && isBefore(flights.getArrTime(row), flights.getWheelsOn(row));
+        }
+    };
+
+    private static final ValidationRule[] RULES = values();
+
+    private final String reason;
+    private final byte[] reasonBytes;
+
+    private ValidationRule(String reason) {
+        this.reason = reason;
+        this.reasonBytes = reason.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Method checks the parsed row
+     *
+     * @param flights The table with the parsed row
+     * @param row The row of the table
+     * @param invalidFields The fields of the row replaced by the checks
+     * @return true if the row breaks the rule
+     */
+    abstract boolean isViolated(FlightTable flights, int row, int invalidFields);
+
+    /**
+     * Method returns the reason which is reported for the rows breaking the
+     * rule
+     *
+     * @return The reason, for example "no departure time"
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    byte[] getReasonBytes() {
+        return reasonBytes;
+    }
+
+    /**
+     * Method returns all rules without copying the array of values()
+     *
+     * @return The rules in the order of their checks
+     */
+    static ValidationRule[] rules() {
+        return RULES;
+    }
+
+    private static boolean isCompleted(FlightTable flights, int row) {
+        return flights.getCancelled(row) != 1;
+    }
+
+    private static boolean isInvalid(int invalidFields, FlightColumn column) {
+        return (invalidFields & 1 << column.ordinal()) != 0;
+    }
+
+    // the first time is earlier than the second by up to 12 hours, the times
+    // which are not given are not compared
+    private static boolean isBefore(int first, int second) {
+        if (first == 0 || second == 0) {
+            return false;
+        }
+        int minutes = Math.floorMod(TailUtilization.minutes(second) - TailUtilization.minutes(first), 24 * 60);
+        return minutes > 0 && minutes < 12 * 60;
+    }
+}
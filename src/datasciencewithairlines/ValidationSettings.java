@@ -0,0 +1,133 @@
+package datasciencewithairlines;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Class that is used to set what the validation does with the rows breaking
+ * each rule: nothing, count them in the report or count and reject them. By
+ * default the completed flights without the departure or arrival time are
+ * rejected, as they have always been, and the other rules are only counted.
+ * The rejected rows may be copied to a file together with their reasons
+ */
+public class ValidationSettings {
+
+    /**
+     * The actions of the validation for the rows breaking a rule
+     */
+    public enum Action {
+        OFF, COUNT, REJECT
+    }
+
+    private Action[] actions = new Action[ValidationRule.rules().length];
+    private File rejectFile;
+
+    private ValidationSettings() {
+        Arrays.fill(actions, Action.COUNT);
+        actions[ValidationRule.NO_DEPARTURE_TIME.ordinal()] = Action.REJECT;
+        actions[ValidationRule.NO_ARRIVAL_TIME.ordinal()] = Action.REJECT;
+    }
+
+    /**
+     * Method returns the default settings
+     *
+     * @return The settings which reject the completed flights without the
+     * departure or arrival time and count the other rules
+     */
+    public static ValidationSettings defaults() {
+        return new Builder().build();
+    }
+
+    public Action getAction(ValidationRule rule) {
+        return actions[rule.ordinal()];
+    }
+
+    /**
+     * Method returns the file into which the rejected rows are written
+     *
+     * @return The file or null if the rejected rows are not written
+     */
+    public File getRejectFile() {
+        return rejectFile;
+    }
+
+    /**
+     * Method encodes the actions of all rules into one number, which is saved
+     * with the snapshots and the states of the analysis, so the flights read
+     * with other rules are not used again
+     *
+     * @return Two bits of the action of each rule
+     */
+    int getRulesKey() {
+        int key = 0;
+        for (ValidationRule rule : ValidationRule.rules()) {
+            key |= actions[rule.ordinal()].ordinal() << 2 * rule.ordinal();
+        }
+        return key;
+    }
+
+    /**
+     * Method checks the parsed row by all rules which are not off and counts
+     * the broken rules
+     *
+     * @param flights The table with the parsed row
+     * @param row The row of the table
+     * @param invalidFields The fields of the row replaced by the checks
+     * @param violations The counters of the broken rules by their ordinals
+     * @return The first broken rule which rejects the row or null if the row
+     * is accepted
+     */
+    ValidationRule validate(FlightTable flights, int row, int invalidFields, long[] violations) {
+        ValidationRule rejectedBy = null;
+        for (ValidationRule rule : ValidationRule.rules()) {
+            Action action = actions[rule.ordinal()];
+            if (action != Action.OFF && rule.isViolated(flights, row, invalidFields)) {
+                violations[rule.ordinal()]++;
+                if (action == Action.REJECT && rejectedBy == null) {
+                    rejectedBy = rule;
+                }
+            }
+        }
+        return rejectedBy;
+    }
+
+    public static class Builder {
+
+        private ValidationSettings newSettings;
+
+        public Builder() {
+            newSettings = new ValidationSettings();
+        }
+
+        public Builder withAction(ValidationRule rule, Action action) {
+            if (action == null) {
+                throw new IllegalArgumentException("The action must be given");
+            }
+            newSettings.actions[rule.ordinal()] = action;
+            return this;
+        }
+
+        /**
+         * Method sets the same action for all rules
+         *
+         * @param action The action
+         * @return The builder
+         */
+        public Builder withAllActions(Action action) {
+            if (action == null) {
+                throw new IllegalArgumentException("The action must be given");
+            }
+            Arrays.fill(newSettings.actions, action);
+            return this;
+        }
+
+        public Builder withRejectFile(File rejectFile) {
+            newSettings.rejectFile = rejectFile;
+            return this;
+        }
+
+        public ValidationSettings build() {
+            return newSettings;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package datasciencewithairlines;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 
 /**
  * Class that is used to verify the contents of strings and database fields
@@ -18,7 +17,6 @@ public class Verifier {
      */
     public static int verifyInt(String str) {
         try {
-            Integer.parseInt(str);
             return Integer.parseInt(str);
         } catch (NumberFormatException ex) {
             return 0;
@@ -104,6 +102,29 @@ public class Verifier {
         return line.length >= index + 1 ? verifyInt(line[index]) : outarg;
     }
 
+    /**
+     * Method checks for the presence of an int datatype field in the current
+     * line of the tokenizer. The number is parsed directly from the buffer
+     *
+     * @param index The index of the field in the line
+     * @param line The tokenizer positioned on the flights data
+     * @param inarg The type of field (Delay or Others)
+     * @return 0 for type Others or 1000000 for type Delay if the field in database is empty
+     */
+    public static int checkForInt(int index, CsvTokenizer line, String inarg) {
+        int outarg = 0;
+        switch (inarg) {
+            case "others":
+                outarg = 0;
+                break;
+            case "delay":
+                outarg = 1000000;
+                break;
+        }
+
+        return line.fieldCount() >= index + 1 ? line.getInt(index) : outarg;
+    }
+
     /**
      * Method checks for the presence of an String datatype field in the database string
      * 
@@ -117,6 +138,19 @@ public class Verifier {
         return str.length() == 0 ? "Not filled" : str;
     }
 
+    /**
+     * Method checks for the presence of an String datatype field in the
+     * current line of the tokenizer
+     *
+     * @param index The index of the field in the line
+     * @param line The tokenizer positioned on the flights data
+     * @return "Not filled" if the field is empty
+     */
+    public static String checkForString(int index, CsvTokenizer line) {
+        return line.fieldCount() >= index + 1 && !line.isEmpty(index)
+                ? line.getString(index) : "Not filled";
+    }
+
     /**
      * Method checks for a date in the FlightDate field and formats the date
      * value using a single pattern
@@ -126,24 +160,31 @@ public class Verifier {
      * @return Date in LocalData format or Local Date "01-01-3999" if the field is empty
      */
     public static LocalDate checkForDate(int index, String[] line) {
-        DateTimeFormatter dtf1 = DateTimeFormatter.ofPattern("MM-dd-yy");
-        DateTimeFormatter dtf2 = DateTimeFormatter.ofPattern("MM/dd/yy");
-        DateTimeFormatter dtf3 = DateTimeFormatter.ofPattern("MM-dd-yyyy");
-        String str = line.length >= index + 1 ? line[index] : "Not filled";
-        LocalDate date;
-
-        if (!str.equals("Not filled")) {
-            if (str.contains("-") && str.length() == 8) {
-                date = LocalDate.parse(str, dtf1);
-            } else if (str.contains("/") && str.length() == 8) {
-                date = LocalDate.parse(str, dtf2);
-            } else {
-                date = LocalDate.parse("01-01-3999", dtf3);
-            }
-        } else {
-            date = LocalDate.parse("01-01-3999", dtf3);
-        }
+        return LocalDate.ofEpochDay(DateDecoder.decode(line.length >= index + 1 ? line[index] : "Not filled"));
+    }
 
-        return date;
+    /**
+     * Method checks for a date in the FlightDate field of the current line of
+     * the tokenizer
+     *
+     * @param index The index of the field in the line
+     * @param line The tokenizer positioned on the flights data
+     * @return Date in LocalData format or Local Date "01-01-3999" if the field is empty
+     */
+    public static LocalDate checkForDate(int index, CsvTokenizer line) {
+        return LocalDate.ofEpochDay(checkForEpochDay(index, line));
+    }
+
+    /**
+     * Method checks for a date in the FlightDate field of the current line of
+     * the tokenizer and returns it as a day of the epoch for the columnar
+     * tables
+     *
+     * @param index The index of the field in the line
+     * @param line The tokenizer positioned on the flights data
+     * @return The day of the epoch of the date or of "01-01-3999" if the field is empty
+     */
+    public static int checkForEpochDay(int index, CsvTokenizer line) {
+        return line.fieldCount() >= index + 1 ? line.getEpochDay(index) : DateDecoder.NOT_GIVEN;
     }
 }
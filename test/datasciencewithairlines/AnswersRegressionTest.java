@@ -0,0 +1,519 @@
+package datasciencewithairlines;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Class that is used to check that the answers of the aggregation engine are
+ * the same as the answers of the first version of the program, which loaded
+ * the flights into lists of Flight objects and answered each question with a
+ * stream. The reference answers are calculated here by that code, and the
+ * answers of every mode of the analysis (threads, memory-mapped file,
+ * snapshots, incremental state and shards) are compared with them on crafted
+ * files with tied maxima, CRLF line endings, a missing last line ending,
+ * trailing empty fields and empty or unreadable dates
+ */
+public class AnswersRegressionTest {
+
+    private static final String HEADER = "DAY_OF_MONTH,DAY_OF_WEEK,FL_DATE,OP_UNIQUE_CARRIER,TAIL_NUM,"
+            + "ORIGIN_AIRPORT_ID,ORIGIN,ORIGIN_STATE_NM,DEST_AIRPORT_ID,DEST,DEST_STATE_NM,DEP_TIME,"
+            + "DEP_DELAY,WHEELS_OFF,WHEELS_ON,ARR_TIME,ARR_DELAY,CANCELLED,CANCELLATION_CODE,DIVERTED,"
+            + "AIR_TIME,DISTANCE";
+
+    private File dir;
+
+    @Before
+    public void createFolder() throws IOException {
+        dir = Files.createTempDirectory("answers").toFile();
+    }
+
+    @After
+    public void deleteFolder() {
+        delete(dir);
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    @Test
+    public void tiedMaxima() throws IOException {
+        for (long seed = 1; seed <= 20; seed++) {
+            checkAllModes(write("ties" + seed, rows(seed, 40), "\n", true));
+        }
+    }
+
+    @Test
+    public void crlfLineEndings() throws IOException {
+        checkAllModes(write("crlf", rows(101, 300), "\r\n", true));
+    }
+
+    @Test
+    public void noLastLineEnding() throws IOException {
+        File file = write("unterminated", rows(102, 300), "\n", false);
+        checkModes(file, referenceAnswers(file));
+    }
+
+    @Test
+    public void trailingEmptyFields() throws IOException {
+        List<String> rows = new ArrayList<>();
+        for (String row : rows(103, 300)) {
+            rows.add(row.replaceAll("(,[^,]*){3}$", ",,,"));
+        }
+        checkAllModes(write("trailing", rows, "\n", true));
+    }
+
+    @Test
+    public void sentinelDates() throws IOException {
+        List<String> rows = new ArrayList<>();
+        String[] dates = {"", "Not filled", "3999-01-01", "01-01-99", "02/29/20", "12-31-19"};
+        int i = 0;
+        for (String row : rows(104, 300)) {
+            rows.add(withField(row, 2, dates[i++ % dates.length]));
+        }
+        checkAllModes(write("dates", rows, "\n", true));
+    }
+
+    @Test
+    public void onlyCancelledFlights() throws IOException {
+        List<String> rows = new ArrayList<>();
+        for (String row : rows(105, 100)) {
+            rows.add(withField(row, 17, "1"));
+        }
+        checkAllModes(write("cancelled", rows, "\n", true));
+    }
+
+    @Test
+    public void headerOnly() throws IOException {
+        checkAllModes(write("empty", Collections.<String>emptyList(), "\n", true));
+    }
+
+    /**
+     * Method generates rows with few distinct values in each field, so many
+     * counters of the questions are equal, with empty, missing and incorrect
+     * fields and with lines cut after any field
+     */
+    private static List<String> rows(long seed, int count) {
+        Random random = new Random(seed);
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String[] fields = {
+                pick(random, "5", "17", "0", "40", ""),
+                pick(random, "1", "4", "7", "9", ""),
+                pick(random, "03/05/20", "03-06-20", "03/17/20", ""),
+                pick(random, "AA", "UA", "DL", "aa", ""),
+                pick(random, "N101", "N202", "N303", "N404", ""),
+                pick(random, "10001", "10002", "10003", "10004", ""),
+                pick(random, "ABQ", "BOS", "CLE", "DEN", ""),
+                pick(random, "Ohio", "Texas", "Utah", "New York", ""),
+                pick(random, "10001", "10002", "10003", "10005", ""),
+                pick(random, "ABQ", "BOS", "CLE", "EWR", ""),
+                pick(random, "Ohio", "Texas", "Utah", "New York", ""),
+                pick(random, "1200", "905", "2400", "2500", "0", ""),
+                pick(random, "-5", "0", "60", "75", "120", ""),
+                pick(random, "1215", "920", ""),
+                pick(random, "1410", "1105", ""),
+                pick(random, "1420", "1120", "0", ""),
+                pick(random, "-10", "0", "59", "60", "90", ""),
+                pick(random, "0", "0", "0", "1", "2", ""),
+                pick(random, "A", "B", "B", "C", ""),
+                pick(random, "0", "0", "0", "1", ""),
+                pick(random, "60", "125", ""),
+                pick(random, "500", "1000", "1500", "0", "")};
+            int length = random.nextInt(8) == 0 ? 1 + random.nextInt(fields.length) : fields.length;
+            rows.add(String.join(",", Arrays.copyOf(fields, length)));
+        }
+        return rows;
+    }
+
+    // the lines which are cut before the field are kept as they are
+    private static String withField(String row, int index, String value) {
+        String[] fields = row.split(",", -1);
+        if (index >= fields.length) {
+            return row;
+        }
+        fields[index] = value;
+        return String.join(",", fields);
+    }
+
+    private static String pick(Random random, String... values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private File write(String name, List<String> rows, String lineEnding, boolean lastLineEnding)
+            throws IOException {
+        StringBuilder text = new StringBuilder(HEADER);
+        for (String row : rows) {
+            text.append(lineEnding).append(row);
+        }
+        if (lastLineEnding) {
+            text.append(lineEnding);
+        }
+        File file = new File(dir, name + ".csv");
+        Files.write(file.toPath(), text.toString().getBytes(Charset.defaultCharset()));
+        return file;
+    }
+
+    private void checkAllModes(File file) throws IOException {
+        String expected = referenceAnswers(file);
+        checkModes(file, expected);
+
+        // the first half is analyzed and saved, then the rest is appended
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        int half = bytes.length / 2;
+        while (half < bytes.length && bytes[half - 1] != '\n') {
+            half++;
+        }
+        File growing = new File(dir, "growing-" + file.getName());
+        Files.write(growing.toPath(), Arrays.copyOf(bytes, half));
+        AnalysisCenter ac = new AnalysisCenter();
+        ac.setIncremental(true);
+        ac.analyzeFile(folder("incremental-first").getPath(), growing);
+        Files.write(growing.toPath(), bytes);
+        ac = new AnalysisCenter();
+        ac.setIncremental(true);
+        File out = folder("incremental");
+        ac.analyzeFile(out.getPath(), growing);
+        assertEquals(file.getName() + " incremental", expected, read(out));
+    }
+
+    private void checkModes(File file, String expected) throws IOException {
+        assertEquals(file.getName() + " default", expected, analyze(file, new AnalysisCenter()));
+
+        AnalysisCenter threads = new AnalysisCenter();
+        threads.setThreads(3);
+        threads.setChunkSize(256);
+        assertEquals(file.getName() + " threads", expected, analyze(file, threads));
+
+        AnalysisCenter mapped = new AnalysisCenter();
+        mapped.setThreads(2);
+        mapped.setChunkSize(256);
+        mapped.setMemoryMapped(true);
+        assertEquals(file.getName() + " mmap", expected, analyze(file, mapped));
+
+        for (String pass : new String[]{"snapshot written", "snapshot read"}) {
+            AnalysisCenter snapshots = new AnalysisCenter();
+            snapshots.setSnapshots(true);
+            assertEquals(file.getName() + " " + pass, expected, analyze(file, snapshots));
+        }
+
+        List<PartialAggregate> partials = new ArrayList<>();
+        for (int shard = 0; shard < 3; shard++) {
+            partials.add(new AnalysisCenter().aggregateShard(file, 0, shard, 3));
+        }
+        File out = folder("shards");
+        new AnalysisCenter().answerPartials(out.getPath(), PartialAggregate.mergeAll(partials));
+        assertEquals(file.getName() + " shards", expected, read(out));
+    }
+
+    private String analyze(File file, AnalysisCenter ac) throws IOException {
+        File out = folder("analysis");
+        ac.analyzeFile(out.getPath(), file);
+        return read(out);
+    }
+
+    private File folder(String name) throws IOException {
+        return Files.createTempDirectory(dir.toPath(), name).toFile();
+    }
+
+    private static String read(File folder) throws IOException {
+        return new String(Files.readAllBytes(new File(folder, "answers.txt").toPath()), Charset.defaultCharset());
+    }
+
+    private String referenceAnswers(File file) throws IOException {
+        File out = folder("reference");
+        ListAnswers reference = new ListAnswers();
+        reference.loadFile(file);
+        reference.answer().writeAnswers(out.getPath());
+        return read(out);
+    }
+
+    /**
+     * Class that is used to answer the questions as the first version of the
+     * program did: the lines are split by String.split, the flights are kept
+     * in lists and each question is a stream over the list grouped into a
+     * HashMap. The choice between equal values therefore follows the order
+     * of the HashMap, which the engine has to reproduce
+     */
+    private static class ListAnswers {
+
+        private List<Flight> completedFlights = new ArrayList<>();
+        private List<Flight> cancelledFlights = new ArrayList<>();
+        private Map<String, Long> arrFlightsInAirport = new HashMap<>();
+        private Map<String, Long> depFlightsInAirport = new HashMap<>();
+        private FormattedOutput formattedOutput = new FormattedOutput();
+
+        void loadFile(File fileName) throws IOException {
+            try (FileReader fr = new FileReader(fileName)) {
+                Scanner scan = new Scanner(fr);
+                boolean firstLine = true;
+                while (scan.hasNextLine()) {
+                    if (firstLine) {
+                        scan.nextLine();
+                        firstLine = false;
+                        continue;
+                    }
+                    String[] line = scan.nextLine().split(",");
+                    Flight flight = new Flight.Builder()
+                            .withDayofMonth(Verifier.checkDayOfMonth(Verifier.checkForInt(0, line, "others")))
+                            .withDayOfWeek(Verifier.checkDayOfWeek(Verifier.checkForInt(1, line, "others")))
+                            .withFlightDate(Verifier.checkForDate(2, line))
+                            .withUniqueCarrier(Verifier.checkForString(3, line))
+                            .withTailNum(Verifier.checkForString(4, line))
+                            .withOriginAirportID(Verifier.checkForString(5, line))
+                            .withOrigin(Verifier.checkForString(6, line))
+                            .withOriginStateName(Verifier.checkForString(7, line))
+                            .withDestAirportID(Verifier.checkForString(8, line))
+                            .withDest(Verifier.checkForString(9, line))
+                            .withDestStateName(Verifier.checkForString(10, line))
+                            .withDepTime(Verifier.checkTime(Verifier.checkForInt(11, line, "others")))
+                            .withDepDelay(Verifier.checkForInt(12, line, "delay"))
+                            .withWheelsOff(Verifier.checkTime(Verifier.checkForInt(13, line, "others")))
+                            .withWheelsOn(Verifier.checkTime(Verifier.checkForInt(14, line, "others")))
+                            .withArrTime(Verifier.checkTime(Verifier.checkForInt(15, line, "others")))
+                            .withArrDelay(Verifier.checkForInt(16, line, "delay"))
+                            .withCancelled(Verifier.checkCancelled(Verifier.checkForInt(17, line, "others")))
+                            .withCancellationCode(Verifier.checkForString(18, line))
+                            .withDiverted(Verifier.checkCancelled(Verifier.checkForInt(19, line, "others")))
+                            .withAirTime(Verifier.checkForInt(20, line, "others"))
+                            .withDistance(Verifier.checkForInt(21, line, "others"))
+                            .build();
+                    if (flight.getCancelled() == 1) {
+                        cancelledFlights.add(flight);
+                    } else if (flight.getDiverted() == 1
+                            || (flight.getDepTime() != 0 && flight.getArrTime() != 0)) {
+                        completedFlights.add(flight);
+                    }
+                }
+            }
+        }
+
+        FormattedOutput answer() {
+            collectAirportsMaps();
+            answerQuestion1();
+            answerQuestion2();
+            answerQuestion3();
+            answerQuestion4();
+            answerQuestion5and6();
+            answerQuestion7();
+            answerQuestion8();
+            answerQuestion9();
+            return formattedOutput;
+        }
+
+        void collectAirportsMaps() {
+            if (completedFlights.size() > 0) {
+                arrFlightsInAirport = completedFlights
+                        .stream()
+                        .filter(f -> !f.getOriginAirportID().equals("Not filled"))
+                        .collect(Collectors.groupingBy(Flight::getOriginAirportID, Collectors.counting()));
+                depFlightsInAirport = completedFlights
+                        .stream()
+                        .filter(f -> !f.getDestAirportID().equals("Not filled"))
+                        .collect(Collectors.groupingBy(Flight::getDestAirportID, Collectors.counting()));
+            }
+        }
+
+        static <K, V> Entry<K, V> maxValueOfEntries(Map<K, V> map, Comparator<V> comp) {
+            return Collections.max(map.<K, V>entrySet(), Map.Entry.<K, V>comparingByValue(comp));
+        }
+
+        static <K, V> Entry<K, V> minValueOfEntries(Map<K, V> map, Comparator<V> comp) {
+            return Collections.min(map.<K, V>entrySet(), Map.Entry.<K, V>comparingByValue(comp));
+        }
+
+        void answerQuestion1() {
+            if (cancelledFlights.size() > 0) {
+                Map<String, Long> ucCompletedFlights = completedFlights
+                        .stream()
+                        .filter(f -> f.getDiverted() != 1)
+                        .filter(f -> !f.getUniqueCarrier().equals("Not filled"))
+                        .collect(Collectors.groupingBy(Flight::getUniqueCarrier, Collectors.counting()));
+                Map<String, Long> ucCancelledFlights = cancelledFlights
+                        .stream()
+                        .filter(f -> !f.getUniqueCarrier().equals("Not filled"))
+                        .collect(Collectors.groupingBy(Flight::getUniqueCarrier, Collectors.counting()));
+                Map<String, Double> ucShareOfCancelledFlights = new HashMap<>();
+                ucCancelledFlights.entrySet().forEach(entry -> {
+                    long valueCompleted = ucCompletedFlights.getOrDefault(entry.getKey(), 0L);
+                    ucShareOfCancelledFlights.put(entry.getKey(),
+                            (double) entry.getValue() / (valueCompleted + entry.getValue()) * 100);
+                });
+                if (ucShareOfCancelledFlights.size() > 0) {
+                    Entry<String, Double> max = maxValueOfEntries(ucShareOfCancelledFlights, Double::compare);
+                    formattedOutput.addAnswer(1, max.getKey() + "," + max.getValue() + "%");
+                } else {
+                    formattedOutput.addAnswer(1, "The database does not contain flights "
+                            + "with complete information necessary to answer this question");
+                }
+            } else {
+                formattedOutput.addAnswer(1, "There is no information in the database "
+                        + "about cancelled flights (or incomplete data are given on them)");
+            }
+        }
+
+        void answerQuestion2() {
+            if (cancelledFlights.size() > 0) {
+                Map<String, Long> cancellationCodes = cancelledFlights
+                        .stream()
+                        .filter(f -> !f.getCancellationCode().equals("Not filled"))
+                        .collect(Collectors.groupingBy(Flight::getCancellationCode, Collectors.counting()));
+                if (cancellationCodes.size() > 0) {
+                    formattedOutput.addAnswer(2, maxValueOfEntries(cancellationCodes, Long::compare).getKey());
+                } else {
+                    formattedOutput.addAnswer(2, "The database does not contain flights "
+                            + "with complete information necessary to answer this question");
+                }
+            } else {
+                formattedOutput.addAnswer(2, "There is no information in the database "
+                        + "about cancelled flights (or incomplete data are given on them)");
+            }
+        }
+
+        void answerQuestion3() {
+            if (completedFlights.size() > 0) {
+                Map<String, Long> sumDistancesOfTail = completedFlights
+                        .stream()
+                        .filter(f -> !f.getTailNum().equals("Not filled"))
+                        .filter(f -> f.getDistance() > 0)
+                        .collect(Collectors.groupingBy(Flight::getTailNum, Collectors.summingLong(Flight::getDistance)));
+                if (sumDistancesOfTail.size() > 0) {
+                    formattedOutput.addAnswer(3, maxValueOfEntries(sumDistancesOfTail, Long::compare).getKey());
+                } else {
+                    formattedOutput.addAnswer(3, "The database does not contain flights "
+                            + "with complete information necessary to answer this question");
+                }
+            } else {
+                formattedOutput.addAnswer(3, "There is no information on completed "
+                        + "flights in the database (or incomplete data are given for them)");
+            }
+        }
+
+        void answerQuestion4() {
+            if (completedFlights.size() > 0
+                    && (arrFlightsInAirport.size() > 0 || depFlightsInAirport.size() > 0)) {
+                Map<String, Long> sumFlightsInAirport = new HashMap<>();
+                arrFlightsInAirport.entrySet().forEach(entry -> sumFlightsInAirport.put(entry.getKey(),
+                        entry.getValue() + depFlightsInAirport.getOrDefault(entry.getKey(), 0L)));
+                depFlightsInAirport.entrySet().forEach(entry
+                        -> sumFlightsInAirport.putIfAbsent(entry.getKey(), entry.getValue()));
+                formattedOutput.addAnswer(4, maxValueOfEntries(sumFlightsInAirport, Long::compare).getKey());
+            } else {
+                formattedOutput.addAnswer(4, "There is no information on completed "
+                        + "flights in the database (or incomplete data are given for them)");
+            }
+        }
+
+        void answerQuestion5and6() {
+            if (completedFlights.size() > 0
+                    && (arrFlightsInAirport.size() > 0 || depFlightsInAirport.size() > 0)) {
+                Map<String, Long> diffArrAndDepFlights = new HashMap<>();
+                arrFlightsInAirport.entrySet().forEach(entry -> diffArrAndDepFlights.put(entry.getKey(),
+                        entry.getValue() - depFlightsInAirport.getOrDefault(entry.getKey(), 0L)));
+                depFlightsInAirport.entrySet().forEach(entry
+                        -> diffArrAndDepFlights.putIfAbsent(entry.getKey(), -entry.getValue()));
+                formattedOutput.addAnswer(5, maxValueOfEntries(diffArrAndDepFlights, Long::compare).getKey());
+                formattedOutput.addAnswer(6, minValueOfEntries(diffArrAndDepFlights, Long::compare).getKey());
+            } else {
+                formattedOutput.addAnswer(5, "There is no information on completed "
+                        + "flights in the database (or incomplete data are given for them)");
+                formattedOutput.addAnswer(6, "There is no information on completed "
+                        + "flights in the database (or incomplete data are given for them)");
+            }
+        }
+
+        void answerQuestion7() {
+            if (completedFlights.size() > 0) {
+                long sumDepDelay = completedFlights
+                        .stream()
+                        .filter(f -> f.getDiverted() != 1)
+                        .filter(f -> f.getDepDelay() != 1000000)
+                        .filter(f -> f.getUniqueCarrier().equalsIgnoreCase("AA"))
+                        .filter(f -> f.getDepDelay() >= 60)
+                        .count();
+                long sumArrDelay = completedFlights
+                        .stream()
+                        .filter(f -> f.getDiverted() != 1)
+                        .filter(f -> f.getArrDelay() != 1000000)
+                        .filter(f -> f.getUniqueCarrier().equalsIgnoreCase("AA"))
+                        .filter(f -> f.getDepDelay() < 60)
+                        .filter(f -> f.getArrDelay() >= 60)
+                        .count();
+                formattedOutput.addAnswer(7, (int) sumDepDelay + (int) sumArrDelay);
+            } else {
+                formattedOutput.addAnswer(7, "There is no information on completed "
+                        + "flights in the database (or incomplete data are given for them)");
+            }
+        }
+
+        void answerQuestion8() {
+            if (completedFlights.size() > 0) {
+                Flight max = completedFlights
+                        .stream()
+                        .filter(f -> !f.getTailNum().equals("Not filled"))
+                        .filter(f -> f.getDayofMonth() != 0)
+                        .filter(f -> f.getDiverted() != 1)
+                        .filter(f -> f.getDepDelay() != 1000000)
+                        .filter(f -> f.getArrDelay() <= 0)
+                        .max((f1, f2) -> Integer.compare(f1.getDepDelay(), f2.getDepDelay()))
+                        .orElse(null);
+                if (max != null) {
+                    formattedOutput.addAnswer(8, max.getDayofMonth() + "," + max.getDepDelay() + ","
+                            + max.getTailNum());
+                } else {
+                    formattedOutput.addAnswer(8, "The database does not contain flights "
+                            + "with complete information necessary to answer this question");
+                }
+            } else {
+                formattedOutput.addAnswer(8, "There is no information on completed "
+                        + "flights in the database (or incomplete data are given for them)");
+            }
+        }
+
+        void answerQuestion9() {
+            if (cancelledFlights.size() > 0) {
+                Map<String, Long> osWeatherCancellationCode = cancelledFlights
+                        .stream()
+                        .filter(f -> !f.getOriginStateName().equals("Not filled"))
+                        .filter(f -> !f.getCancellationCode().equals("Not filled"))
+                        .filter(f -> f.getCancellationCode().equalsIgnoreCase("B"))
+                        .collect(Collectors.groupingBy(Flight::getOriginStateName, Collectors.counting()));
+                if (osWeatherCancellationCode.size() > 0) {
+                    formattedOutput.addAnswer(9, maxValueOfEntries(osWeatherCancellationCode, Long::compare).getKey());
+                } else {
+                    formattedOutput.addAnswer(9, "There are no flights in the database "
+                            + "with a reason for cancellation due to weather conditions (B) "
+                            + "(or incomplete data are given on them)");
+                }
+            } else {
+                formattedOutput.addAnswer(9, "There is no information in the database "
+                        + "about cancelled flights (or incomplete data are given on them)");
+            }
+        }
+    }
+}